@@ -0,0 +1,133 @@
+package com.jpabook.jpashop.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpabook.jpashop.JpashopApplication;
+import com.jpabook.jpashop.api.OrderApiController;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// >> 42. 주문 조회 방식 별 벤치마크 ( 쿼리 + DTO 변환 + Jackson 직렬화까지 )
+// 웹 서버 없이 애플리케이션을 띄우고 OrderApiController 메소드를 직접 호출해서 byte[] 로 직렬화한다.
+// 지연 로딩은 요청 범위(OSIV) 대신 읽기 전용 트랜잭션 하나로 감싼다.
+// 페이징 되는 방식 ( v3, v3.1, v6, v7 ) 은 모두 pageSize 건만 읽으므로 orders 를 늘려도 한 페이지 비용을 비교한다.
+// v2, v4, v5 는 페이징이 없어서 전체를 읽는다. ( v2 는 findAllByString 이 최대 1000건에서 자름 )
+//  -> orders 가 1000 을 넘으면 v2 와 v4 / v5 가 읽는 양도 달라지므로 결과를 볼 때 주의
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderQueryBenchmark {
+
+	private static final int CATALOG_SIZE = 100;
+	private static final int ORDERS_PER_MEMBER = 10;
+	private static final int MAX_PAGE_SIZE = 1000;	// OrderApiController.MAX_PAGE_LIMIT
+
+	@Param({"1000"})
+	public int orders;
+
+	@Param({"2"})
+	public int itemsPerOrder;
+
+	// 페이징 되는 방식의 limit ( OrderApiController.MAX_PAGE_LIMIT 이하, 넘으면 400 이므로 시작할 때 막는다 )
+	@Param({"100"})
+	public int pageSize;
+
+	private ConfigurableApplicationContext context;
+	private OrderApiController orderApiController;
+	private OrderQueryResultCache orderQueryResultCache;
+	private ObjectMapper objectMapper;
+	private TransactionTemplate readOnly;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("pageSize 는 1 ~ " + MAX_PAGE_SIZE + " 이어야 합니다. pageSize=" + pageSize);
+		}
+		SpringApplication application = new SpringApplication(JpashopApplication.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		// >> 43. datagen 프로필로 띄워서 DataGenRunner 가 고정 seed 데이터와 read model 을 만든다. ( InitDb 는 꺼짐 )
+		context = application.run(
+			"--spring.profiles.active=datagen",
+			"--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+			"--spring.main.banner-mode=off",
+			"--logging.level.root=warn",
+			"--logging.level.org.hibernate.SQL=warn",
+			"--jpashop.outbox.relay-enabled=false",
+			"--jpashop.datagen.orders=" + orders,
+			"--jpashop.datagen.members=" + Math.max(1, orders / ORDERS_PER_MEMBER),
+			"--jpashop.datagen.items=" + CATALOG_SIZE,
+			"--jpashop.datagen.min-items-per-order=" + itemsPerOrder,
+			"--jpashop.datagen.max-items-per-order=" + itemsPerOrder);
+
+		orderApiController = context.getBean(OrderApiController.class);
+		orderQueryResultCache = context.getBean(OrderQueryResultCache.class);
+		objectMapper = context.getBean(ObjectMapper.class);
+		readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnly.setReadOnly(true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	// 엔티티 조회 후 DTO 변환 ( 지연 로딩 N+1, 페이징 없음 )
+	@Benchmark
+	public byte[] v2_entity() {
+		return serialize(orderApiController::ordersV2);
+	}
+
+	// 컬렉션 fetch join ( id 페이징 후 fetch join )
+	@Benchmark
+	public byte[] v3_fetchJoin() {
+		return serialize(() -> orderApiController.ordersV3(0, pageSize));
+	}
+
+	// ToOne fetch join + batch size IN 조회
+	@Benchmark
+	public byte[] v3_1_batchSize() {
+		return serialize(() -> orderApiController.ordersV3_page(0, pageSize));
+	}
+
+	// DTO 직접 조회 ( 주문 당 orderItem 쿼리 N+1, 페이징 없음 )
+	@Benchmark
+	public byte[] v4_dto() {
+		return serialize(orderApiController::ordersV4);
+	}
+
+	// DTO 직접 조회 + IN 조회, 결과 캐시를 비워서 매번 쿼리까지 측정 ( 페이징 없음 )
+	@Benchmark
+	public byte[] v5_dtoInQuery() {
+		orderQueryResultCache.invalidate();
+		return serialize(orderApiController::ordersV5);
+	}
+
+	// flat 조회 후 주문 id 순으로 묶기
+	@Benchmark
+	public byte[] v6_flat() {
+		return serialize(() -> orderApiController.ordersV6(0, pageSize));
+	}
+
+	// order_summary read model
+	@Benchmark
+	public byte[] v7_summary() {
+		return serialize(() -> orderApiController.ordersV7(null, pageSize, null, null));
+	}
+
+	private byte[] serialize(Supplier<Object> query) {
+		return readOnly.execute(status -> {
+			try {
+				return objectMapper.writeValueAsBytes(query.get());
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+}
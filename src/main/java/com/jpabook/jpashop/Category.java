@@ -3,15 +3,24 @@ package com.jpabook.jpashop;
 import com.jpabook.jpashop.domain.item.Item;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_category_path", columnList = "path"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category")    // >> 26. 2차 캐시
 @Getter @Setter
 public class Category {
 
+    // path 컬럼 길이. 경로 한 칸은 id 자릿수 + "/" 라서 깊이 제한 역할도 한다.
+    public static final int MAX_PATH_LENGTH = 500;
+
     @Id @GeneratedValue
     @Column(name = "category_id")
     private Long id;
@@ -30,16 +39,59 @@ public class Category {
 
     // =============================================
     // 같은 엔티티에 대해서 매핑시켜줌 ( 카테고리 계층관계 )
-    @ManyToOne
+    // >> 28. 부모를 LAZY로 바꿔서 카테고리 하나 조회할 때 조상까지 줄줄이 조회되지 않게 함
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_id")
     private Category parent;
 
     @OneToMany(mappedBy = "parent")
+    @BatchSize(size = 100)  // 하위 트리를 한 번에 올린 뒤 child 컬렉션은 100개씩 IN 쿼리로 초기화
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "category-child")
     private List<Category> child = new ArrayList<>();
 
+    // >> 28. 계층 경로 ( materialized path ) 예) /1/5/12/
+    // 루트부터 자신까지의 id를 이어 붙인 값이라 하위 트리 전체를 path like '/1/5/%' 한 번으로 찾을 수 있다.
+    @Column(length = MAX_PATH_LENGTH)
+    private String path;
+
     public void addChildCategory(Category child) {
+        if (path != null && path.length() + pathLengthBelowParent(child) > MAX_PATH_LENGTH) {
+            throw new IllegalStateException("카테고리 계층이 너무 깊습니다. ( path 최대 " + MAX_PATH_LENGTH + "자 )");
+        }
         this.child.add(child);  // 부모 child 컬렉션에도 집어넣고
         child.setParent(this);  // 자식에서도 부모가 누군지 집어넣어준다.
+        child.updatePath();     // 부모가 바뀌었으니 자식(하위 트리 포함)의 경로도 다시 계산
+    }
+
+    // id가 있어야 경로를 만들 수 있으므로 저장 직후에도 호출된다. ( CategoryRepository.save )
+    public void updatePath() {
+        if (id == null) {
+            return;
+        }
+        String parentPath = parent == null ? "/" : parent.getPath();
+        if (parentPath == null) {
+            return; // 부모가 아직 저장 전이면 부모가 저장될 때 같이 계산됨
+        }
+
+        String path = parentPath + id + "/";
+        if (path.length() > MAX_PATH_LENGTH) {   // 부모 경로가 늦게 정해진 경우 ( 저장 전 부모에 붙인 자식 )
+            throw new IllegalStateException("카테고리 계층이 너무 깊습니다. ( path 최대 " + MAX_PATH_LENGTH + "자 )");
+        }
+        this.path = path;
+        for (Category c : child) {
+            c.updatePath();
+        }
+    }
+
+    // 부모 경로 뒤에 붙는 길이 중 가장 긴 것 ( 자신 + 가장 깊은 하위 카테고리까지 )
+    // 아직 id가 없으면 Long 최대 자릿수로 잡는다.
+    private static int pathLengthBelowParent(Category category) {
+        int own = (category.getId() == null ? String.valueOf(Long.MAX_VALUE).length() : String.valueOf(category.getId()).length()) + 1;
+        int deepest = 0;
+        for (Category c : category.getChild()) {
+            deepest = Math.max(deepest, pathLengthBelowParent(c));
+        }
+        return own + deepest;
     }
 
 }
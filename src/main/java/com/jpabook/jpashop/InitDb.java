@@ -1,8 +1,12 @@
 package com.jpabook.jpashop;
 
 import com.jpabook.jpashop.domain.*;
+import com.jpabook.jpashop.domain.event.OrderPlacedEvent;
 import com.jpabook.jpashop.domain.item.Book;
+import com.jpabook.jpashop.repository.SalesRollupRepository;
+import com.jpabook.jpashop.service.OrderSummaryProjector;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,7 +31,9 @@ import javax.persistence.EntityManager;
  *  3) DB 셋팅이 완료됨
  *  ( init()에 dbInit1()내용을 다 안 넣은 이유는 스프링 라이프사이클 때문에 잘 안됨 )
  */
+// >> 43. datagen 프로필에서는 DataGenRunner 가 대신 데이터를 만든다.
 @Component
+@Profile("!datagen")
 @RequiredArgsConstructor
 public class InitDb {
 
@@ -45,6 +51,9 @@ public class InitDb {
 	static class InitService {
 
 		private final EntityManager em;
+		private final SalesRollupRepository salesRollupRepository;
+		private final OrderSummaryProjector orderSummaryProjector;
+
 		public void dbInit1() {
 			Member member = createMember("userA", "서울", "1", "1111");
 			em.persist(member);
@@ -62,6 +71,9 @@ public class InitDb {
 			Delivery delivery = createDelivery(member);
 			Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
 			em.persist(order);
+			salesRollupRepository.addOrder(order);
+			// >> 40. @PostConstruct 시점에는 이벤트 리스너가 아직 등록되지 않으므로 read model 은 직접 반영
+			orderSummaryProjector.on(new OrderPlacedEvent(order));
 		}
 
 		public void dbInit2() {
@@ -81,6 +93,9 @@ public class InitDb {
 			Delivery delivery = createDelivery(member);
 			Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
 			em.persist(order);
+			salesRollupRepository.addOrder(order);
+			// >> 40. @PostConstruct 시점에는 이벤트 리스너가 아직 등록되지 않으므로 read model 은 직접 반영
+			orderSummaryProjector.on(new OrderPlacedEvent(order));
 		}
 
 		private Delivery createDelivery(Member member) {
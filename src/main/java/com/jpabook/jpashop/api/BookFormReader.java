@@ -0,0 +1,158 @@
+package com.jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.jpabook.jpashop.controller.BookForm;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// >> 36. 대량 등록 요청 본문을 한 줄씩 BookForm 으로 읽는다. ( 전체를 메모리에 올리지 않음 )
+//  - NDJSON : 한 줄에 BookForm json 하나
+//  - CSV : 첫 줄은 헤더 ( name, price, stockQuantity, author, isbn 순서는 자유 ), 큰따옴표로 감싼 값 지원
+//          숫자가 잘못된 줄은 건너뛴 줄로 세고 다음 줄을 계속 읽는다.
+final class BookFormReader {
+
+	private static final int INVALID_NUMBER = -1;
+
+	private BookFormReader() {
+	}
+
+	// 값의 형식이 잘못된 줄 ( "price":"abc" 등 ) 은 건너뛴 줄로 세고 다음 줄부터 계속 읽는다.
+	// ( json 문법 자체가 깨진 줄은 다음 줄의 시작을 알 수 없으므로 그대로 실패 )
+	static Iterator<BookForm> ndjson(InputStream in, ObjectMapper objectMapper) throws IOException {
+		MappingIterator<BookForm> forms = objectMapper.readerFor(BookForm.class).readValues(in);
+		return new Iterator<BookForm>() {
+			@Override
+			public boolean hasNext() {
+				return forms.hasNext();
+			}
+
+			@Override
+			public BookForm next() {
+				try {
+					return forms.next();
+				} catch (RuntimeJsonMappingException e) {
+					return invalidForm();
+				}
+			}
+		};
+	}
+
+	static Iterator<BookForm> csv(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String header = reader.readLine();
+		if (header == null) {
+			return new ArrayList<BookForm>().iterator();
+		}
+
+		Map<String, Integer> columns = new HashMap<>();
+		List<String> names = split(header);
+		for (int i = 0; i < names.size(); i++) {
+			columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+		}
+
+		return new Iterator<BookForm>() {
+			private String next = readDataLine();
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public BookForm next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				BookForm form = toForm(split(next), columns);
+				next = readDataLine();
+				return form;
+			}
+
+			// 빈 줄은 건너뛴다.
+			private String readDataLine() {
+				try {
+					String line;
+					do {
+						line = reader.readLine();
+					} while (line != null && line.trim().isEmpty());
+					return line;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	// 숫자가 잘못된 줄도 예외로 import 전체를 멈추지 않고 price 가 -1 인 form 으로 돌려서 건너뛴 줄로 센다. ( BookImportLine.isValid )
+	private static BookForm toForm(List<String> values, Map<String, Integer> columns) {
+		BookForm form = new BookForm();
+		form.setName(value(values, columns, "name"));
+		form.setAuthor(value(values, columns, "author"));
+		form.setIsbn(value(values, columns, "isbn"));
+		try {
+			form.setPrice(number(value(values, columns, "price")));
+			form.setStockQuantity(number(value(values, columns, "stockquantity")));
+		} catch (NumberFormatException e) {
+			return invalidForm();
+		}
+		return form;
+	}
+
+	private static BookForm invalidForm() {
+		BookForm form = new BookForm();
+		form.setPrice(INVALID_NUMBER);
+		return form;
+	}
+
+	private static String value(List<String> values, Map<String, Integer> columns, String column) {
+		Integer index = columns.get(column);
+		return index == null || index >= values.size() ? null : values.get(index);
+	}
+
+	private static int number(String value) {
+		return value == null || value.trim().isEmpty() ? 0 : Integer.parseInt(value.trim());
+	}
+
+	// 쉼표로 나누되 "a, b" 처럼 큰따옴표 안의 쉼표는 값으로, "" 는 큰따옴표 하나로
+	static List<String> split(String line) {
+		List<String> values = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					current.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					current.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(current.toString());
+				current.setLength(0);
+			} else {
+				current.append(c);
+			}
+		}
+		values.add(current.toString());
+		return values;
+	}
+}
@@ -0,0 +1,13 @@
+package com.jpabook.jpashop.api;
+
+// >> 15-4. 잘못된 커서 / limit ( 400 Bad Request, OrderApiController 에서 처리 )
+class InvalidPageRequestException extends IllegalArgumentException {
+
+	InvalidPageRequestException(String message) {
+		super(message);
+	}
+
+	InvalidPageRequestException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,103 @@
+package com.jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jpabook.jpashop.controller.BookForm;
+import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.repository.BookImportLine;
+import com.jpabook.jpashop.repository.ItemSearchResult;
+import com.jpabook.jpashop.service.ImportProgress;
+import com.jpabook.jpashop.service.ItemImportService;
+import com.jpabook.jpashop.service.ItemService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+	private static final String NDJSON = "application/x-ndjson";
+	private static final String CSV = "text/csv";
+
+	private final ItemService itemService;
+	private final ItemImportService itemImportService;
+	private final ObjectMapper objectMapper;
+
+	// >> 31. 상품 검색 ( 이름, 저자, isbn, 아티스트, 감독 )
+	// 마지막 단어는 접두어로 찾으므로 입력 중인 검색어로 바로 호출해도 된다. ( type-ahead )
+	// 예) /api/items/search?q=kim jp&offset=0&limit=10
+	// "a" 처럼 너무 많은 단어로 펼쳐지는 접두어 하나는 일부만 찾고 truncated = true ( total 은 최소 건수 )
+	@GetMapping("/api/items/search")
+	public ItemSearchResult searchItems(
+		@RequestParam("q") String query,
+		@RequestParam(value = "offset", defaultValue = "0") int offset,
+		@RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+		return itemService.searchItems(query, Math.max(offset, 0), Math.min(Math.max(limit, 0), 100));
+	}
+
+	// >> 33. 주문이 몰릴 상품의 재고 분할 ( count 가 1 이하면 분할 해제 )
+	@PutMapping("/api/items/{id}/stock-shards")
+	public StockShardResponse shardStock(
+		@PathVariable("id") Long id,
+		@RequestParam("count") int count) {
+
+		itemService.shardStock(id, count);
+		Item item = itemService.findOne(id);
+		return new StockShardResponse(item.getId(), item.getStockShardCount(), itemService.getStockQuantity(id));
+	}
+
+	// >> 36. 책 대량 등록 ( CSV 또는 NDJSON, isbn 기준 upsert )
+	// 본문을 한 줄씩 읽어서 chunk 단위로 커밋하고, 커밋할 때마다 진행 상황을 한 줄씩 응답에 쓴다. ( 마지막 줄 done=true )
+	// 예) curl -X POST -H 'Content-Type: text/csv' --data-binary @books.csv /api/items/import
+	@PostMapping(value = "/api/items/import", consumes = {CSV, NDJSON}, produces = NDJSON)
+	public void importBooks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		Iterator<BookForm> forms = request.getContentType().startsWith(CSV)
+			? BookFormReader.csv(request.getInputStream())
+			: BookFormReader.ndjson(request.getInputStream(), objectMapper);
+
+		Iterator<BookImportLine> lines = StreamSupport
+			.stream(Spliterators.spliteratorUnknownSize(forms, Spliterator.ORDERED), false)
+			.map(form -> new BookImportLine(form.getName(), form.getPrice(), form.getStockQuantity(),
+				form.getAuthor(), form.getIsbn()))
+			.iterator();
+
+		response.setContentType(NDJSON);
+		response.setCharacterEncoding("UTF-8");
+		ObjectWriter writer = objectMapper.writerFor(ImportProgress.class);
+		OutputStream out = response.getOutputStream();
+		try {
+			itemImportService.importBooks(lines, progress -> {
+				try {
+					out.write(writer.writeValueAsBytes(progress));
+					out.write('\n');
+					out.flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Data
+	@AllArgsConstructor
+	static class StockShardResponse {
+		private Long id;
+		private int shardCount;
+		private int stockQuantity;
+	}
+}
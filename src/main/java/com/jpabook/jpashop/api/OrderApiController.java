@@ -1,21 +1,40 @@
 package com.jpabook.jpashop.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.jpabook.jpashop.domain.Address;
 import com.jpabook.jpashop.domain.Order;
 import com.jpabook.jpashop.domain.OrderItem;
 import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.domain.summary.OrderSummary;
 import com.jpabook.jpashop.repository.OrderRepository;
 import com.jpabook.jpashop.repository.OrderSearch;
-import com.jpabook.jpashop.repository.order.query.OrderFlatDto;
-import com.jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
 import com.jpabook.jpashop.repository.order.query.OrderQueryDto;
 import com.jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import com.jpabook.jpashop.service.OrderFacade;
+import com.jpabook.jpashop.service.OrderLine;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -27,6 +46,27 @@ public class OrderApiController {
 
 	private final OrderRepository orderRepository;
 	private final OrderQueryRepository orderQueryRepository;
+	private final OrderQueryResultCache orderQueryResultCache;
+	private final ObjectMapper objectMapper;
+	private final OrderFacade orderFacade;
+	private final OrderSummaryRepository orderSummaryRepository;
+
+	private static final String NDJSON = "application/x-ndjson";
+
+	// 한 페이지 최대 개수 ( id IN 목록 크기도 이만큼으로 제한, 키셋 페이징은 limit + 1 로 조회하므로 overflow 도 막는다 )
+	static final int MAX_PAGE_LIMIT = 1000;
+
+	// >> 34. 장바구니 주문 ( 여러 상품을 주문 1건으로 )
+	// 상품 10개를 담아도 주문 10번이 아니라 트랜잭션 1번, insert 는 테이블 별로 batch
+	@PostMapping("/api/v1/orders")
+	public CheckoutResponse checkoutV1(@RequestBody @Valid CheckoutRequest request) {
+		List<OrderLine> lines = request.getLines().stream()
+			.map(line -> new OrderLine(line.getItemId(), line.getCount()))
+			.collect(Collectors.toList());
+
+		Long orderId = orderFacade.checkout(request.getMemberId(), lines);
+		return new CheckoutResponse(orderId);
+	}
 
 	// >> 11. v2. 엔티티 DTO 변환 -> 쿼리가 상당히 많이 날아감 비효율적
 	@GetMapping("/api/v2/orders")
@@ -42,9 +82,14 @@ public class OrderApiController {
 	// >> 12. v3. 엔티티 DTO 변환 - 패치 조인 사용
 	//    - 패치 조인만 사용했을 뿐이고 나머지는 v2와 코드가 유사하다.
 	//    - 쿼리가 여러 번 나가는데 비해 v3에서는 쿼리가 1개만 나간다. (성능 우수)
+	//    - >> 14-1. 컬렉션 fetch join은 메모리 페이징이 되므로 id 페이징 후 fetch join ( 쿼리 2번 )
 	@GetMapping("/api/v3/orders")
-	public List<OrderDto> ordersV3() {
-		List<Order> orders = orderRepository.findAllWithItem();
+	public List<OrderDto> ordersV3(
+		@RequestParam(value = "offset", defaultValue = "0") int offset,
+		@RequestParam(value = "limit", defaultValue = "100") int limit
+	) {
+		checkPage(offset, limit);
+		List<Order> orders = orderRepository.findAllWithItem(offset, limit);
 		List<OrderDto> result = orders.stream()
 			.map(OrderDto::new)
 			.collect(Collectors.toList());
@@ -73,6 +118,32 @@ public class OrderApiController {
 		return result;
 	}
 
+	// >> 15-2. 키셋(커서) 페이징
+	// offset이 커질수록 느려지는 v3.1과 달리 마지막으로 받은 주문 다음부터 조회한다.
+	// 응답의 nextCursor를 그대로 after에 넣어서 다음 페이지를 요청 ( 마지막 페이지면 null )
+	@GetMapping("/api/v3.2/orders")
+	public CursorResult<OrderDto> ordersV3_cursor(
+		@RequestParam(value = "after", required = false) String after,
+		@RequestParam(value = "limit", defaultValue = "100") int limit
+	) {
+		// 다음 페이지 존재 여부를 알기 위해 1개 더 조회
+		Long afterId = OrderCursor.decode(after);
+		checkPageLimit(limit);
+		List<Order> orders = orderRepository.findAllWithMemberDeliveryAfter(afterId, limit + 1);
+		boolean hasNext = orders.size() > limit;
+		if (hasNext) {
+			orders = orders.subList(0, limit);
+		}
+
+		// orderItems, item은 v3.1과 동일하게 batch size 만큼 IN 쿼리로 조회
+		List<OrderDto> result = orders.stream()
+			.map(OrderDto::new)
+			.collect(Collectors.toList());
+
+		String nextCursor = hasNext ? OrderCursor.encode(orders.get(orders.size() - 1).getId()) : null;
+		return new CursorResult<>(result, nextCursor);
+	}
+
 	// >> 19. JPA에서 DTO 직접 조회하는 방법
 	// orderItems의 경우 order와 N:1 관계를 가지므로, join하면 데이터가 증가한다.
 	// 그래서 1:1관계는 그냥 그대로 가져오지만, orderItem은 하나하나 매칭을 시켜주었다.
@@ -87,31 +158,162 @@ public class OrderApiController {
 	}
 
 
+	// >> 27. v4 simple-orders 와 같이 결과 캐시 사용 ( 주문 / 취소 커밋 시 무효화 )
 	@GetMapping("/api/v5/orders")
 	public List<OrderQueryDto> ordersV5() {
-		return orderQueryRepository.findAllByDto_optimization();
+		return orderQueryResultCache.get("v5-orders", orderQueryRepository::findAllByDto_optimization);
 	}
 
 	// >> 22. 다 받는 DTO를 만들어 쿼리 한 번에 해결
 	// 쿼리 한 번에 다 가지고 오지만 중복 문제 발생 ( 페이징 불가 )
 	// 장점 : 쿼리 1개,  단점 : 쿼리 짜집기 필요, 페이징 불가
+	// >> 23-2. order id 순으로 정렬해서 OrderFlatAssembler로 한 번에 묶는다. ( groupingBy, HashMap 제거 )
+	//          주문 id를 먼저 페이징하면 페이징도 가능 ( 쿼리 2번 )
 	@GetMapping("/api/v6/orders")
-	public List<OrderQueryDto> ordersV6() {
-		List<OrderFlatDto> flats = orderQueryRepository.findAllByDto_flat();
-
-		// flats 중복을 제거
-		return flats.stream()
-			// 실행순서: mapping -> groupingBy -> entrySet -> stream
-			// collect grouping을 통해서 orderFlatDto를 orderQueryDto로
-			.collect(Collectors.groupingBy(o -> new OrderQueryDto(o.getOrderId(), o.getName(), o.getOrderDate(), o.getOrderStatus(), o.getAddress()),
-				Collectors.mapping(o -> new OrderItemQueryDto(o.getOrderId(), o.getItemName(), o.getOrderPrice(), o.getCount()), Collectors.toList())
-			)).entrySet().stream()
-			.map(e -> new OrderQueryDto(e.getKey().getOrderId(),
-				e.getKey().getName(), e.getKey().getOrderDate(), e.getKey().getOrderStatus(),
-				e.getKey().getAddress(), e.getValue()))
+	public List<OrderQueryDto> ordersV6(
+		@RequestParam(value = "offset", defaultValue = "0") int offset,
+		@RequestParam(value = "limit", defaultValue = "100") int limit
+	) {
+		checkPage(offset, limit);
+		return orderQueryRepository.findAllByDto_flatGrouped(offset, limit);
+	}
+
+	// >> 40. 주문 목록 read model ( order_summary 한 테이블, 조인 / N+1 없음 )
+	// 주문상품은 저장된 json 을 그대로 응답에 넣는다. ( 다시 파싱하지 않음 )
+	// v3.2 와 같은 키셋 페이징, 회원 이름 / 주문 상태로 검색 가능
+	@GetMapping("/api/v7/orders")
+	public CursorResult<OrderSummaryDto> ordersV7(
+		@RequestParam(value = "after", required = false) String after,
+		@RequestParam(value = "limit", defaultValue = "100") int limit,
+		@RequestParam(value = "memberName", required = false) String memberName,
+		@RequestParam(value = "orderStatus", required = false) OrderStatus orderStatus
+	) {
+		OrderSearch orderSearch = new OrderSearch();
+		orderSearch.setMemberName(memberName);
+		orderSearch.setOrderStatus(orderStatus);
+
+		Long afterId = OrderCursor.decode(after);
+		checkPageLimit(limit);
+		List<OrderSummary> summaries = orderSummaryRepository.findAfter(afterId, orderSearch, limit + 1);
+		boolean hasNext = summaries.size() > limit;
+		if (hasNext) {
+			summaries = summaries.subList(0, limit);
+		}
+
+		List<OrderSummaryDto> result = summaries.stream()
+			.map(OrderSummaryDto::new)
 			.collect(Collectors.toList());
+
+		String nextCursor = hasNext ? OrderCursor.encode(summaries.get(summaries.size() - 1).getOrderId()) : null;
+		return new CursorResult<>(result, nextCursor);
+	}
+
+	// >> 15-4. 잘못된 커서 / offset / limit 은 500 이 아니라 400
+	@ExceptionHandler(InvalidPageRequestException.class)
+	public ResponseEntity<String> invalidPageRequest(InvalidPageRequestException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
+	}
+
+	private static void checkPage(int offset, int limit) {
+		if (offset < 0) {
+			throw new InvalidPageRequestException("offset 은 0 이상이어야 합니다.");
+		}
+		checkPageLimit(limit);
+	}
+
+	private static void checkPageLimit(int limit) {
+		if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+			throw new InvalidPageRequestException("limit 은 1 ~ " + MAX_PAGE_LIMIT + " 사이여야 합니다.");
+		}
+	}
+
+	// >> 24. 주문 전체 export ( NDJSON 스트리밍 )
+	// 주문 1건을 한 줄의 json으로 바로 응답에 써 내려간다.
+	// List를 다 만든 다음 Jackson이 쓰는 v2~v6와 달리 첫 바이트가 바로 나가고 힙 사용량도 일정하다.
+	@GetMapping(value = "/api/orders/export", produces = NDJSON)
+	public void exportOrders(HttpServletResponse response) throws IOException {
+		response.setContentType(NDJSON);
+		response.setCharacterEncoding("UTF-8");
+
+		ObjectWriter writer = objectMapper.writerFor(OrderQueryDto.class);
+		OutputStream out = response.getOutputStream();
+		try {
+			orderQueryRepository.streamAllByDto_flat(order -> {
+				try {
+					out.write(writer.writeValueAsBytes(order));
+					out.write('\n');
+				} catch (IOException e) {
+					// 클라이언트가 끊기면 커서 조회도 같이 중단
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		out.flush();
+	}
+
+	// ===================
+	// 장바구니 주문에서 사용
+	// ===================
+	@Data
+	static class CheckoutRequest {
+		@NotNull
+		private Long memberId;
+		@NotEmpty
+		@Valid
+		private List<CheckoutLine> lines;
+	}
+
+	@Data
+	static class CheckoutLine {
+		@NotNull
+		private Long itemId;
+		@Positive
+		private int count;
+	}
+
+	@Data
+	@AllArgsConstructor
+	static class CheckoutResponse {
+		private Long orderId;
 	}
 
+	// ===================
+	// v7에서 사용
+	// ===================
+	@Data
+	static class OrderSummaryDto {
+
+		private Long orderId;
+		private String name;
+		private LocalDateTime orderDate;
+		private OrderStatus orderStatus;
+		private Address address;
+		private long totalPrice;
+		@JsonRawValue
+		private String orderItems;    // [{itemId, itemName, orderPrice, count}, ...]
+
+		public OrderSummaryDto(OrderSummary summary) {
+			this.orderId = summary.getOrderId();
+			this.name = summary.getMemberName();
+			this.orderDate = summary.getOrderDate();
+			this.orderStatus = summary.getStatus();
+			this.address = summary.getAddress();
+			this.totalPrice = summary.getTotalPrice();
+			this.orderItems = summary.getOrderItems();
+		}
+	}
+
+	// ===================
+	// v3.2, v7에서 사용
+	// ===================
+	@Data
+	@AllArgsConstructor
+	static class CursorResult<T> {
+		private List<T> data;
+		private String nextCursor;
+	}
 
 	// ===================
 	// v2에서 사용
@@ -0,0 +1,44 @@
+package com.jpabook.jpashop.api;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// >> 15-3. 키셋 페이징용 커서
+// 클라이언트에게는 내부 키(orderId)를 그대로 노출하지 않고 불투명한 문자열로 내려준다.
+// ( 나중에 정렬 키가 바뀌어도 api 스펙은 그대로 유지 가능 )
+final class OrderCursor {
+
+	private static final String PREFIX = "o:";
+	private static final String INVALID_CURSOR = "잘못된 커서입니다.";
+
+	private OrderCursor() {
+	}
+
+	static String encode(Long orderId) {
+		String raw = PREFIX + orderId;
+		return Base64.getUrlEncoder().withoutPadding()
+			.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// 커서가 없으면 첫 페이지 ( null 반환 ), 형식이 잘못되면 InvalidPageRequestException
+	static Long decode(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return null;
+		}
+		String raw;
+		try {
+			raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidPageRequestException(INVALID_CURSOR, e);
+		}
+
+		if (!raw.startsWith(PREFIX)) {
+			throw new InvalidPageRequestException(INVALID_CURSOR);
+		}
+		try {
+			return Long.valueOf(raw.substring(PREFIX.length()));
+		} catch (NumberFormatException e) {
+			throw new InvalidPageRequestException(INVALID_CURSOR, e);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.jpabook.jpashop.api;
+
+import com.jpabook.jpashop.service.OrderIntake;
+import com.jpabook.jpashop.service.OrderIntakeFullException;
+import com.jpabook.jpashop.service.OrderTicket;
+import com.jpabook.jpashop.service.OrderTicketStatus;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.time.LocalDateTime;
+
+// >> 37. 비동기 주문 접수
+// 주문을 바로 처리하지 않고 접수표만 돌려준다. ( 202 Accepted )
+// 처리 결과는 접수표 id 로 조회 ( ACCEPTED -> DONE / FAILED )
+// 대기열이 가득 차면 503 + Retry-After 로 잠시 후 다시 보내도록 한다.
+@RestController
+@RequiredArgsConstructor
+public class OrderIntakeApiController {
+
+	private final OrderIntake orderIntake;
+
+	@PostMapping("/api/orders/intake")
+	public ResponseEntity<TicketResponse> submit(@RequestBody @Valid IntakeRequest request) {
+		OrderTicket ticket = orderIntake.submit(request.getMemberId(), request.getItemId(), request.getCount());
+		return ResponseEntity.status(HttpStatus.ACCEPTED)
+			.header(HttpHeaders.LOCATION, "/api/orders/intake/" + ticket.getId())
+			.body(new TicketResponse(ticket));
+	}
+
+	@GetMapping("/api/orders/intake/{ticketId}")
+	public ResponseEntity<TicketResponse> ticket(@PathVariable("ticketId") String ticketId) {
+		OrderTicket ticket = orderIntake.findTicket(ticketId);
+		if (ticket == null) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(new TicketResponse(ticket));
+	}
+
+	@ExceptionHandler(OrderIntakeFullException.class)
+	public ResponseEntity<String> intakeFull(OrderIntakeFullException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+			.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+			.body(e.getMessage());
+	}
+
+	@Data
+	static class IntakeRequest {
+		@NotNull
+		private Long memberId;
+		@NotNull
+		private Long itemId;
+		@Positive
+		private int count;
+	}
+
+	@Data
+	static class TicketResponse {
+		private String ticketId;
+		private OrderTicketStatus status;
+		private Long orderId;
+		private String message;
+		private LocalDateTime acceptedAt;
+		private LocalDateTime completedAt;
+
+		public TicketResponse(OrderTicket ticket) {
+			// status 를 먼저 읽어야 DONE 일 때 orderId 가 보인다.
+			this.status = ticket.getStatus();
+			this.ticketId = ticket.getId();
+			this.orderId = ticket.getOrderId();
+			this.message = ticket.getMessage();
+			this.acceptedAt = ticket.getAcceptedAt();
+			this.completedAt = ticket.getCompletedAt();
+		}
+	}
+}
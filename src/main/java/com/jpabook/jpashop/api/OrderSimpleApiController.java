@@ -4,6 +4,7 @@ import com.jpabook.jpashop.domain.Address;
 import com.jpabook.jpashop.domain.Order;
 import com.jpabook.jpashop.domain.OrderStatus;
 import com.jpabook.jpashop.repository.OrderRepository;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
 import com.jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import com.jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
 import lombok.Data;
@@ -21,6 +22,7 @@ public class OrderSimpleApiController {
 
 	private final OrderRepository orderRepository;
 	private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+	private final OrderQueryResultCache orderQueryResultCache;
 
 
 	/*
@@ -62,9 +64,10 @@ public class OrderSimpleApiController {
 	}
 
 	// >> 08. v4: JPA에서 DTO로 바로 조회
+	// >> 27. 여러 화면에서 polling 하므로 결과 캐시 사용 ( 주문 / 취소 커밋 시 무효화 )
 	@GetMapping("/api/v4/simple-orders")
 	public List<OrderSimpleQueryDto> ordersV4() {
-		return orderSimpleQueryRepository.findOrderDtos();
+		return orderQueryResultCache.get("v4-simple-orders", orderSimpleQueryRepository::findOrderDtos);
 	}
 
 
@@ -0,0 +1,96 @@
+package com.jpabook.jpashop.api;
+
+import com.jpabook.jpashop.repository.SalesReportRow;
+import com.jpabook.jpashop.repository.order.revenue.OrderRevenueRepository;
+import com.jpabook.jpashop.repository.order.revenue.RevenueByDayDto;
+import com.jpabook.jpashop.repository.order.revenue.RevenueByMemberDto;
+import com.jpabook.jpashop.repository.order.revenue.RevenueByStatusDto;
+import com.jpabook.jpashop.service.SalesReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// >> 38. 매출 리포트 ( 기간 기본값 : 최근 30일 )
+// 예) /api/reports/revenue/days?from=2021-01-01&to=2021-01-31
+@RestController
+@RequiredArgsConstructor
+public class ReportApiController {
+
+	private static final int DEFAULT_DAYS = 30;
+
+	private final OrderRevenueRepository orderRevenueRepository;
+	private final SalesReportService salesReportService;
+
+	@GetMapping("/api/reports/revenue/status")
+	public List<RevenueByStatusDto> revenueByStatus(
+		@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+		@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+		return orderRevenueRepository.findRevenueByStatus(fromOrDefault(from, to), toOrDefault(to));
+	}
+
+	@GetMapping("/api/reports/revenue/members")
+	public List<RevenueByMemberDto> revenueByMember(
+		@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+		@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+		@RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+		return orderRevenueRepository.findTopMembers(fromOrDefault(from, to), toOrDefault(to), Math.min(Math.max(limit, 1), 100));
+	}
+
+	@GetMapping("/api/reports/revenue/days")
+	public List<RevenueByDayDto> revenueByDay(
+		@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+		@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+		return orderRevenueRepository.findRevenueByDay(fromOrDefault(from, to), toOrDefault(to));
+	}
+
+	// >> 39. 판매 리포트 ( 집계 테이블만 읽음 )
+	//  - by=item, id 있음 : 상품 한 개의 시간별(unit=hour) / 일별(unit=day) 판매
+	//  - by=item, id 없음 : 기간 중 많이 팔린 상품
+	//  - by=member, id 있음 : 회원 한 명의 일별 구매
+	//  - by=member, id 없음 : 기간 중 많이 구매한 회원
+	// 예) /api/reports/sales?by=item&id=1&unit=hour&from=2021-01-01&to=2021-01-07
+	@GetMapping("/api/reports/sales")
+	public List<SalesReportRow> sales(
+		@RequestParam(value = "by", defaultValue = "item") String by,
+		@RequestParam(value = "id", required = false) Long id,
+		@RequestParam(value = "unit", defaultValue = "day") String unit,
+		@RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+		@RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+		@RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+		LocalDate start = fromOrDefault(from, to);
+		LocalDate end = toOrDefault(to);
+		int max = Math.min(Math.max(limit, 1), 100);
+
+		if ("member".equals(by)) {
+			return id != null
+				? salesReportService.memberDaily(id, start, end)
+				: salesReportService.topMembers(start, end, max);
+		}
+		if (!"item".equals(by)) {
+			throw new IllegalArgumentException("by 는 item 또는 member 입니다.");
+		}
+		if (id == null) {
+			return salesReportService.topItems(start, end, max);
+		}
+		return "hour".equals(unit)
+			? salesReportService.itemHourly(id, start, end)
+			: salesReportService.itemDaily(id, start, end);
+	}
+
+	private LocalDate toOrDefault(LocalDate to) {
+		return to != null ? to : LocalDate.now();
+	}
+
+	private LocalDate fromOrDefault(LocalDate from, LocalDate to) {
+		return from != null ? from : toOrDefault(to).minusDays(DEFAULT_DAYS - 1);
+	}
+}
@@ -0,0 +1,77 @@
+package com.jpabook.jpashop.api;
+
+import com.jpabook.jpashop.repository.OrderSearchQueryCache;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// >> 25-3. 성능 관련 캐시 통계 확인용 API
+@RestController
+@RequiredArgsConstructor
+public class StatsApiController {
+
+	private final OrderSearchQueryCache orderSearchQueryCache;
+	private final EntityManagerFactory emf;
+
+	// 주문 검색 템플릿 캐시 hit / miss ( miss는 조건 조합 수 만큼만 발생해야 정상 )
+	@GetMapping("/api/stats/order-search")
+	public QueryCacheStats orderSearchStats() {
+		return new QueryCacheStats(
+			orderSearchQueryCache.getHitCount(),
+			orderSearchQueryCache.getMissCount(),
+			orderSearchQueryCache.getTemplateCount());
+	}
+
+	// >> 26-1. 2차 캐시 region 별 hit ratio ( cache 프로파일에서만 값이 나온다 )
+	@GetMapping("/api/stats/cache")
+	public List<CacheRegionStats> cacheStats() {
+		SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+		Statistics statistics = sessionFactory.getStatistics();
+
+		List<CacheRegionStats> result = new ArrayList<>();
+		if (!sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled() || !statistics.isStatisticsEnabled()) {
+			return result;
+		}
+
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			CacheRegionStatistics region;
+			try {
+				region = statistics.getDomainDataRegionStatistics(regionName);
+			} catch (IllegalArgumentException e) {
+				continue;   // 엔티티 / 컬렉션 region 이 아닌 경우 ( query, timestamps )
+			}
+			long hit = region.getHitCount();
+			long miss = region.getMissCount();
+			double hitRatio = hit + miss == 0 ? 0 : (double) hit / (hit + miss);
+			result.add(new CacheRegionStats(regionName, hit, miss, region.getPutCount(), hitRatio));
+		}
+		return result;
+	}
+
+	@Data
+	@AllArgsConstructor
+	static class QueryCacheStats {
+		private long hitCount;
+		private long missCount;
+		private int templateCount;
+	}
+
+	@Data
+	@AllArgsConstructor
+	static class CacheRegionStats {
+		private String region;
+		private long hitCount;
+		private long missCount;
+		private long putCount;
+		private double hitRatio;
+	}
+}
@@ -44,6 +44,7 @@ public class ItemController {
     public String list(Model model) {
         List<Item> items = itemService.findItems();
         model.addAttribute("items", items);
+        model.addAttribute("stocks", itemService.getStockQuantities(items));   // >> 33. 분할 재고는 샤드 합계
 
         return "items/itemList";
     }
@@ -60,7 +61,7 @@ public class ItemController {
         form.setId(item.getId());
         form.setName(item.getName());
         form.setPrice(item.getPrice());
-        form.setStockQuantity(item.getStockQuantity());
+        form.setStockQuantity(itemService.getStockQuantity(itemId));
         form.setAuthor(item.getAuthor());
         form.setIsbn(item.getIsbn());
 
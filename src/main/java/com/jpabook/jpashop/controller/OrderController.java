@@ -1,12 +1,13 @@
 package com.jpabook.jpashop.controller;
 
 import com.jpabook.jpashop.domain.Member;
-import com.jpabook.jpashop.domain.Order;
 import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.domain.summary.OrderSummary;
 import com.jpabook.jpashop.repository.OrderSearch;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
 import com.jpabook.jpashop.service.ItemService;
 import com.jpabook.jpashop.service.MemberService;
-import com.jpabook.jpashop.service.OrderService;
+import com.jpabook.jpashop.service.OrderFacade;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -16,14 +17,17 @@ import java.util.List;
 @Controller
 public class OrderController {
 
-    private final OrderService orderService;
+    private final OrderFacade orderFacade;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OrderSummaryRepository orderSummaryRepository;
 
-    public OrderController(OrderService orderService, MemberService memberService, ItemService itemService) {
-        this.orderService = orderService;
+    public OrderController(OrderFacade orderFacade, MemberService memberService, ItemService itemService,
+                           OrderSummaryRepository orderSummaryRepository) {
+        this.orderFacade = orderFacade;
         this.memberService = memberService;
         this.itemService = itemService;
+        this.orderSummaryRepository = orderSummaryRepository;
     }
 
     @GetMapping("/order")
@@ -42,7 +46,7 @@ public class OrderController {
                         @RequestParam("itemId") Long itemId,
                         @RequestParam("count") int count) {
 
-        orderService.order(memberId, itemId, count);
+        orderFacade.order(memberId, itemId, count);    // 재고 충돌 시 재시도
 
         return "redirect:/orders";
     }
@@ -50,7 +54,8 @@ public class OrderController {
     @GetMapping("/orders")
     public String orderList(@ModelAttribute("orderSearch")OrderSearch orderSearch,
                             Model model) {
-        List<Order> orders = orderService.findOrders(orderSearch);
+        // >> 40. 주문 목록 read model 한 테이블만 조회 ( 최대 1000건 )
+        List<OrderSummary> orders = orderSummaryRepository.findAfter(null, orderSearch, 1000);
         model.addAttribute("orders", orders);
 
         return "order/orderList";
@@ -59,7 +64,7 @@ public class OrderController {
     // orderList.html에 javascript 부분에서 해당 링크 호출
     @PostMapping("/orders/{orderId}/cancel")
     public String cancelOrder(@PathVariable("orderId") Long orderId) {
-        orderService.cancelOrder(orderId);
+        orderFacade.cancelOrder(orderId);
 
         return "redirect:/orders";
     }
@@ -0,0 +1,31 @@
+package com.jpabook.jpashop.datagen;
+
+import lombok.Getter;
+
+// >> 43. 만든 row 수와 id 시작값 ( 각 테이블의 id 는 시작값부터 연속, 주문상품만 주문 당 maxItemsPerOrder 칸씩 )
+@Getter
+public class DataGenResult {
+
+	private final long firstMemberId;
+	private final long firstItemId;
+	private final long firstOrderId;
+	private final long members;
+	private final long items;
+	private final long orders;
+	private final long orderItems;
+	private final long elapsedMillis;
+	private final long ordersPerSecond;
+
+	DataGenResult(long firstMemberId, long firstItemId, long firstOrderId,
+				  long members, long items, long orders, long orderItems, long elapsedMillis) {
+		this.firstMemberId = firstMemberId;
+		this.firstItemId = firstItemId;
+		this.firstOrderId = firstOrderId;
+		this.members = members;
+		this.items = items;
+		this.orders = orders;
+		this.orderItems = orderItems;
+		this.elapsedMillis = elapsedMillis;
+		this.ordersPerSecond = orders * 1000 / Math.max(elapsedMillis, 1);
+	}
+}
@@ -0,0 +1,47 @@
+package com.jpabook.jpashop.datagen;
+
+import com.jpabook.jpashop.service.OrderSummaryRebuilder;
+import com.jpabook.jpashop.service.SalesReportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+// >> 43. --spring.profiles.active=datagen 으로 띄우면 InitDb 대신 jpashop.datagen 설정대로 데이터를 만든다.
+// 예) --spring.profiles.active=datagen --jpashop.datagen.orders=10000000 --jpashop.datagen.threads=8
+// JDBC 로 넣은 주문은 이벤트가 없으므로 매출 집계, 주문 목록 read model 은 다 넣은 후 다시 만든다.
+// ( 상품 검색, 회원 이름 색인은 ApplicationReadyEvent 에서 만들어지므로 이 뒤에 반영된다 )
+@Slf4j
+@Component
+@Profile("datagen")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class DataGenRunner implements ApplicationRunner {
+
+	private final DataGenerator dataGenerator;
+	private final SalesReportService salesReportService;
+	private final OrderSummaryRebuilder orderSummaryRebuilder;
+	private final Environment environment;
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		// 설정이 많아서 @Value 대신 jpashop.datagen.* 를 한 번에 바인딩
+		DataGenSpec spec = Binder.get(environment)
+			.bind("jpashop.datagen", DataGenSpec.class)
+			.orElseGet(DataGenSpec::new);
+		dataGenerator.generate(spec);
+
+		if (spec.isRebuildReadModels()) {
+			long start = System.currentTimeMillis();
+			salesReportService.rebuild();
+			orderSummaryRebuilder.rebuild();
+			log.info("read models rebuilt. elapsed={}ms", System.currentTimeMillis() - start);
+		}
+	}
+}
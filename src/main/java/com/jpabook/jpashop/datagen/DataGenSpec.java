@@ -0,0 +1,40 @@
+package com.jpabook.jpashop.datagen;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+// >> 43. 성능 테스트용 데이터 생성 설정 ( jpashop.datagen.* )
+// 같은 seed 면 스레드 수, chunk 크기와 상관없이 같은 데이터가 만들어진다. ( id 시작값만 다를 수 있음 )
+@Data
+public class DataGenSpec {
+
+	private long seed = 42;
+
+	private int members = 10_000;
+	private int items = 1_000;
+	private long orders = 100_000;
+
+	// 인기 분포 ( Zipf 지수, 0 이면 균등 ) - 앞 번호 상품 / 회원일수록 주문이 몰린다.
+	private double itemSkew = 1.0;
+	private double memberSkew = 0.5;
+
+	// 주문 당 상품 수 ( min 개에서 시작해서 extraItemRatio 확률로 한 개씩 더, 최대 max 개 )
+	private int minItemsPerOrder = 1;
+	private int maxItemsPerOrder = 5;
+	private double extraItemRatio = 0.5;
+
+	// 취소 주문 비율
+	private double cancelRatio = 0.1;
+
+	// 주문일은 endDate 0시 이전 days 일 안에 흩어진다. ( endDate 가 없으면 내일 )
+	private int days = 365;
+	private LocalDate endDate;
+
+	private int threads = 4;
+	private int chunkSize = 10_000;     // 스레드 하나가 한 트랜잭션에 넣는 row 수 ( 주문은 주문 수 )
+	private int batchSize = 1_000;      // JDBC batch 크기
+
+	// 다 넣은 후 매출 집계, 주문 목록 read model 을 다시 만들지
+	private boolean rebuildReadModels = true;
+}
@@ -0,0 +1,387 @@
+package com.jpabook.jpashop.datagen;
+
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// >> 43. 성능 테스트용 대량 데이터 생성 ( 회원, 상품(책), 배송, 주문, 주문상품 )
+// 엔티티를 거치지 않고 JDBC batch insert, chunk 마다 별도 커넥션 / 트랜잭션으로 여러 스레드가 나눠서 넣는다.
+//  - 주문 하나하나가 ( seed, 주문 번호 ) 로 만든 자기 난수를 쓰므로 스레드 수, chunk 크기와 상관없이 결과가 같다.
+//  - id 는 엔티티 시퀀스에서 필요한 만큼 next value 한 번으로 잡으므로 JPA 로 저장하는 row 와 겹치지 않는다. ( reserveIds 참고 )
+//  - 재고는 차감하지 않고, 매출 집계 / read model / 검색 색인은 직접 채우지 않는다. ( DataGenRunner 참고 )
+@Slf4j
+@Component
+public class DataGenerator {
+
+	private static final String INSERT_MEMBER =
+		"insert into member (member_id, name, normalized_name, city, street, zipcode) values (?, ?, ?, ?, ?, ?)";
+	private static final String INSERT_BOOK =
+		"insert into item (dtype, item_id, name, price, stock_quantity, author, isbn, version, stock_shard_count)" +
+			" values ('B', ?, ?, ?, ?, ?, ?, 0, 0)";
+	private static final String INSERT_DELIVERY =
+		"insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)";
+	private static final String INSERT_ORDER =
+		"insert into orders (order_id, member_id, delivery_id, order_date, status, total_price) values (?, ?, ?, ?, ?, ?)";
+	private static final String INSERT_ORDER_ITEM =
+		"insert into order_item (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)";
+
+	private static final String[] CITIES = {"서울", "부산", "대구", "인천", "광주", "대전", "진주"};
+
+	// 같은 seed 라도 회원 / 상품 / 주문이 서로 다른 난수열을 쓰도록 섞는 값
+	private static final long MEMBER_SALT = 1;
+	private static final long ITEM_SALT = 2;
+	private static final long ORDER_SALT = 3;
+
+	private static final int STOCK_QUANTITY = 1_000_000;
+	// 주문일로부터 이 기간이 지난 주문은 배송 완료
+	private static final long DELIVERY_DAYS = 2;
+
+	private final DataSource dataSource;
+	private final OrderQueryResultCache orderQueryResultCache;
+
+	public DataGenerator(DataSource dataSource, OrderQueryResultCache orderQueryResultCache) {
+		this.dataSource = dataSource;
+		this.orderQueryResultCache = orderQueryResultCache;
+	}
+
+	public DataGenResult generate(DataGenSpec spec) throws InterruptedException {
+		validate(spec);
+		long start = System.nanoTime();
+
+		long orders = spec.getOrders();
+		int maxLines = spec.getMaxItemsPerOrder();
+		long firstMemberId;
+		long firstItemId;
+		long firstDeliveryId;
+		long firstOrderId;
+		long firstOrderItemId;
+		try {
+			try (Connection connection = dataSource.getConnection()) {
+				firstMemberId = reserveIds(connection, "member_seq", spec.getMembers());
+				firstItemId = reserveIds(connection, "item_seq", spec.getItems());
+				firstDeliveryId = reserveIds(connection, "delivery_seq", orders);
+				firstOrderId = reserveIds(connection, "orders_seq", orders);
+				firstOrderItemId = reserveIds(connection, "order_item_seq", orders * maxLines);
+			}
+		} catch (SQLException e) {
+			throw new IllegalStateException("id reservation failed", e);
+		}
+
+		int[] prices = prices(spec);
+		ZipfSampler itemSampler = new ZipfSampler(spec.getItems(), spec.getItemSkew());
+		ZipfSampler memberSampler = new ZipfSampler(spec.getMembers(), spec.getMemberSkew());
+		LocalDateTime end = (spec.getEndDate() == null ? LocalDate.now().plusDays(1) : spec.getEndDate()).atStartOfDay();
+
+		OrderIds ids = new OrderIds(firstMemberId, firstItemId, firstDeliveryId, firstOrderId, firstOrderItemId);
+		AtomicLong orderItems = new AtomicLong();
+		ExecutorService executor = Executors.newFixedThreadPool(spec.getThreads());
+		try {
+			// 주문이 참조하므로 회원, 상품을 먼저 다 넣는다.
+			runChunks(executor, spec.getMembers(), spec.getChunkSize(),
+				(connection, from, to) -> insertMembers(connection, spec, firstMemberId, from, to));
+			runChunks(executor, spec.getItems(), spec.getChunkSize(),
+				(connection, from, to) -> insertBooks(connection, spec, prices, firstItemId, from, to));
+			runChunks(executor, orders, spec.getChunkSize(), (connection, from, to) ->
+				orderItems.addAndGet(insertOrders(connection, spec, ids, prices, itemSampler, memberSampler, end, from, to)));
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		}
+
+		// >> 27. chunk 마다 자기 커넥션으로 이미 커밋했으므로 ( 스프링 트랜잭션 밖 ) 다 넣은 뒤 바로 주문 목록 결과 캐시 무효화
+		orderQueryResultCache.invalidate();
+
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+		DataGenResult result = new DataGenResult(firstMemberId, firstItemId, firstOrderId,
+			spec.getMembers(), spec.getItems(), orders, orderItems.get(), elapsedMillis);
+		log.info("data generated. members={}, items={}, orders={}, orderItems={}, threads={}, elapsed={}ms, ordersPerSecond={}",
+			result.getMembers(), result.getItems(), result.getOrders(), result.getOrderItems(), spec.getThreads(),
+			elapsedMillis, result.getOrdersPerSecond());
+		return result;
+	}
+
+	private void validate(DataGenSpec spec) {
+		if (spec.getMembers() <= 0 || spec.getItems() <= 0 || spec.getOrders() < 0) {
+			throw new IllegalArgumentException("members, items must be positive and orders must not be negative");
+		}
+		if (spec.getMinItemsPerOrder() <= 0 || spec.getMaxItemsPerOrder() < spec.getMinItemsPerOrder()
+			|| spec.getMaxItemsPerOrder() > spec.getItems()) {
+			throw new IllegalArgumentException("items per order must be between 1 and items: "
+				+ spec.getMinItemsPerOrder() + " ~ " + spec.getMaxItemsPerOrder());
+		}
+		if (spec.getThreads() <= 0 || spec.getChunkSize() <= 0 || spec.getBatchSize() <= 0 || spec.getDays() <= 0) {
+			throw new IllegalArgumentException("threads, chunkSize, batchSize, days must be positive");
+		}
+	}
+
+	// 시퀀스에서 count 개의 연속된 id 를 잡는다. ( pooled-lo 라 시퀀스 값 자체가 id 범위의 시작 )
+	// next value 한 번으로 범위를 잡도록 그 동안만 increment 를 count 로 늘렸다가 원래 값으로 돌린다.
+	//  - next value 후 restart 로 옮기면 그 사이에 JPA 가 받은 범위와 겹칠 수 있다.
+	//  - increment 를 늘린 동안 JPA 가 next value 를 받아도 그 범위는 건너뛰므로 겹치지 않는다. ( 빈 id 만 생긴다 )
+	//    JPA 는 받은 값부터 allocationSize 개를 쓰므로 increment 는 원래 값보다 작게 줄이지 않는다.
+	//  - 생성기끼리 increment 를 바꾸는 순서가 섞이지 않도록 synchronized
+	private synchronized long reserveIds(Connection connection, String sequence, long count) throws SQLException {
+		long increment;
+		try (PreparedStatement statement = connection.prepareStatement(
+			"select increment from information_schema.sequences where sequence_name = ?")) {
+			statement.setString(1, sequence.toUpperCase(Locale.ROOT));
+			try (ResultSet rs = statement.executeQuery()) {
+				if (!rs.next()) {
+					throw new IllegalStateException("sequence not found: " + sequence);
+				}
+				increment = rs.getLong(1);
+			}
+		}
+
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("alter sequence " + sequence + " increment by " + Math.max(count, increment));
+			try {
+				try (ResultSet rs = statement.executeQuery("select next value for " + sequence)) {
+					rs.next();
+					return rs.getLong(1);
+				}
+			} finally {
+				statement.execute("alter sequence " + sequence + " increment by " + increment);
+			}
+		}
+	}
+
+	private int[] prices(DataGenSpec spec) {
+		int[] prices = new int[spec.getItems()];
+		for (int i = 0; i < prices.length; i++) {
+			prices[i] = 1000 * (1 + random(spec, ITEM_SALT, i).nextInt(50));
+		}
+		return prices;
+	}
+
+	private void insertMembers(Connection connection, DataGenSpec spec, long firstId, long from, long to) throws SQLException {
+		try (BatchInsert insert = new BatchInsert(connection, INSERT_MEMBER, spec.getBatchSize())) {
+			for (long i = from; i < to; i++) {
+				CityAddress address = new CityAddress(random(spec, MEMBER_SALT, i));
+				// 이름은 유니크 ( normalized_name ) 하므로 id 를 붙인다.
+				String name = "member-" + (firstId + i);
+				insert.add(firstId + i, name, name, address.city, address.street, address.zipcode);
+			}
+		}
+	}
+
+	private void insertBooks(Connection connection, DataGenSpec spec, int[] prices, long firstId, long from, long to) throws SQLException {
+		try (BatchInsert insert = new BatchInsert(connection, INSERT_BOOK, spec.getBatchSize())) {
+			for (long i = from; i < to; i++) {
+				long id = firstId + i;
+				insert.add(id, "book-" + id, prices[(int) i], STOCK_QUANTITY,
+					"author-" + (i % 1000), "datagen-isbn-" + id);
+			}
+		}
+	}
+
+	private long insertOrders(Connection connection, DataGenSpec spec, OrderIds ids, int[] prices,
+							  ZipfSampler itemSampler, ZipfSampler memberSampler, LocalDateTime end,
+							  long from, long to) throws SQLException {
+		long spanSeconds = spec.getDays() * 86_400L;
+		LocalDateTime delivered = end.minusDays(DELIVERY_DAYS);
+		int[] picked = new int[spec.getMaxItemsPerOrder()];
+		long lines = 0;
+
+		// 외래키 순서대로 배송 -> 주문 -> 주문상품 ( 주문 batchSize 건마다 세 테이블을 같이 보낸다 )
+		try (BatchInsert orderItems = new BatchInsert(connection, INSERT_ORDER_ITEM, Integer.MAX_VALUE);
+			 BatchInsert orders = new BatchInsert(connection, INSERT_ORDER, Integer.MAX_VALUE);
+			 BatchInsert deliveries = new BatchInsert(connection, INSERT_DELIVERY, Integer.MAX_VALUE)) {
+
+			for (long i = from; i < to; i++) {
+				SplittableRandom random = random(spec, ORDER_SALT, i);
+				long orderId = ids.order + i;
+				long memberId = ids.member + memberSampler.sample(random);
+				LocalDateTime orderDate = end.minusSeconds(1 + random.nextLong(spanSeconds));
+				boolean canceled = random.nextDouble() < spec.getCancelRatio();
+
+				int count = spec.getMinItemsPerOrder();
+				while (count < spec.getMaxItemsPerOrder() && random.nextDouble() < spec.getExtraItemRatio()) {
+					count++;
+				}
+
+				long totalPrice = 0;
+				for (int j = 0; j < count; j++) {
+					int item = pickDistinct(itemSampler, random, picked, j);
+					int quantity = 1 + random.nextInt(3);
+					totalPrice += (long) prices[item] * quantity;
+					orderItems.add(ids.orderItem + i * spec.getMaxItemsPerOrder() + j, orderId, ids.item + item, prices[item], quantity);
+				}
+				lines += count;
+
+				String deliveryStatus = !canceled && orderDate.isBefore(delivered) ? "COMP" : "READY";
+				CityAddress address = new CityAddress(random);
+				deliveries.add(ids.delivery + i, address.city, address.street, address.zipcode, deliveryStatus);
+				orders.add(orderId, memberId, ids.delivery + i, Timestamp.valueOf(orderDate),
+					canceled ? "CANCEL" : "ORDER", totalPrice);
+
+				if ((i - from + 1) % spec.getBatchSize() == 0 || i == to - 1) {
+					deliveries.flush();
+					orders.flush();
+					orderItems.flush();
+				}
+			}
+		}
+		return lines;
+	}
+
+	// 한 주문에 같은 상품이 두 줄 들어가지 않도록 다시 뽑는다. ( 몇 번 해도 겹치면 다음 순위 상품 )
+	private int pickDistinct(ZipfSampler sampler, SplittableRandom random, int[] picked, int size) {
+		int item = sampler.sample(random);
+		for (int attempt = 0; contains(picked, size, item); attempt++) {
+			item = attempt < 8 ? sampler.sample(random) : (item + 1) % sampler.size();
+		}
+		picked[size] = item;
+		return item;
+	}
+
+	private boolean contains(int[] values, int size, int value) {
+		for (int i = 0; i < size; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private SplittableRandom random(DataGenSpec spec, long salt, long index) {
+		return new SplittableRandom(mix(mix(spec.getSeed() * 31 + salt) + index));
+	}
+
+	// splitmix64 finalizer ( 이웃한 번호의 난수열이 서로 겹치지 않게 )
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	// [0, total) 을 chunkSize 씩 나눠서 커넥션 하나 / 트랜잭션 하나로 실행
+	private void runChunks(ExecutorService executor, long total, int chunkSize, ChunkWork work) throws InterruptedException {
+		List<Future<?>> futures = new ArrayList<>();
+		for (long from = 0; from < total; from += chunkSize) {
+			long chunkFrom = from;
+			long chunkTo = Math.min(from + chunkSize, total);
+			futures.add(executor.submit(() -> {
+				inTransaction(connection -> work.run(connection, chunkFrom, chunkTo));
+				return null;
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			futures.forEach(future -> future.cancel(true));
+			throw new IllegalStateException("data generation failed", e.getCause());
+		}
+	}
+
+	private void inTransaction(ConnectionWork work) throws SQLException {
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try {
+				work.run(connection);
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface ChunkWork {
+		void run(Connection connection, long from, long to) throws SQLException;
+	}
+
+	@FunctionalInterface
+	private interface ConnectionWork {
+		void run(Connection connection) throws SQLException;
+	}
+
+	private static class OrderIds {
+		private final long member;
+		private final long item;
+		private final long delivery;
+		private final long order;
+		private final long orderItem;
+
+		OrderIds(long member, long item, long delivery, long order, long orderItem) {
+			this.member = member;
+			this.item = item;
+			this.delivery = delivery;
+			this.order = order;
+			this.orderItem = orderItem;
+		}
+	}
+
+	private static class CityAddress {
+		private final String city;
+		private final String street;
+		private final String zipcode;
+
+		CityAddress(SplittableRandom random) {
+			this.city = CITIES[random.nextInt(CITIES.length)];
+			this.street = "거리 " + random.nextInt(1000);
+			this.zipcode = String.format("%05d", random.nextInt(100_000));
+		}
+	}
+
+	// batchSize 줄마다 executeBatch, close 할 때 남은 줄
+	private static class BatchInsert implements AutoCloseable {
+		private final PreparedStatement statement;
+		private final int batchSize;
+		private int pending;
+
+		BatchInsert(Connection connection, String sql, int batchSize) throws SQLException {
+			this.statement = connection.prepareStatement(sql);
+			this.batchSize = batchSize;
+		}
+
+		void add(Object... values) throws SQLException {
+			for (int i = 0; i < values.length; i++) {
+				statement.setObject(i + 1, values[i]);
+			}
+			statement.addBatch();
+			if (++pending >= batchSize) {
+				flush();
+			}
+		}
+
+		void flush() throws SQLException {
+			if (pending > 0) {
+				statement.executeBatch();
+				pending = 0;
+			}
+		}
+
+		@Override
+		public void close() throws SQLException {
+			try {
+				flush();
+			} finally {
+				statement.close();
+			}
+		}
+	}
+}
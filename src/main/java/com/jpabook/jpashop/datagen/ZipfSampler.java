@@ -0,0 +1,33 @@
+package com.jpabook.jpashop.datagen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// >> 43. 0 ~ size-1 중 k 번째가 1 / (k+1)^exponent 에 비례하는 확률로 뽑힌다. ( exponent 0 이면 균등 )
+// 누적 분포를 한 번 만들어두고 이진 탐색하므로 여러 스레드가 같이 써도 된다.
+final class ZipfSampler {
+
+	private final double[] cumulative;
+
+	ZipfSampler(int size, double exponent) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("size must be positive: " + size);
+		}
+		cumulative = new double[size];
+		double sum = 0;
+		for (int k = 0; k < size; k++) {
+			sum += exponent == 0 ? 1 : 1 / Math.pow(k + 1, exponent);
+			cumulative[k] = sum;
+		}
+	}
+
+	int sample(SplittableRandom random) {
+		double u = random.nextDouble() * cumulative[cumulative.length - 1];
+		int index = Arrays.binarySearch(cumulative, u);
+		return index >= 0 ? index : Math.min(-index - 1, cumulative.length - 1);
+	}
+
+	int size() {
+		return cumulative.length;
+	}
+}
@@ -2,6 +2,9 @@ package com.jpabook.jpashop.domain;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
@@ -9,7 +12,10 @@ import javax.persistence.*;
 @Getter @Setter
 public class Delivery {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "delivery_seq")
+    @GenericGenerator(name = "delivery_seq", strategy = PooledSequenceGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "delivery_seq"))
     @Column(name = "delivery_id")
     private Long id;
 
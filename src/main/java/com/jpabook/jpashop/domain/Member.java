@@ -1,23 +1,44 @@
 package com.jpabook.jpashop.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_member_normalized_name", columnNames = "normalized_name"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "member")  // >> 26. 2차 캐시
 @Getter @Setter
 public class Member {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "member_seq")
+    @GenericGenerator(name = "member_seq", strategy = PooledSequenceGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
 
     private String name;
 
+    // >> 29. 중복 가입 검사용 이름 ( 앞뒤 공백 제거 + 소문자 )
+    // 유니크 인덱스가 걸려 있어서 DB가 중복을 막아준다. ( setName 할 때 같이 바뀜 )
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(name = "normalized_name")
+    private String normalizedName;
+
     @Embedded
     private Address address;
 
@@ -26,4 +47,13 @@ public class Member {
     @OneToMany(mappedBy = "member")
     private List<Order> orders = new ArrayList<>();
 
+    public void setName(String name) {
+        this.name = name;
+        this.normalizedName = normalizeName(name);
+    }
+
+    public static String normalizeName(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+
 }
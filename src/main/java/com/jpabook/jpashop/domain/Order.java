@@ -1,8 +1,14 @@
 package com.jpabook.jpashop.domain;
 
+import com.jpabook.jpashop.domain.event.OrderCanceledEvent;
+import com.jpabook.jpashop.domain.event.OrderPlacedEvent;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -10,11 +16,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_order_date", columnList = "order_date"))
 @Getter @Setter
 public class Order {
 
-    @Id @GeneratedValue
+    // >> 35. 시퀀스를 미리 여러 개 받아두고 메모리에서 id 할당 ( PooledSequenceGenerator )
+    @Id
+    @GeneratedValue(generator = "order_seq")
+    @GenericGenerator(name = "order_seq", strategy = PooledSequenceGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "orders_seq"))
     @Column(name = "order_id")
     private Long id;
 
@@ -36,6 +46,15 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
 
+    // >> 38. 주문 금액 ( 주문 생성 시 한 번 계산해서 저장 )
+    // 목록 / 매출 집계에서 orderItems 를 읽지 않고 이 컬럼만 sum 한다.
+    private long totalPrice;
+
+    // >> 40. 아직 발행하지 않은 도메인 이벤트 ( OrderService 가 꺼내서 발행 )
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private final List<Object> domainEvents = new ArrayList<>();
+
     //== 연관관계 편의 메소드==// => 연관관계에 속한 것들 끼리 서로 등록해주기 위한 메소드
     public void setMember(Member member) {  // 멤버 셋팅할 때
         this.member = member;               // 주문의 멤버를 지정하고
@@ -65,6 +84,8 @@ public class Order {
         }
         order.setStatus(OrderStatus.ORDER);
         order.setOrderDate(LocalDateTime.now());
+        order.setTotalPrice(order.calculateTotalPrice());
+        order.domainEvents.add(new OrderPlacedEvent(order));
 
         return order;
     }
@@ -74,33 +95,45 @@ public class Order {
         주문 취소
      */
     public void cancel() {
+        cancel(true);
+    }
+
+    // >> 32. restoreStock 이 false 면 재고는 엔티티로 돌려놓지 않는다. ( atomic : OrderService 가 조건부 update 로 반환 )
+    public void cancel(boolean restoreStock) {
         if(delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송 완료된 상품은 취소가 불가능합니다.");
         }
 
+        // 주문 금액은 그대로 둔다. ( 취소 금액은 상태별 매출에서 CANCEL 로 집계 )
         this.setStatus(OrderStatus.CANCEL);
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel();
+        if (restoreStock) {
+            for (OrderItem orderItem : orderItems) {
+                orderItem.cancel();
+            }
         }
+        domainEvents.add(new OrderCanceledEvent(this));
+    }
+
+    // 등록된 이벤트를 꺼내고 비운다.
+    public List<Object> pullDomainEvents() {
+        List<Object> events = new ArrayList<>(domainEvents);
+        domainEvents.clear();
+        return events;
     }
 
     //== 주문 조회 ==//
     /*
-        전체 주문 가격 조회
+        전체 주문 가격 계산 ( 주문 생성 시에만 사용, 조회는 저장된 totalPrice )
      */
-    public int getTotalPrice() {
-        int totalPrice = 0;
+    private long calculateTotalPrice() {
+        long totalPrice = 0;
         for(OrderItem orderItem : orderItems) {
             totalPrice += orderItem.getTotalPrice();    // 주문가격과 수량을 곱하기 위해 getTotalPrice 사용
         }
 
         // 위의 문장은 아래의 Stream 으로 해석될 수 있다.
-        // orderItems.stream().mapToInt(OrderItem::getTotalPrice).sum();
+        // orderItems.stream().mapToLong(OrderItem::getTotalPrice).sum();
 
         return totalPrice;
     }
-
-
-
-
 }
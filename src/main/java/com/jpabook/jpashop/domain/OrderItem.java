@@ -3,14 +3,23 @@ package com.jpabook.jpashop.domain;
 import com.jpabook.jpashop.domain.item.Item;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 @Entity
 @Getter @Setter
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "order_item_seq")
+    @GenericGenerator(name = "order_item_seq", strategy = PooledSequenceGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "order_item_seq"))
     @Column(name = "order_item_id")
     private Long id;
 
@@ -25,6 +34,16 @@ public class OrderItem {
     private int orderPrice; // 주문 가격
     private int count;  // 주문 수량
 
+    // >> 33. 재고를 차감한 샤드 번호 ( 분할 재고 상품만, 여러 샤드에서 뺐으면 첫 번째 )
+    private Integer stockShardNo;
+
+    // 여러 샤드에서 나눠서 뺀 경우만 샤드 번호 -> 뺀 수량 ( 샤드 하나면 비어있고 stockShardNo 에서 count 만큼 )
+    @ElementCollection
+    @CollectionTable(name = "order_item_stock_shard", joinColumns = @JoinColumn(name = "order_item_id"))
+    @MapKeyColumn(name = "shard_no")
+    @Column(name = "quantity")
+    private Map<Integer, Integer> stockShardCounts = new HashMap<>();
+
     //== 생성 메소드 ==//
     public static OrderItem createOrderItem(Item item, int orderPrice, int count) {
         OrderItem orderItem = new OrderItem();
@@ -36,16 +55,47 @@ public class OrderItem {
         return orderItem;
     }
 
+    // >> 32. 재고를 DB 에서 이미 차감한 경우 ( ItemRepository.decreaseStock ) 엔티티 재고는 건드리지 않는다.
+    public static OrderItem createStockReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
+    // >> 33. 분할 재고에서 뺀 내역 기록 ( StockShardRepository.decrease 의 반환값 )
+    public void reserveStockShards(Map<Integer, Integer> taken) {
+        this.stockShardNo = taken.keySet().iterator().next();
+        if (taken.size() > 1) {
+            this.stockShardCounts.putAll(taken);
+        }
+    }
+
+    // 취소 시 샤드마다 돌려놓을 수량 ( 분할 재고가 아니면 비어있음 )
+    public Map<Integer, Integer> getReservedStockShards() {
+        if (stockShardNo == null) {
+            return Collections.emptyMap();
+        }
+        if (stockShardCounts.isEmpty()) {
+            return Collections.singletonMap(stockShardNo, count);
+        }
+        return stockShardCounts;
+    }
+
     //== 비즈니스 로직 ==//
     public void cancel() {
+        if (stockShardNo != null) {
+            return; // 분할 재고는 OrderService 에서 샤드로 돌려놓는다.
+        }
         getItem().addStock(count);
     }
 
     //== 조회 로직 ==//
     /*
-        주문 상품 전체 가격 조회
+        주문 상품 전체 가격 조회 ( >> 38. int 곱셈은 넘칠 수 있으므로 long )
      */
-    public int getTotalPrice() {
-        return getOrderPrice() * count;
+    public long getTotalPrice() {
+        return (long) getOrderPrice() * count;
     }
 }
@@ -0,0 +1,39 @@
+package com.jpabook.jpashop.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+// >> 35. 엔티티 별 시퀀스 + pooled-lo 옵티마이저
+// 그냥 @GeneratedValue 를 쓰면 hibernate_sequence 하나를 모든 엔티티가 같이 쓰고 persist 할 때마다
+// 'call next value' 를 한 번씩 날린다. ( 주문 1건 = 주문, 주문상품, 배송 시퀀스 조회 3번 + insert )
+// pooled-lo 는 시퀀스 값 하나를 받아서 [값, 값 + allocationSize) 범위의 id 를 메모리에서 나눠주므로
+// allocationSize 번 persist 할 때 시퀀스 조회는 한 번뿐이다.
+// allocationSize 는 jpashop.id.allocation_size ( spring.jpa.properties ) 로 바꿀 수 있다.
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String NAME = "com.jpabook.jpashop.domain.PooledSequenceGenerator";
+    public static final String ALLOCATION_SIZE_SETTING = "jpashop.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings()
+                .get(ALLOCATION_SIZE_SETTING);
+
+        // 엔티티에서 increment_size 를 직접 준 경우는 그 값 사용
+        if (!params.containsKey(INCREMENT_PARAM)) {
+            params.setProperty(INCREMENT_PARAM,
+                    allocationSize == null ? String.valueOf(DEFAULT_ALLOCATION_SIZE) : allocationSize.toString());
+        }
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,16 @@
+package com.jpabook.jpashop.domain.event;
+
+import lombok.Getter;
+
+// >> 40. 회원 정보 변경 ( MemberService.update 에서 발행 )
+@Getter
+public class MemberUpdatedEvent {
+
+    private final Long memberId;
+    private final String name;
+
+    public MemberUpdatedEvent(Long memberId, String name) {
+        this.memberId = memberId;
+        this.name = name;
+    }
+}
@@ -0,0 +1,15 @@
+package com.jpabook.jpashop.domain.event;
+
+import com.jpabook.jpashop.domain.Order;
+import lombok.Getter;
+
+// >> 40. 주문 취소 ( Order.cancel 에서 등록, OrderService 가 발행 )
+@Getter
+public class OrderCanceledEvent {
+
+    private final Order order;
+
+    public OrderCanceledEvent(Order order) {
+        this.order = order;
+    }
+}
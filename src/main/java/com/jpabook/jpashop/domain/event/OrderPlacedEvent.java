@@ -0,0 +1,15 @@
+package com.jpabook.jpashop.domain.event;
+
+import com.jpabook.jpashop.domain.Order;
+import lombok.Getter;
+
+// >> 40. 주문 생성 ( Order.createOrder 에서 등록, OrderService 가 발행 )
+@Getter
+public class OrderPlacedEvent {
+
+    private final Order order;
+
+    public OrderPlacedEvent(Order order) {
+        this.order = order;
+    }
+}
@@ -2,6 +2,7 @@ package com.jpabook.jpashop.domain.item;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.util.StringUtils;
 
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -14,4 +15,8 @@ public class Book extends Item {
     private String author;
     private String isbn;
 
+    // >> 36. isbn 은 유니크 ( uk_item_isbn ) 하므로 화면에서 비워 둔 값은 null 로 ( isbn 없는 책은 여러 권 )
+    public void setIsbn(String isbn) {
+        this.isbn = StringUtils.hasText(isbn) ? isbn.trim() : null;
+    }
 }
@@ -1,21 +1,33 @@
 package com.jpabook.jpashop.domain.item;
 
 import com.jpabook.jpashop.Category;
+import com.jpabook.jpashop.domain.PooledSequenceGenerator;
 import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_item_isbn", columnNames = "isbn"))  // >> 36. 대량 등록 시 isbn 으로 upsert ( 같은 isbn 은 한 권 )
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item")   // >> 26. 2차 캐시 ( Book, Album, Movie 도 같은 region )
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE) // 상속관계 전략
 @DiscriminatorColumn(name = "dtype")    // book이면 어떻게 할거야 이런 것
 @Getter @Setter
 public abstract class Item {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = "item_seq")
+    @GenericGenerator(name = "item_seq", strategy = PooledSequenceGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "item_seq"))
     @Column(name = "item_id")
     private Long id;
 
@@ -23,9 +35,22 @@ public abstract class Item {
     private int price;
     private int stockQuantity;
 
+    // >> 32. 낙관적 락 ( 동시에 같은 상품 재고를 고치면 나중에 커밋하는 쪽이 실패 -> OrderFacade 에서 재시도 )
+    @Version
+    private long version;
+
+    // >> 33. 재고 분할 개수 ( 0 이면 stockQuantity 하나로 관리 )
+    // 분할된 상품은 stockQuantity 를 쓰지 않고 ( 0 ) StockShard 합계를 재고로 본다. ( ItemService.getStockQuantity )
+    // 합계는 주문마다 바뀌므로 2차 캐시에 들어가는 엔티티에는 담지 않는다.
+    private int stockShardCount;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
+    public boolean isStockSharded() {
+        return stockShardCount > 0;
+    }
+
     // Entity 자체가 해결할 수 있는 것들은
     // Entity 안에서 비즈니스 로직을 짜는 것이 좋다.
     //== 비즈니스 로직 ==//
@@ -34,7 +59,7 @@ public abstract class Item {
         Stock 증가
      */
     public void addStock(int quantity) {
-        this.stockQuantity = quantity;
+        this.stockQuantity += quantity;
     }
 
     /*
@@ -0,0 +1,38 @@
+package com.jpabook.jpashop.domain.item;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+// >> 33. 재고 분할 카운터
+// 주문이 몰리는 상품은 재고를 여러 row 로 나눠서 주문마다 다른 row 를 update 하게 한다.
+// ( item row 하나에 락이 몰리지 않음, 전체 재고는 샤드 합계 )
+@Entity
+@Table(name = "stock_shard",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_shard_item_shard_no", columnNames = {"item_id", "shard_no"}))
+@Getter @Setter
+public class StockShard {
+
+    @Id @GeneratedValue
+    @Column(name = "stock_shard_id")
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    @Column(name = "shard_no")
+    private int shardNo;
+
+    private int quantity;
+
+    //== 생성 메소드 ==//
+    public static StockShard createStockShard(Item item, int shardNo, int quantity) {
+        StockShard stockShard = new StockShard();
+        stockShard.setItem(item);
+        stockShard.setShardNo(shardNo);
+        stockShard.setQuantity(quantity);
+        return stockShard;
+    }
+}
@@ -0,0 +1,50 @@
+package com.jpabook.jpashop.domain.outbox;
+
+import com.jpabook.jpashop.domain.PooledSequenceGenerator;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// >> 41. 외부 시스템으로 보낼 이벤트 ( transactional outbox )
+// 주문과 같은 트랜잭션에서 insert 되고, OutboxRelay 가 모아서 보낸 뒤 deliveredAt 을 채운다.
+@Entity
+@Table(name = "outbox_event",
+        indexes = @Index(name = "idx_outbox_event_pending", columnList = "delivered_at, outbox_event_id"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OutboxEvent {
+
+    // id 를 메모리에서 할당해야 insert 가 JDBC batch 로 묶인다.
+    @Id
+    @GeneratedValue(generator = "outbox_event_seq")
+    @GenericGenerator(name = "outbox_event_seq", strategy = PooledSequenceGenerator.NAME,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "outbox_event_seq"))
+    @Column(name = "outbox_event_id")
+    private Long id;
+
+    private String aggregateType;
+    private Long aggregateId;
+    private String eventType;
+
+    @Lob
+    private String payload;     // json ( 주문상품 수만큼 길어진다 )
+
+    private LocalDateTime createdAt;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    public OutboxEvent(String aggregateType, Long aggregateId, String eventType, String payload) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = LocalDateTime.now();
+    }
+}
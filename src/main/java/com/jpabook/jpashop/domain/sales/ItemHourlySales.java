@@ -0,0 +1,43 @@
+package com.jpabook.jpashop.domain.sales;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// >> 39. 상품 / 시간별 판매 집계 ( 주문, 취소 트랜잭션에서 같이 증감, 취소분을 뺀 순매출 )
+// 한 row 에 update 가 몰리지 않도록 slot 별로 나눈다. ( 분할 재고는 샤드 번호, 아니면 주문 id % SLOTS, 리포트는 slot 합계 )
+@Entity
+@Table(name = "item_hourly_sales")
+@IdClass(ItemHourlySales.Key.class)
+@Getter
+public class ItemHourlySales {
+
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Id
+    @Column(name = "sales_hour")
+    private LocalDateTime salesHour;
+
+    @Id
+    private int slot;
+
+    private long orderCount;
+    private long units;
+    private long revenue;
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long itemId;
+        private LocalDateTime salesHour;
+        private int slot;
+    }
+}
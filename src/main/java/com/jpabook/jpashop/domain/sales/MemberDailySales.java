@@ -0,0 +1,38 @@
+package com.jpabook.jpashop.domain.sales;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// >> 39. 회원 / 일별 구매 집계 ( 주문, 취소 트랜잭션에서 같이 증감, 취소분을 뺀 순매출 )
+@Entity
+@Table(name = "member_daily_sales")
+@IdClass(MemberDailySales.Key.class)
+@Getter
+public class MemberDailySales {
+
+    @Id
+    @Column(name = "member_id")
+    private Long memberId;
+
+    @Id
+    @Column(name = "sales_day")
+    private LocalDate salesDay;
+
+    private long orderCount;
+    private long units;
+    private long revenue;
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long memberId;
+        private LocalDate salesDay;
+    }
+}
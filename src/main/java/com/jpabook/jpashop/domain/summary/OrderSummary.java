@@ -0,0 +1,55 @@
+package com.jpabook.jpashop.domain.summary;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.jpabook.jpashop.domain.Address;
+import com.jpabook.jpashop.domain.OrderStatus;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// >> 40. 주문 목록 조회 전용 테이블 ( CQRS read model )
+// 목록에 필요한 주문 / 회원 / 배송 / 주문상품 / 상품 정보를 한 row 에 펼쳐서 저장한다. ( 조회 시 조인 없음 )
+// 주문 / 취소 / 회원 변경 이벤트로 같은 트랜잭션에서 갱신된다. ( OrderSummaryProjector )
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_status", columnList = "status, order_id"),
+        @Index(name = "idx_order_summary_member", columnList = "member_id, order_id")})
+@Getter @Setter
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    private String memberName;
+
+    // 회원 이름 검색용 ( Member.normalizeName )
+    @JsonIgnore
+    @Column(name = "member_normalized_name")
+    private String memberNormalizedName;
+
+    @Embedded
+    private Address address;    // 배송지
+
+    private LocalDateTime orderDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private OrderStatus status;
+
+    private long totalPrice;
+
+    // 대표상품 ( 첫 번째 주문상품, 주문 목록 화면용 )
+    private String firstItemName;
+    private int firstOrderPrice;
+    private int firstCount;
+
+    // 주문상품 전체 ( OrderSummaryLine 목록을 json 으로, 응답에 그대로 넣는다 )
+    @Lob
+    private String orderItems;
+}
@@ -0,0 +1,14 @@
+package com.jpabook.jpashop.querycount;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// >> 44. Hibernate 가 SQL 을 준비할 때마다 현재 스레드의 QueryCounter 에 기록 ( SQL 은 바꾸지 않는다 )
+// spring.jpa.properties.hibernate.session_factory.statement_inspector 로 등록
+public class QueryCountInspector implements StatementInspector {
+
+	@Override
+	public String inspect(String sql) {
+		QueryCounter.record(sql);
+		return sql;
+	}
+}
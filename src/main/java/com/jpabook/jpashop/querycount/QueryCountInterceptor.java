@@ -0,0 +1,43 @@
+package com.jpabook.jpashop.querycount;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// >> 44. 요청 하나 동안 실행된 SQL 을 세서 같은 모양이 repeatThreshold 번을 넘으면 호출 위치 stack trace 와 함께 경고
+// OSIV 로 응답을 쓰면서 일어나는 지연 로딩도 afterCompletion 전이므로 같이 센다.
+@Slf4j
+public class QueryCountInterceptor implements HandlerInterceptor {
+
+	private static final String COUNTER = QueryCountInterceptor.class.getName() + ".COUNTER";
+
+	private final int repeatThreshold;
+
+	public QueryCountInterceptor(int repeatThreshold) {
+		this.repeatThreshold = repeatThreshold;
+	}
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		String target = request.getMethod() + " " + request.getRequestURI();
+		QueryCounter counter = QueryCounter.start(repeatThreshold, shape ->
+			log.warn("N+1 의심 : 같은 SQL 이 {}번 넘게 실행됨. request={}, sql={}",
+				repeatThreshold, target, shape, new Throwable("SQL 실행 위치")));
+		request.setAttribute(COUNTER, counter);
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		QueryCounter counter = (QueryCounter) request.getAttribute(COUNTER);
+		if (counter == null) {
+			return;
+		}
+		counter.close();
+		request.removeAttribute(COUNTER);
+		log.debug("request={} {}, statements={}, selects={}",
+			request.getMethod(), request.getRequestURI(), counter.getStatementCount(), counter.getSelectCount());
+	}
+}
@@ -0,0 +1,24 @@
+package com.jpabook.jpashop.querycount;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// >> 44. 개발 환경에서만 요청 별 N+1 감지 ( jpashop.query-count.detect-enabled=true, dev 프로필에서 켜짐 )
+@Configuration
+@ConditionalOnProperty(name = "jpashop.query-count.detect-enabled", havingValue = "true")
+public class QueryCountWebConfig implements WebMvcConfigurer {
+
+	private final int repeatThreshold;
+
+	public QueryCountWebConfig(@Value("${jpashop.query-count.repeat-threshold:10}") int repeatThreshold) {
+		this.repeatThreshold = repeatThreshold;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new QueryCountInterceptor(repeatThreshold));
+	}
+}
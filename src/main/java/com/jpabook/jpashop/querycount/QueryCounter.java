@@ -0,0 +1,122 @@
+package com.jpabook.jpashop.querycount;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// >> 44. 현재 스레드에서 실행된 SQL 을 센다. ( QueryCountInspector 가 Hibernate 가 만든 SQL 마다 record 호출 )
+// try (QueryCounter counter = QueryCounter.start()) { ... counter.getSelectCount() }
+//  - 안쪽에서 다시 start 하면 바깥 카운터에도 같이 센다.
+//  - SQL 모양 ( 공백 정리, IN (?, ?, ...) 을 IN (...) 으로 ) 별 실행 횟수도 세서
+//    같은 모양이 repeatThreshold 번을 넘는 순간 onRepeat 을 한 번 부른다. ( N+1 의심 )
+//  - JdbcTemplate 등 Hibernate 를 거치지 않는 SQL 은 세지 않는다.
+public class QueryCounter implements AutoCloseable {
+
+	private static final ThreadLocal<QueryCounter> CURRENT = new ThreadLocal<>();
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern IN_LIST = Pattern.compile("in ?\\( ?\\?(?: ?, ?\\?)* ?\\)", Pattern.CASE_INSENSITIVE);
+
+	private final QueryCounter parent;
+	private final int repeatThreshold;
+	private final Consumer<String> onRepeat;
+	private final Map<String, Integer> shapes = new LinkedHashMap<>();
+
+	private int selectCount;
+	private int insertCount;
+	private int updateCount;
+	private int deleteCount;
+	private int statementCount;
+
+	private QueryCounter(QueryCounter parent, int repeatThreshold, Consumer<String> onRepeat) {
+		this.parent = parent;
+		this.repeatThreshold = repeatThreshold;
+		this.onRepeat = onRepeat;
+	}
+
+	public static QueryCounter start() {
+		return start(Integer.MAX_VALUE, shape -> { });
+	}
+
+	public static QueryCounter start(int repeatThreshold, Consumer<String> onRepeat) {
+		QueryCounter counter = new QueryCounter(CURRENT.get(), repeatThreshold, onRepeat);
+		CURRENT.set(counter);
+		return counter;
+	}
+
+	static void record(String sql) {
+		QueryCounter current = CURRENT.get();
+		if (current == null) {
+			return;
+		}
+		String shape = shapeOf(sql);
+		for (QueryCounter counter = current; counter != null; counter = counter.parent) {
+			counter.add(shape);
+		}
+	}
+
+	static String shapeOf(String sql) {
+		String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+		return IN_LIST.matcher(shape).replaceAll("in (...)");
+	}
+
+	private void add(String shape) {
+		statementCount++;
+		String keyword = shape.substring(0, Math.min(shape.length(), 7)).toLowerCase(Locale.ROOT);
+		if (keyword.startsWith("select") || keyword.startsWith("with")) {
+			selectCount++;
+		} else if (keyword.startsWith("insert")) {
+			insertCount++;
+		} else if (keyword.startsWith("update")) {
+			updateCount++;
+		} else if (keyword.startsWith("delete")) {
+			deleteCount++;
+		}
+
+		int count = shapes.merge(shape, 1, Integer::sum);
+		if (count == repeatThreshold + 1) {
+			onRepeat.accept(shape);
+		}
+	}
+
+	public int getSelectCount() {
+		return selectCount;
+	}
+
+	public int getInsertCount() {
+		return insertCount;
+	}
+
+	public int getUpdateCount() {
+		return updateCount;
+	}
+
+	public int getDeleteCount() {
+		return deleteCount;
+	}
+
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	// SQL 모양 별 실행 횟수 ( 처음 실행된 순서 )
+	public Map<String, Integer> getShapes() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(shapes));
+	}
+
+	// 바깥 카운터로 되돌린다. ( 순서가 꼬여서 안쪽 카운터가 남아 있으면 그대로 둔다 )
+	@Override
+	public void close() {
+		if (CURRENT.get() != this) {
+			return;
+		}
+		if (parent == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(parent);
+		}
+	}
+}
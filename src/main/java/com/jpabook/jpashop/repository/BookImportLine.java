@@ -0,0 +1,28 @@
+package com.jpabook.jpashop.repository;
+
+import lombok.Getter;
+import org.springframework.util.StringUtils;
+
+// >> 36. 대량 등록할 책 한 줄 ( isbn 이 같은 책이 있으면 수정, 없으면 등록 )
+@Getter
+public class BookImportLine {
+
+	private final String name;
+	private final int price;
+	private final int stockQuantity;
+	private final String author;
+	private final String isbn;
+
+	public BookImportLine(String name, int price, int stockQuantity, String author, String isbn) {
+		this.name = name;
+		this.price = price;
+		this.stockQuantity = stockQuantity;
+		this.author = author;
+		this.isbn = isbn == null ? null : isbn.trim();
+	}
+
+	// isbn 이 없으면 upsert 기준이 없으므로 건너뛴다.
+	public boolean isValid() {
+		return StringUtils.hasText(isbn) && StringUtils.hasText(name) && price >= 0 && stockQuantity >= 0;
+	}
+}
@@ -0,0 +1,49 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.Category;
+import com.jpabook.jpashop.domain.item.Item;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+@Repository
+public class CategoryRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // 부모부터 저장해야 자식 경로가 만들어진다.
+    public void save(Category category) {
+        em.persist(category);       // 시퀀스 전략이라 persist 시점에 id가 정해짐
+        category.updatePath();      // id가 생겼으므로 경로 계산 ( 변경감지로 반영 )
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    // >> 28-1. 하위 카테고리 전체에 속한 상품을 쿼리 한 번으로 조회
+    // 레벨마다, 노드마다 쿼리를 날리지 않고 path 인덱스로 하위 트리를 바로 찾는다.
+    public List<Item> findItemsInSubtree(Category category) {
+        return em.createQuery(
+                "select distinct i from Item i" +
+                        " join i.categories c" +
+                        " where c.path like :path", Item.class)
+                .setParameter("path", category.getPath() + "%")
+                .getResultList();
+    }
+
+    // >> 28-2. 하위 트리 전체 로딩
+    // 노드는 쿼리 1번으로 모두 영속성 컨텍스트에 올리고, child 컬렉션은 @BatchSize 로 100개씩 초기화한다.
+    // -> 노드 n개 트리를 1 + (n / 100) 번의 쿼리로 탐색 가능
+    public List<Category> findSubtree(Category root) {
+        return em.createQuery(
+                "select c from Category c" +
+                        " where c.path like :path" +
+                        " order by c.path", Category.class)
+                .setParameter("path", root.getPath() + "%")
+                .getResultList();
+    }
+}
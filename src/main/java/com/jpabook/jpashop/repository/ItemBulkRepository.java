@@ -0,0 +1,163 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.item.Item;
+import lombok.Getter;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// >> 36. 책 대량 등록 ( upsert by isbn )
+// persist 로 한 건씩 넣으면 영속성 컨텍스트에 쌓이고 flush 때마다 변경감지를 하므로
+// 1차 캐시가 없는 StatelessSession 의 커넥션으로 JDBC batch insert / update 를 한다.
+//  - chunk 마다 별도 트랜잭션 ( 커밋한 chunk 는 뒤에서 실패해도 남는다 )
+//  - id 는 Item 엔티티와 같은 generator ( pooled-lo item_seq ) 에서 받으므로 JPA 로 저장하는 상품과 겹치지 않는다.
+//  - 엔티티를 거치지 않으므로 2차 캐시, 검색 색인은 ItemImportService 가 chunk 마다 등록 / 수정한 상품 ( UpsertCount.itemIds ) 만 맞춘다.
+@Repository
+public class ItemBulkRepository {
+
+	private static final String FIND_BOOK_IDS =
+		"select item_id, isbn from item where dtype = 'B' and isbn in (%s)";
+
+	private static final String INSERT_BOOK =
+		"insert into item (dtype, item_id, name, price, stock_quantity, author, isbn, version, stock_shard_count)" +
+			" values ('B', ?, ?, ?, ?, ?, ?, 0, 0)";
+
+	// 재고가 분할된 상품은 stock_quantity 를 쓰지 않으므로 그대로 둔다.
+	private static final String UPDATE_BOOK =
+		"update item set name = ?, price = ?, author = ?, version = version + 1," +
+			" stock_quantity = case when stock_shard_count = 0 then ? else stock_quantity end" +
+			" where item_id = ?";
+
+	private final SessionFactoryImplementor sessionFactory;
+	private final IdentifierGenerator itemIdGenerator;
+
+	public ItemBulkRepository(EntityManagerFactory emf) {
+		this.sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+		this.itemIdGenerator = sessionFactory.getMetamodel().entityPersister(Item.class).getIdentifierGenerator();
+	}
+
+	// chunk 하나를 한 트랜잭션으로 ( 같은 isbn 이 여러 줄이면 마지막 줄만 쓰고 앞의 줄은 건너뛴 줄로 센다 )
+	public UpsertCount upsertBooks(List<BookImportLine> lines) {
+		Map<String, BookImportLine> byIsbn = new LinkedHashMap<>();
+		for (BookImportLine line : lines) {
+			byIsbn.put(line.getIsbn(), line);
+		}
+
+		StatelessSession session = sessionFactory.openStatelessSession();
+		Transaction tx = session.beginTransaction();
+		try {
+			UpsertCount count = session.doReturningWork(connection -> upsert(session, connection, byIsbn,
+				lines.size() - byIsbn.size()));
+			tx.commit();
+			return count;
+		} catch (RuntimeException e) {
+			if (tx.isActive()) {
+				tx.rollback();
+			}
+			throw e;
+		} finally {
+			session.close();
+		}
+	}
+
+	private UpsertCount upsert(StatelessSession session, Connection connection, Map<String, BookImportLine> byIsbn,
+							   int skipped) throws SQLException {
+
+		Map<String, Long> existing = findBookIds(connection, byIsbn.keySet());
+
+		List<Long> itemIds = new ArrayList<>(byIsbn.size());
+		int inserted = 0;
+		int updated = 0;
+		try (PreparedStatement insert = connection.prepareStatement(INSERT_BOOK);
+			 PreparedStatement update = connection.prepareStatement(UPDATE_BOOK)) {
+
+			for (BookImportLine line : byIsbn.values()) {
+				Long itemId = existing.get(line.getIsbn());
+				if (itemId == null) {
+					itemId = nextItemId(session);
+					insert.setLong(1, itemId);
+					insert.setString(2, line.getName());
+					insert.setInt(3, line.getPrice());
+					insert.setInt(4, line.getStockQuantity());
+					insert.setString(5, line.getAuthor());
+					insert.setString(6, line.getIsbn());
+					insert.addBatch();
+					inserted++;
+				} else {
+					update.setString(1, line.getName());
+					update.setInt(2, line.getPrice());
+					update.setString(3, line.getAuthor());
+					update.setInt(4, line.getStockQuantity());
+					update.setLong(5, itemId);
+					update.addBatch();
+					updated++;
+				}
+				itemIds.add(itemId);
+			}
+
+			if (inserted > 0) {
+				insert.executeBatch();
+			}
+			if (updated > 0) {
+				update.executeBatch();
+			}
+		}
+		return new UpsertCount(inserted, updated, skipped, itemIds);
+	}
+
+	private Map<String, Long> findBookIds(Connection connection, Collection<String> isbns) throws SQLException {
+		if (isbns.isEmpty()) {
+			return new HashMap<>();
+		}
+		String placeholders = String.join(",", Collections.nCopies(isbns.size(), "?"));
+		Map<String, Long> ids = new HashMap<>();
+		try (PreparedStatement select = connection.prepareStatement(String.format(FIND_BOOK_IDS, placeholders))) {
+			int index = 1;
+			for (String isbn : isbns) {
+				select.setString(index++, isbn);
+			}
+			try (ResultSet rs = select.executeQuery()) {
+				while (rs.next()) {
+					ids.put(rs.getString(2), rs.getLong(1));
+				}
+			}
+		}
+		return ids;
+	}
+
+	// 메모리에 받아둔 범위에서 꺼내고, 다 쓰면 이 세션 커넥션으로 시퀀스를 한 번 더 조회
+	private long nextItemId(StatelessSession session) {
+		return ((Number) itemIdGenerator.generate((SharedSessionContractImplementor) session, null)).longValue();
+	}
+
+	@Getter
+	public static class UpsertCount {
+		private final int inserted;
+		private final int updated;
+		private final int skipped;
+		private final List<Long> itemIds;	// 등록 / 수정한 상품 id
+
+		UpsertCount(int inserted, int updated, int skipped, List<Long> itemIds) {
+			this.inserted = inserted;
+			this.updated = updated;
+			this.skipped = skipped;
+			this.itemIds = itemIds;
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package com.jpabook.jpashop.repository;
 
+import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
 import com.jpabook.jpashop.domain.item.Item;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -27,6 +31,60 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    // >> 32. 재고 원자적 차감
+    // 엔티티로 읽고(select) 빼고 쓰는(update) 대신 조건부 update 한 번으로 처리한다.
+    // 재고가 모자라면 0건이 수정되므로 예외, 동시에 주문이 몰려도 재고가 음수가 되지 않는다.
+    // versioned : 낙관적 락으로 같은 상품을 수정하는 쪽도 충돌을 알 수 있도록 version 도 올린다.
+    public void decreaseStock(Item item, int count) {
+        int updated = em.createQuery(
+                "update versioned Item i" +
+                        " set i.stockQuantity = i.stockQuantity - :count" +
+                        " where i.id = :itemId" +
+                        " and i.stockQuantity >= :count")
+                .setParameter("count", count)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+
+        if (updated == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        detachStale(item);
+    }
+
+    // 취소된 재고 반환 ( atomic 방식, 분할 재고가 해제된 뒤 취소된 주문 )
+    public void increaseStock(Item item, int count) {
+        em.createQuery(
+                "update versioned Item i" +
+                        " set i.stockQuantity = i.stockQuantity + :count" +
+                        " where i.id = :itemId")
+                .setParameter("count", count)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+        detachStale(item);
+    }
+
+    // 벌크 update 는 영속성 컨텍스트를 거치지 않으므로 이미 읽어온 엔티티는 예전 재고 / version 을 들고 있다.
+    // 같은 트랜잭션에서 그 값으로 flush 하거나 재고를 읽지 않도록 분리하고 2차 캐시에서도 뺀다. ( 다음 조회는 DB 에서 )
+    // 아직 초기화되지 않은 프록시는 예전 값이 없으므로 그대로 둔다.
+    private void detachStale(Item item) {
+        if (Hibernate.isInitialized(item) && em.contains(item)) {
+            em.detach(item);
+        }
+        em.getEntityManagerFactory().getCache().evict(Item.class, item.getId());
+    }
+
+    // >> 33. 재고 분할 / 해제 시 다른 변경과 겹치지 않도록 item row 를 잠근다.
+    public Item findOneForUpdate(Long id) {
+        return em.find(Item.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    // >> 34. 장바구니 상품을 한 번에 조회
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
                 .getResultList();
@@ -0,0 +1,22 @@
+package com.jpabook.jpashop.repository;
+
+import lombok.Data;
+
+// >> 31. 상품 검색 결과 한 건 ( 인덱스에 들고 있는 값만으로 만든다 -> 검색 시 DB 조회 없음 )
+@Data
+public class ItemSearchHit {
+
+	private Long itemId;
+	private String type;	// B(책), A(앨범), M(영화)
+	private String name;
+	private int price;
+	private int score;
+
+	public ItemSearchHit(Long itemId, String type, String name, int price, int score) {
+		this.itemId = itemId;
+		this.type = type;
+		this.name = name;
+		this.price = price;
+		this.score = score;
+	}
+}
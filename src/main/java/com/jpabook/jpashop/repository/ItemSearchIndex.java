@@ -0,0 +1,447 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.item.Album;
+import com.jpabook.jpashop.domain.item.Book;
+import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.domain.item.Movie;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// >> 31. 상품 검색용 역색인 ( 메모리 )
+// 상품 이름, 책 저자 / isbn, 앨범 아티스트, 영화 감독을 단어(token)로 잘라서 단어 -> 상품 id 목록을 들고 있는다.
+//  - 마지막 단어는 접두어로 찾는다. ( 타이핑 중인 "jp" 로 "jpa" 를 찾는 type-ahead )
+//  - 점수 = 맞은 필드의 가중치 합 ( 이름 > 사람 이름 > isbn, 단어가 정확히 맞으면 2배 )
+//  - 모든 단어가 들어있는 상품만, 점수 순으로 offset ~ limit 만큼 ( 상위 N개만 heap 으로 골라서 전체 정렬 없음 )
+// 검색 결과에 필요한 값(이름, 가격)도 같이 들고 있으므로 검색 시 DB 를 전혀 조회하지 않는다.
+// 시작할 때 id 구간을 나눠서 병렬로 만들고, 상품 저장 / 수정 ( 대량 등록 포함 ) 이 커밋되면 그 상품만 고친다.
+@Slf4j
+@Component
+public class ItemSearchIndex {
+
+	static final int NAME_WEIGHT = 3;
+	static final int PERSON_WEIGHT = 2;	// author, artist, director
+	static final int ISBN_WEIGHT = 1;
+	static final int EXACT_BONUS = 2;
+	// 한 글자 접두어처럼 너무 많은 단어로 펼쳐지는 경우 ( Catalog.matchPrefix )
+	//  - 앞 단어들로 후보가 좁혀져 있으면 후보 상품의 단어만 본다. ( 결과가 빠지지 않음 )
+	//  - 접두어 하나만 검색하면 상품이 많이 달린 단어 순으로 이만큼만 펼친다. ( 알파벳 순으로 자르면 뒤쪽 단어는 아예 안 나옴 )
+	//    이때는 빠진 상품이 있을 수 있으므로 결과에 truncated 를 표시하고 total 은 최소 건수가 된다.
+	static final int MAX_PREFIX_TERMS = 64;
+	private static final int REBUILD_PAGE_SIZE = 1_000;
+
+	private static final Comparator<ItemSearchHit> RANKING = Comparator
+		.comparingInt(ItemSearchHit::getScore).reversed()
+		.thenComparing(ItemSearchHit::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+		.thenComparing(ItemSearchHit::getItemId);
+
+	private final EntityManagerFactory emf;
+	private final int rebuildThreads;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Catalog catalog = new Catalog();
+	private List<Doc> pending;	// rebuild 중에 커밋된 변경 ( rebuild 가 끝나면 다시 반영 )
+
+	public ItemSearchIndex(EntityManagerFactory emf,
+						   @Value("${jpashop.item-search.rebuild-threads:4}") int rebuildThreads) {
+		this.emf = emf;
+		this.rebuildThreads = rebuildThreads;
+	}
+
+	// id 범위를 rebuildThreads 개로 나눠서 구간마다 별도 EntityManager(커넥션)로 읽고 마지막에 합친다.
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		lock.writeLock().lock();
+		try {
+			pending = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		Catalog rebuilt = new Catalog();
+		try {
+			Object[] range = idRange();
+			if (range[0] != null) {
+				long min = (Long) range[0];
+				long max = (Long) range[1];
+				long span = (max - min) / rebuildThreads + 1;
+
+				ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads);
+				try {
+					List<CompletableFuture<Catalog>> futures = new ArrayList<>();
+					for (long from = min; from <= max; from += span) {
+						long rangeFrom = from;
+						long rangeTo = Math.min(from + span - 1, max);
+						futures.add(CompletableFuture.supplyAsync(() -> load(rangeFrom, rangeTo), executor));
+					}
+					for (CompletableFuture<Catalog> future : futures) {
+						rebuilt.merge(future.join());
+					}
+				} finally {
+					executor.shutdown();
+				}
+			}
+		} finally {
+			lock.writeLock().lock();
+			try {
+				for (Doc doc : pending) {
+					rebuilt.put(doc);
+				}
+				catalog = rebuilt;
+				pending = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		log.info("item search index built. items={}, terms={}, elapsed={}ms",
+			rebuilt.docs.size(), rebuilt.terms.size(), System.currentTimeMillis() - start);
+	}
+
+	// 상품 저장 / 수정 커밋 후
+	public void index(Item item) {
+		Doc doc = toDoc(item);
+		lock.writeLock().lock();
+		try {
+			catalog.put(doc);
+			if (pending != null) {
+				pending.add(doc);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// 엔티티를 거치지 않고 바뀐 상품 ( 대량 등록 chunk 커밋 후 ) : 그 상품만 다시 읽어서 고친다.
+	public void index(Collection<Long> itemIds) {
+		List<Doc> docs = new ArrayList<>(itemIds.size());
+		List<Long> ids = new ArrayList<>(itemIds);
+		EntityManager em = emf.createEntityManager();
+		try {
+			for (int from = 0; from < ids.size(); from += REBUILD_PAGE_SIZE) {
+				List<Item> items = em.createQuery("select i from Item i where i.id in :ids", Item.class)
+					.setParameter("ids", ids.subList(from, Math.min(from + REBUILD_PAGE_SIZE, ids.size())))
+					.getResultList();
+				for (Item item : items) {
+					docs.add(toDoc(item));
+				}
+				em.clear();
+			}
+		} finally {
+			em.close();
+		}
+
+		lock.writeLock().lock();
+		try {
+			for (Doc doc : docs) {
+				catalog.put(doc);
+				if (pending != null) {
+					pending.add(doc);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public ItemSearchResult search(String query, int offset, int limit) {
+		List<String> tokens = tokenize(query);
+		if (tokens.isEmpty()) {
+			return new ItemSearchResult(0, new ArrayList<>());
+		}
+
+		lock.readLock().lock();
+		try {
+			// 단어마다 ( 상품 id -> 점수 ), 마지막 단어는 앞 단어들로 좁힌 후보를 같이 넘긴다.
+			List<Map<Long, Integer>> matches = new ArrayList<>();
+			boolean truncated = false;
+			for (int i = 0; i < tokens.size(); i++) {
+				boolean last = i == tokens.size() - 1;
+				if (last && matches.isEmpty()) {
+					truncated = catalog.prefixTermCount(tokens.get(i)) > MAX_PREFIX_TERMS;
+				}
+				Map<Long, Integer> match = last
+					? catalog.matchPrefix(tokens.get(i), smallest(matches))
+					: catalog.matchExact(tokens.get(i));
+				if (match.isEmpty()) {
+					return new ItemSearchResult(0, new ArrayList<>());
+				}
+				matches.add(match);
+			}
+
+			// 가장 작은 목록을 기준으로 나머지 목록에 모두 있는 상품만, 점수 상위 offset + limit 개만 heap 에 남긴다.
+			matches.sort(Comparator.comparingInt(Map::size));
+			int top = Math.max(offset + limit, 1);
+			PriorityQueue<ItemSearchHit> heap = new PriorityQueue<>(RANKING.reversed());
+			int total = 0;
+			for (Map.Entry<Long, Integer> entry : matches.get(0).entrySet()) {
+				Integer score = score(matches, entry.getKey(), entry.getValue());
+				if (score == null) {
+					continue;
+				}
+				total++;
+				heap.offer(catalog.docs.get(entry.getKey()).toHit(score));
+				if (heap.size() > top) {
+					heap.poll();
+				}
+			}
+
+			List<ItemSearchHit> ranked = new ArrayList<>(heap);
+			ranked.sort(RANKING);
+			int from = Math.min(offset, ranked.size());
+			int to = Math.min(offset + limit, ranked.size());
+			return new ItemSearchResult(total, truncated, new ArrayList<>(ranked.subList(from, to)));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private Map<Long, Integer> smallest(List<Map<Long, Integer>> matches) {
+		return matches.stream().min(Comparator.comparingInt(Map::size)).orElse(null);
+	}
+
+	// 모든 단어 목록에 있으면 점수 합, 하나라도 없으면 null
+	private Integer score(List<Map<Long, Integer>> matches, Long itemId, int first) {
+		int score = first;
+		for (int i = 1; i < matches.size(); i++) {
+			Integer weight = matches.get(i).get(itemId);
+			if (weight == null) {
+				return null;
+			}
+			score += weight;
+		}
+		return score;
+	}
+
+	private Object[] idRange() {
+		EntityManager em = emf.createEntityManager();
+		try {
+			return em.createQuery("select min(i.id), max(i.id) from Item i", Object[].class)
+				.getSingleResult();
+		} finally {
+			em.close();
+		}
+	}
+
+	// [from, to] 구간의 상품을 id 순으로 페이지 단위로 읽어서 부분 색인을 만든다.
+	private Catalog load(long from, long to) {
+		Catalog partial = new Catalog();
+		EntityManager em = emf.createEntityManager();
+		try {
+			long lastId = from - 1;
+			while (true) {
+				List<Item> items = em.createQuery(
+						"select i from Item i" +
+							" where i.id > :lastId and i.id <= :to" +
+							" order by i.id", Item.class)
+					.setParameter("lastId", lastId)
+					.setParameter("to", to)
+					.setMaxResults(REBUILD_PAGE_SIZE)
+					.getResultList();
+				if (items.isEmpty()) {
+					break;
+				}
+				for (Item item : items) {
+					partial.put(toDoc(item));
+					lastId = item.getId();
+				}
+				em.clear();
+			}
+		} finally {
+			em.close();
+		}
+		return partial;
+	}
+
+	static Doc toDoc(Item item) {
+		Map<String, Integer> weights = new HashMap<>();
+		addTerms(weights, item.getName(), NAME_WEIGHT);
+
+		String type = null;
+		if (item instanceof Book) {
+			Book book = (Book) item;
+			type = "B";
+			addTerms(weights, book.getAuthor(), PERSON_WEIGHT);
+			addTerms(weights, book.getIsbn(), ISBN_WEIGHT);
+			// 하이픈 없이 입력한 isbn 도 찾을 수 있도록 숫자만 이어붙인 것도 넣는다.
+			String isbnDigits = String.join("", tokenize(book.getIsbn()));
+			if (!isbnDigits.isEmpty()) {
+				weights.merge(isbnDigits, ISBN_WEIGHT, Math::max);
+			}
+		} else if (item instanceof Album) {
+			type = "A";
+			addTerms(weights, ((Album) item).getArtist(), PERSON_WEIGHT);
+		} else if (item instanceof Movie) {
+			type = "M";
+			addTerms(weights, ((Movie) item).getDirector(), PERSON_WEIGHT);
+		}
+		return new Doc(item.getId(), type, item.getName(), item.getPrice(), weights);
+	}
+
+	private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+		for (String token : tokenize(text)) {
+			weights.merge(token, weight, Math::max);
+		}
+	}
+
+	// 소문자로 바꾸고 글자 / 숫자가 아닌 문자 기준으로 자른다.
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if (text == null) {
+			return tokens;
+		}
+		String lower = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lower.length(); i++) {
+			boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+			if (letter && start < 0) {
+				start = i;
+			} else if (!letter && start >= 0) {
+				tokens.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	// 색인에 들어간 상품 한 건 ( 수정 시 예전 단어를 지우기 위해 단어 목록도 들고 있음 )
+	static final class Doc {
+		private final Long itemId;
+		private final String type;
+		private final String name;
+		private final int price;
+		private final Map<String, Integer> weights;
+
+		Doc(Long itemId, String type, String name, int price, Map<String, Integer> weights) {
+			this.itemId = itemId;
+			this.type = type;
+			this.name = name;
+			this.price = price;
+			this.weights = weights;
+		}
+
+		ItemSearchHit toHit(int score) {
+			return new ItemSearchHit(itemId, type, name, price, score);
+		}
+	}
+
+	// 단어 -> ( 상품 id -> 가중치 ), 단어는 정렬되어 있어서 접두어 범위를 바로 찾을 수 있다.
+	private static final class Catalog {
+		private final NavigableMap<String, Map<Long, Integer>> terms = new TreeMap<>();
+		private final Map<Long, Doc> docs = new HashMap<>();
+
+		void put(Doc doc) {
+			Doc old = docs.put(doc.itemId, doc);
+			if (old != null) {
+				for (String term : old.weights.keySet()) {
+					Map<Long, Integer> ids = terms.get(term);
+					ids.remove(doc.itemId);
+					if (ids.isEmpty()) {
+						terms.remove(term);
+					}
+				}
+			}
+			doc.weights.forEach((term, weight) ->
+				terms.computeIfAbsent(term, t -> new HashMap<>()).put(doc.itemId, weight));
+		}
+
+		// 구간별로 만든 부분 색인 합치기 ( 구간이 겹치지 않으므로 같은 상품은 없다 )
+		void merge(Catalog other) {
+			docs.putAll(other.docs);
+			other.terms.forEach((term, ids) ->
+				terms.computeIfAbsent(term, t -> new HashMap<>()).putAll(ids));
+		}
+
+		Map<Long, Integer> matchExact(String token) {
+			Map<Long, Integer> result = new HashMap<>();
+			Map<Long, Integer> ids = terms.get(token);
+			if (ids != null) {
+				ids.forEach((id, weight) -> result.put(id, weight * EXACT_BONUS));
+			}
+			return result;
+		}
+
+		// 접두어로 시작하는 단어 수
+		int prefixTermCount(String prefix) {
+			return prefixRange(prefix).size();
+		}
+
+		// candidates : 앞 단어들에 맞은 상품 ( 단어가 하나면 null )
+		Map<Long, Integer> matchPrefix(String prefix, Map<Long, Integer> candidates) {
+			NavigableMap<String, Map<Long, Integer>> range = prefixRange(prefix);
+			if (range.size() <= MAX_PREFIX_TERMS) {
+				return expand(prefix, range.entrySet());
+			}
+			if (candidates != null) {
+				return scan(prefix, candidates.keySet());
+			}
+			return expand(prefix, mostFrequent(prefix, range));
+		}
+
+		private NavigableMap<String, Map<Long, Integer>> prefixRange(String prefix) {
+			return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+		}
+
+		private Map<Long, Integer> expand(String prefix, Collection<Map.Entry<String, Map<Long, Integer>>> entries) {
+			Map<Long, Integer> result = new HashMap<>();
+			for (Map.Entry<String, Map<Long, Integer>> entry : entries) {
+				int bonus = bonus(prefix, entry.getKey());
+				entry.getValue().forEach((id, weight) -> result.merge(id, weight * bonus, Math::max));
+			}
+			return result;
+		}
+
+		// 후보 상품이 가진 단어 중 접두어로 시작하는 것
+		private Map<Long, Integer> scan(String prefix, Collection<Long> candidates) {
+			Map<Long, Integer> result = new HashMap<>();
+			for (Long id : candidates) {
+				docs.get(id).weights.forEach((term, weight) -> {
+					if (term.startsWith(prefix)) {
+						result.merge(id, weight * bonus(prefix, term), Math::max);
+					}
+				});
+			}
+			return result;
+		}
+
+		// 상품이 많이 달린 단어 MAX_PREFIX_TERMS 개 ( 접두어와 같은 단어는 항상 포함 )
+		private List<Map.Entry<String, Map<Long, Integer>>> mostFrequent(
+			String prefix, NavigableMap<String, Map<Long, Integer>> range) {
+
+			Comparator<Map.Entry<String, Map<Long, Integer>>> frequency = Comparator
+				.comparing((Map.Entry<String, Map<Long, Integer>> entry) -> entry.getKey().equals(prefix))
+				.thenComparingInt(entry -> entry.getValue().size());
+			PriorityQueue<Map.Entry<String, Map<Long, Integer>>> heap = new PriorityQueue<>(frequency);
+			for (Map.Entry<String, Map<Long, Integer>> entry : range.entrySet()) {
+				heap.offer(entry);
+				if (heap.size() > MAX_PREFIX_TERMS) {
+					heap.poll();
+				}
+			}
+			return new ArrayList<>(heap);
+		}
+
+		private static int bonus(String prefix, String term) {
+			return term.equals(prefix) ? EXACT_BONUS : 1;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.jpabook.jpashop.repository;
+
+import lombok.Data;
+
+import java.util.List;
+
+// >> 31. 상품 검색 결과 페이지 ( total 은 페이징 전 전체 건수 )
+// truncated 이면 접두어를 일부 단어로만 펼친 결과라서 빠진 상품이 있을 수 있고 total 은 최소 건수다.
+@Data
+public class ItemSearchResult {
+
+	private int total;
+	private boolean truncated;
+	private List<ItemSearchHit> hits;
+
+	public ItemSearchResult(int total, List<ItemSearchHit> hits) {
+		this(total, false, hits);
+	}
+
+	public ItemSearchResult(int total, boolean truncated, List<ItemSearchHit> hits) {
+		this.total = total;
+		this.truncated = truncated;
+		this.hits = hits;
+	}
+}
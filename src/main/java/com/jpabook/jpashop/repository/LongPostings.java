@@ -0,0 +1,50 @@
+package com.jpabook.jpashop.repository;
+
+import java.util.Arrays;
+
+// 정렬된 long id 목록 ( 역색인 posting list )
+// Set<Long> 대신 long[] 을 써서 회원 100만 명 규모에서도 메모리를 적게 쓴다.
+final class LongPostings {
+
+	private long[] ids = new long[4];
+	private int size;
+
+	void add(long id) {
+		int index = Arrays.binarySearch(ids, 0, size, id);
+		if (index >= 0) {
+			return;
+		}
+		index = -index - 1;
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+		}
+		System.arraycopy(ids, index, ids, index + 1, size - index);
+		ids[index] = id;
+		size++;
+	}
+
+	void remove(long id) {
+		int index = Arrays.binarySearch(ids, 0, size, id);
+		if (index < 0) {
+			return;
+		}
+		System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+		size--;
+	}
+
+	boolean contains(long id) {
+		return Arrays.binarySearch(ids, 0, size, id) >= 0;
+	}
+
+	long get(int index) {
+		return ids[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+}
@@ -0,0 +1,223 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.Member;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// >> 30. 회원 이름 부분 검색용 trigram(3글자) 역색인 ( 메모리 )
+// m.name like '%kim%' 은 앞에 % 가 붙어서 인덱스를 못 타고 member 를 풀스캔한다.
+// 이름을 3글자씩 잘라서(trigram) 각 조각이 들어있는 회원 id 목록을 들고 있으면
+// 검색어의 조각들이 모두 들어있는 회원만 후보로 골라낼 수 있다. ( 후보는 like 로 한 번 더 확인 )
+//  - 시작할 때 DB 에서 한 번 만들고, 회원 가입 / 이름 수정이 커밋되면 그 회원만 고친다.
+//  - 다시 만드는 동안 커밋된 가입 / 수정은 모아 두었다가 새 인덱스에 다시 반영한다. ( ItemSearchIndex 와 같은 방식 )
+//  - 검색어가 3글자 미만이거나 후보가 너무 많으면 null -> 기존 like 검색 사용
+@Slf4j
+@Component
+public class MemberNameIndex {
+
+	static final int GRAM = 3;
+	static final int MAX_CANDIDATES = 1000;
+	private static final int REBUILD_PAGE_SIZE = 10_000;
+
+	private final EntityManagerFactory emf;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private Map<String, LongPostings> postings = new HashMap<>();
+	private List<NameChange> pending;	// rebuild 중에 커밋된 변경 ( rebuild 가 끝나면 다시 반영 )
+	private volatile boolean ready;
+
+	public MemberNameIndex(EntityManagerFactory emf) {
+		this.emf = emf;
+	}
+
+	// InitDb 등 시작 데이터가 다 들어간 다음에 만든다.
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		long start = System.currentTimeMillis();
+		lock.writeLock().lock();
+		try {
+			pending = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		Map<String, LongPostings> rebuilt = new HashMap<>();
+		int count = 0;
+
+		EntityManager em = emf.createEntityManager();
+		try {
+			// id 순으로 페이지 단위 조회 ( posting 에 항상 뒤에 붙으므로 정렬 비용 없음 )
+			Long lastId = 0L;
+			while (true) {
+				List<Object[]> rows = em.createQuery(
+						"select m.id, m.normalizedName from Member m" +
+							" where m.id > :lastId" +
+							" order by m.id", Object[].class)
+					.setParameter("lastId", lastId)
+					.setMaxResults(REBUILD_PAGE_SIZE)
+					.getResultList();
+				if (rows.isEmpty()) {
+					break;
+				}
+				for (Object[] row : rows) {
+					lastId = (Long) row[0];
+					addTo(rebuilt, lastId, (String) row[1]);
+				}
+				count += rows.size();
+				em.clear();
+			}
+		} finally {
+			em.close();
+
+			// 조회한 뒤에 커밋된 변경이 빠졌을 수 있으므로 다시 반영 ( 이미 들어간 변경을 한 번 더 해도 결과는 같다 )
+			lock.writeLock().lock();
+			try {
+				for (NameChange change : pending) {
+					change.applyTo(rebuilt);
+				}
+				postings = rebuilt;
+				pending = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		ready = true;
+		log.info("member name index built. members={}, grams={}, elapsed={}ms",
+			count, rebuilt.size(), System.currentTimeMillis() - start);
+	}
+
+	// DB 없이 add 로만 채운 인덱스를 검색 가능 상태로 ( 벤치마크용 )
+	void markReady() {
+		ready = true;
+	}
+
+	// 회원 가입 커밋 후
+	public void add(Long memberId, String name) {
+		apply(new NameChange(memberId, null, name));
+	}
+
+	// 회원 이름 수정 커밋 후
+	public void update(Long memberId, String oldName, String newName) {
+		apply(new NameChange(memberId, oldName, newName));
+	}
+
+	private void apply(NameChange change) {
+		lock.writeLock().lock();
+		try {
+			change.applyTo(postings);
+			if (pending != null) {
+				pending.add(change);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// 이름에 검색어가 들어있을 수 있는 회원 id ( 후보 )
+	// null 이면 인덱스로 판단할 수 없는 경우 -> like 검색으로 처리
+	public List<Long> findCandidates(String memberName) {
+		String term = Member.normalizeName(memberName);
+		if (!ready || term == null || term.length() < GRAM) {
+			return null;
+		}
+
+		lock.readLock().lock();
+		try {
+			List<LongPostings> lists = new ArrayList<>();
+			for (String gram : grams(term)) {
+				LongPostings ids = postings.get(gram);
+				if (ids == null) {
+					return new ArrayList<>();   // 없는 조각이 있으면 후보 없음
+				}
+				lists.add(ids);
+			}
+
+			// 가장 짧은 목록을 기준으로 나머지 목록에 모두 있는 id만 남긴다.
+			lists.sort(Comparator.comparingInt(LongPostings::size));
+			LongPostings smallest = lists.get(0);
+			List<Long> candidates = new ArrayList<>();
+			for (int i = 0; i < smallest.size(); i++) {
+				long id = smallest.get(i);
+				if (containsInAll(lists, id)) {
+					candidates.add(id);
+					if (candidates.size() > MAX_CANDIDATES) {
+						return null;    // 너무 흔한 검색어는 IN 보다 like 스캔이 낫다.
+					}
+				}
+			}
+			return candidates;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private boolean containsInAll(List<LongPostings> lists, long id) {
+		for (int i = 1; i < lists.size(); i++) {
+			if (!lists.get(i).contains(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void addTo(Map<String, LongPostings> postings, Long memberId, String normalizedName) {
+		for (String gram : grams(normalizedName)) {
+			postings.computeIfAbsent(gram, g -> new LongPostings()).add(memberId);
+		}
+	}
+
+	private static void removeFrom(Map<String, LongPostings> postings, Long memberId, String normalizedName) {
+		for (String gram : grams(normalizedName)) {
+			LongPostings ids = postings.get(gram);
+			if (ids != null) {
+				ids.remove(memberId);
+				if (ids.isEmpty()) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	static List<String> grams(String normalizedName) {
+		List<String> grams = new ArrayList<>();
+		if (normalizedName == null) {
+			return grams;
+		}
+		for (int i = 0; i + GRAM <= normalizedName.length(); i++) {
+			String gram = normalizedName.substring(i, i + GRAM);
+			if (!grams.contains(gram)) {
+				grams.add(gram);
+			}
+		}
+		return grams;
+	}
+
+	// 가입 ( oldName 이 null ) 또는 이름 수정 한 건
+	private static class NameChange {
+		private final Long memberId;
+		private final String oldName;
+		private final String newName;
+
+		NameChange(Long memberId, String oldName, String newName) {
+			this.memberId = memberId;
+			this.oldName = Member.normalizeName(oldName);
+			this.newName = Member.normalizeName(newName);
+		}
+
+		void applyTo(Map<String, LongPostings> postings) {
+			removeFrom(postings, memberId, oldName);
+			addTo(postings, memberId, newName);
+		}
+	}
+}
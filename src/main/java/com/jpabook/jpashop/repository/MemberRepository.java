@@ -6,11 +6,15 @@ import org.springframework.stereotype.Repository;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Repository // spring bean 등록
 public class MemberRepository {
 
+    private static final int IN_CHUNK_SIZE = 500;
+
     @PersistenceContext // spring entity manager 만들어서 주입
     private EntityManager em;
 
@@ -18,6 +22,12 @@ public class MemberRepository {
         em.persist(member);
     }
 
+    // insert 를 바로 실행해서 유니크 제약조건 위반을 이 시점에 확인한다.
+    // ( @Repository 예외 변환으로 DataIntegrityViolationException 이 던져짐 )
+    public void flush() {
+        em.flush();
+    }
+
     // 하나만 조회
     public Member findOne(Long id) {
         return em.find(Member.class, id);
@@ -34,4 +44,19 @@ public class MemberRepository {
                 .getResultList();
     }
 
+    // >> 29-1. 이미 가입된 이름만 골라서 조회 ( 유니크 인덱스를 타는 IN 쿼리, 500개씩 나눠서 )
+    public List<String> findExistingNormalizedNames(Collection<String> normalizedNames) {
+        List<String> names = new ArrayList<>(normalizedNames);
+        List<String> result = new ArrayList<>();
+        for (int from = 0; from < names.size(); from += IN_CHUNK_SIZE) {
+            List<String> chunk = names.subList(from, Math.min(from + IN_CHUNK_SIZE, names.size()));
+            result.addAll(em.createQuery(
+                            "select m.normalizedName from Member m" +
+                                    " where m.normalizedName in :names", String.class)
+                    .setParameter("names", chunk)
+                    .getResultList());
+        }
+        return result;
+    }
+
 }
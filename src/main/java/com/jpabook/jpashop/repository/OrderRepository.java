@@ -1,6 +1,8 @@
 package com.jpabook.jpashop.repository;
 
 import com.jpabook.jpashop.domain.Order;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
@@ -12,11 +14,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Repository
+@RequiredArgsConstructor
 public class OrderRepository {
 
 	@PersistenceContext
 	private EntityManager em;
 
+	private final OrderSearchQueryCache orderSearchQueryCache;
+	private final MemberNameIndex memberNameIndex;
+
 	public void save(Order order) {
 		em.persist(order);
 	}
@@ -92,6 +98,37 @@ public class OrderRepository {
 	}
 
 
+	// >> 25-2. 조건 조합별로 캐시된 JPQL 템플릿에 파라미터만 바인딩 ( OrderSearchQueryCache 참고 )
+	public List<Order> findAllBySearch(OrderSearch orderSearch) {
+		OrderSearch resolved = resolveMemberName(orderSearch);
+		if (resolved.getMemberIds() != null && resolved.getMemberIds().isEmpty()) {
+			return new ArrayList<>();   // 이름이 맞는 회원이 없으면 주문도 없음
+		}
+
+		return orderSearchQueryCache.createQuery(em, resolved)
+			.setMaxResults(1000) //최대 1000건
+			.getResultList();
+	}
+
+	// >> 30-1. 회원 이름 검색어를 trigram 인덱스로 후보 회원 id 로 바꾼다.
+	// like '%이름%' 로 member 전체를 훑는 대신 후보 회원의 주문만 member_id 로 찾고, 후보는 like 로 한 번 더 확인
+	// ( 인덱스로 판단할 수 없으면 기존처럼 like 만 사용 )
+	private OrderSearch resolveMemberName(OrderSearch orderSearch) {
+		if (!StringUtils.hasText(orderSearch.getMemberName()) || orderSearch.getMemberIds() != null) {
+			return orderSearch;
+		}
+		List<Long> candidates = memberNameIndex.findCandidates(orderSearch.getMemberName());
+		if (candidates == null) {
+			return orderSearch;
+		}
+
+		OrderSearch resolved = new OrderSearch();
+		resolved.setMemberName(orderSearch.getMemberName());
+		resolved.setOrderStatus(orderSearch.getOrderStatus());
+		resolved.setMemberIds(candidates);
+		return resolved;
+	}
+
 	// >> 07-2. 동작방식
 	/*
 		(fetch join)
@@ -118,6 +155,27 @@ public class OrderRepository {
 			.getResultList();
 	}
 
+	// >> 15-2. 키셋(seek) 페이징
+	//  - offset 방식은 앞의 row를 전부 읽고 버리기 때문에 뒤 페이지로 갈수록 느려진다.
+	//  - PK(o.id) 기준으로 마지막으로 받은 id 다음부터 limit 만큼만 읽는다. ( 인덱스로 바로 찾아가므로 깊이와 상관없이 일정 )
+	//  - 컬렉션은 v3.1과 동일하게 default_batch_fetch_size 로 IN 쿼리 조회
+	public List<Order> findAllWithMemberDeliveryAfter(Long afterId, int limit) {
+		String jpql = "select o from Order o" +
+			" join fetch o.member m" +
+			" join fetch o.delivery d";
+		if (afterId != null) {
+			jpql += " where o.id > :afterId";
+		}
+		jpql += " order by o.id";
+
+		TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+			.setMaxResults(limit);
+		if (afterId != null) {
+			query.setParameter("afterId", afterId);
+		}
+		return query.getResultList();
+	}
+
 	// >> 13. 패치 조인을 이용한 방식
 	//  - 그냥 조인을 하게되면 조인에 의한 중복된 데이터 값이 존재함.
 	//  - 현재 ORDER를 조회하는 거지만, 주문 ITEM이 4개이고, Join에 의해
@@ -133,10 +191,8 @@ public class OrderRepository {
 					" join fetch o.delivery d" +
 					" join fetch o.orderItems oi" +
 					" join fetch oi.item i", Order.class)
-//			.getResultList();
-			.setFirstResult(1)
-			.setMaxResults(100)
-			.getResultList();    // 위 처럼 하면 페이징
+			.getResultList();
+		// .setFirstResult(1).setMaxResults(100) 처럼 하면 페이징 ( 아래 문제 때문에 사용하지 않음 )
 		// [컬렉션 상태에서 패치 조인하면 페이징이 안 된다]
 		// >> 14. 결과가 2개밖에 없으니까 100개 끌어도 2개일거란 생각
 		// >> FirstResult와 MaxResult를 사용하고 fetch join을 사용하면 문제 발생
@@ -150,5 +206,36 @@ public class OrderRepository {
 		// >> [해결방법]
 		// >> 1:다 fetch join 상태에서는 페이징을 하지 않는다.
 		// >> order, member, delivery 1:1 이지만 orderItem은 1:다 인 상황
+		// >> 페이징이 필요하면 아래 findAllWithItem(offset, limit) 사용
+	}
+
+	// >> 14-1. 컬렉션 fetch join + 페이징 ( 2단계 조회 )
+	//  1) 주문 id만 DB에서 페이징해서 가져온다. ( row 뻥튀기가 없으므로 SQL limit 가능 )
+	//  2) 그 id들에 대해서만 fetch join 한다. ( 메모리에는 페이지 크기만큼만 올라감 )
+	//     주문상품이 없는 주문도 1)에서 페이징했으므로 left join 으로 빠지지 않게 한다.
+	public List<Order> findAllWithItem(int offset, int limit) {
+		List<Long> orderIds = em.createQuery(
+				"select o.id from Order o" +
+					" order by o.id", Long.class)
+			.setFirstResult(offset)
+			.setMaxResults(limit)
+			.getResultList();
+
+		if (orderIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		return em.createQuery(
+				"select distinct o from Order o" +
+					" join fetch o.member m" +
+					" join fetch o.delivery d" +
+					" left join fetch o.orderItems oi" +
+					" left join fetch oi.item i" +
+					" where o.id in :orderIds" +
+					" order by o.id", Order.class)
+			.setParameter("orderIds", orderIds)
+			// distinct는 JPA 중복 제거용이므로 SQL에는 넘기지 않는다.
+			.setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+			.getResultList();
 	}
 }
@@ -4,6 +4,8 @@ import com.jpabook.jpashop.domain.OrderStatus;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class OrderSearch {
@@ -11,6 +13,8 @@ public class OrderSearch {
     private String memberName;  // 회원 이름
     private OrderStatus orderStatus; // 주문 상태
 
+    // >> 30. 회원 id 목록 검색 ( 회원 이름 trigram 인덱스로 찾은 후보가 들어감 )
+    private List<Long> memberIds;
 
 
 }
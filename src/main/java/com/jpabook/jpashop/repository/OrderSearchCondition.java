@@ -0,0 +1,87 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.Member;
+import org.springframework.util.StringUtils;
+
+// >> 25. OrderSearch 의 검색 조건 하나하나를 정의
+// 조건이 추가되면 여기에 한 줄 추가하면 된다. ( JPQL 조각, 파라미터 이름, 값 )
+// 켜진 조건들의 조합(shape)이 같으면 같은 JPQL이 나오므로 조합별로 한 번만 만들어서 재사용한다.
+public enum OrderSearchCondition {
+
+	STATUS("o.status = :status", "status") {
+		@Override
+		boolean isActive(OrderSearch orderSearch) {
+			return orderSearch.getOrderStatus() != null;
+		}
+
+		@Override
+		Object value(OrderSearch orderSearch) {
+			return orderSearch.getOrderStatus();
+		}
+	},
+
+	// Criteria 방식과 같게 회원 이름이 포함되어 있으면 검색 ( >> 30. 대소문자, 앞뒤 공백 무시 )
+	MEMBER_NAME("m.normalizedName like :name", "name") {
+		@Override
+		boolean isActive(OrderSearch orderSearch) {
+			return StringUtils.hasText(orderSearch.getMemberName());
+		}
+
+		@Override
+		Object value(OrderSearch orderSearch) {
+			return "%" + Member.normalizeName(orderSearch.getMemberName()) + "%";
+		}
+	},
+
+	// >> 30. 회원 이름 인덱스로 찾은 후보 회원들의 주문만 ( orders.member_id 인덱스 사용 )
+	MEMBER_IDS("m.id in :memberIds", "memberIds") {
+		@Override
+		boolean isActive(OrderSearch orderSearch) {
+			return orderSearch.getMemberIds() != null;
+		}
+
+		@Override
+		Object value(OrderSearch orderSearch) {
+			return orderSearch.getMemberIds();
+		}
+	};
+
+	private final String jpql;
+	private final String parameter;
+
+	OrderSearchCondition(String jpql, String parameter) {
+		this.jpql = jpql;
+		this.parameter = parameter;
+	}
+
+	abstract boolean isActive(OrderSearch orderSearch);
+
+	abstract Object value(OrderSearch orderSearch);
+
+	String getJpql() {
+		return jpql;
+	}
+
+	String getParameter() {
+		return parameter;
+	}
+
+	// 켜진 조건들을 비트로 표현한 값 ( 조건 조합의 key )
+	static int shapeOf(OrderSearch orderSearch) {
+		int shape = 0;
+		for (OrderSearchCondition condition : values()) {
+			if (condition.isActive(orderSearch)) {
+				shape |= condition.bit();
+			}
+		}
+		return shape;
+	}
+
+	boolean isIn(int shape) {
+		return (shape & bit()) != 0;
+	}
+
+	private int bit() {
+		return 1 << ordinal();
+	}
+}
@@ -0,0 +1,73 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// >> 25-1. 동적 검색 쿼리 템플릿 캐시
+// findAllByString 은 매번 문자열을 이어 붙이고, findAllByCriteria 는 매번 Criteria 트리를 새로 만들어서 JPQL로 변환한다.
+// 여기서는 조건 조합(shape)별로 JPQL을 한 번만 만들어 두고, 요청마다 파라미터만 바인딩한다.
+// 항상 같은 문자열이 넘어가므로 Hibernate 쿼리 플랜 캐시(HQL -> SQL 변환 결과)도 그대로 재사용된다.
+@Slf4j
+@Component
+public class OrderSearchQueryCache {
+
+	private static final String SELECT = "select o from Order o join o.member m";
+
+	private final Map<Integer, String> templates = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	public TypedQuery<Order> createQuery(EntityManager em, OrderSearch orderSearch) {
+		int shape = OrderSearchCondition.shapeOf(orderSearch);
+
+		String jpql = templates.get(shape);
+		if (jpql == null) {
+			misses.increment();
+			jpql = templates.computeIfAbsent(shape, this::compile);
+		} else {
+			hits.increment();
+		}
+
+		TypedQuery<Order> query = em.createQuery(jpql, Order.class);
+		for (OrderSearchCondition condition : OrderSearchCondition.values()) {
+			if (condition.isIn(shape)) {
+				query.setParameter(condition.getParameter(), condition.value(orderSearch));
+			}
+		}
+		return query;
+	}
+
+	private String compile(int shape) {
+		StringBuilder jpql = new StringBuilder(SELECT);
+		boolean isFirstCondition = true;
+		for (OrderSearchCondition condition : OrderSearchCondition.values()) {
+			if (!condition.isIn(shape)) {
+				continue;
+			}
+			jpql.append(isFirstCondition ? " where " : " and ").append(condition.getJpql());
+			isFirstCondition = false;
+		}
+
+		log.debug("order search template compiled. shape={}, jpql={}", shape, jpql);
+		return jpql.toString();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public int getTemplateCount() {
+		return templates.size();
+	}
+}
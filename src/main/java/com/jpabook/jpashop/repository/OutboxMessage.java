@@ -0,0 +1,21 @@
+package com.jpabook.jpashop.repository;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// >> 41. 싱크로 보내는 outbox 이벤트 ( payload 는 json 그대로 )
+@Data
+@AllArgsConstructor
+public class OutboxMessage {
+
+	private Long id;
+	private String aggregateType;
+	private Long aggregateId;
+	private String eventType;
+	@JsonRawValue
+	private String payload;
+	private LocalDateTime createdAt;
+}
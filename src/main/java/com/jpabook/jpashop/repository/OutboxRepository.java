@@ -0,0 +1,47 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.outbox.OutboxEvent;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// >> 41. outbox 저장 / 미전송 조회 / 전송 완료 표시
+@Repository
+public class OutboxRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	public void save(OutboxEvent event) {
+		em.persist(event);
+	}
+
+	// 아직 보내지 않은 이벤트를 id 순으로 ( 엔티티가 아닌 DTO 로 읽어서 변경감지 / 1차 캐시 비용 없음 )
+	public List<OutboxMessage> findPending(int limit) {
+		return em.createQuery(
+				"select new com.jpabook.jpashop.repository.OutboxMessage(e.id, e.aggregateType, e.aggregateId, e.eventType, e.payload, e.createdAt)" +
+					" from OutboxEvent e" +
+					" where e.deliveredAt is null" +
+					" order by e.id", OutboxMessage.class)
+			.setMaxResults(limit)
+			.getResultList();
+	}
+
+	// batch 하나를 update 한 번으로 표시
+	// id 범위(between)로 하면 그 사이 늦게 커밋된 미전송 이벤트까지 표시될 수 있으므로 보낸 id 만 in 으로
+	public int markDelivered(List<Long> ids, LocalDateTime deliveredAt) {
+		return em.createQuery(
+				"update OutboxEvent e set e.deliveredAt = :deliveredAt where e.id in :ids")
+			.setParameter("deliveredAt", deliveredAt)
+			.setParameter("ids", ids)
+			.executeUpdate();
+	}
+
+	public long countPending() {
+		return em.createQuery("select count(e) from OutboxEvent e where e.deliveredAt is null", Long.class)
+			.getSingleResult();
+	}
+}
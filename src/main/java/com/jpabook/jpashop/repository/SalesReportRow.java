@@ -0,0 +1,38 @@
+package com.jpabook.jpashop.repository;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// >> 39. 판매 리포트 한 줄 ( 순위 조회면 period 는 null )
+@Data
+public class SalesReportRow {
+
+	private Long id;
+	private LocalDateTime period;
+	private long orderCount;
+	private long units;
+	private long revenue;
+
+	public SalesReportRow(Long id, LocalDateTime period, long orderCount, long units, long revenue) {
+		this.id = id;
+		this.period = period;
+		this.orderCount = orderCount;
+		this.units = units;
+		this.revenue = revenue;
+	}
+
+	// JPQL new 에서 사용 ( sum 은 Long )
+	public SalesReportRow(Long id, LocalDateTime period, Long orderCount, Long units, Long revenue) {
+		this(id, period, orderCount.longValue(), units.longValue(), revenue.longValue());
+	}
+
+	public SalesReportRow(Long id, LocalDate period, Long orderCount, Long units, Long revenue) {
+		this(id, period.atStartOfDay(), orderCount.longValue(), units.longValue(), revenue.longValue());
+	}
+
+	public SalesReportRow(Long id, Long orderCount, Long units, Long revenue) {
+		this(id, (LocalDateTime) null, orderCount.longValue(), units.longValue(), revenue.longValue());
+	}
+}
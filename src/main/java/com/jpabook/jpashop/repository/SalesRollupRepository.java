@@ -0,0 +1,211 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.domain.OrderItem;
+import com.jpabook.jpashop.domain.sales.ItemHourlySales;
+import com.jpabook.jpashop.domain.sales.MemberDailySales;
+import org.hibernate.JDBCException;
+import org.hibernate.query.NativeQuery;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// >> 39. 판매 집계 ( ItemHourlySales, MemberDailySales )
+// 주문 / 취소 트랜잭션 안에서 집계 row 에 더하고 뺀다. ( 리포트는 주문 테이블을 읽지 않고 집계 row 만 읽음 )
+//  - row 가 있으면 더하고 없으면 넣는 merge 한 문장 ( 상품이 여러 개여도 상품 row 는 merge 한 번 )
+//  - 한 상품의 주문이 한 row 에 몰리지 않도록 slot 으로 나눈다. ( 분할 재고는 샤드 번호, 아니면 주문 id % SLOTS )
+//    취소도 같은 slot 에서 빼므로 slot 별 row 가 음수가 되지 않는다. ( 리포트는 slot 합계 )
+//  - 먼저 flush 해서 재고 row ( item 또는 stock_shard ) 락을 잡은 뒤에 merge 한다.
+//    같은 ( 상품, slot ) row 를 처음 넣는 주문끼리는 재고 락에서 줄을 서므로 insert 가 겹치지 않는다.
+//  - 락 순서를 맞추기 위해 상품 row 는 ( 상품 id, slot ) 순, 회원 row 는 마지막
+//  - 같은 회원의 주문 두 건이 그날 row 를 동시에 처음 넣으면 한쪽은 unique 위반
+//    -> ConcurrencyFailureException 으로 바꿔서 OrderFacade 가 다시 시도 ( 그때는 row 가 있다 )
+@Repository
+public class SalesRollupRepository {
+
+    public static final int SLOTS = 8;
+
+    private static final String DUPLICATE_KEY = "23505";
+    private static final String CONCURRENT_UPDATE = "90131";
+
+    private static final String ITEM_ROW =
+            "select cast(? as bigint) as item_id, cast(? as timestamp) as sales_hour, cast(? as int) as slot," +
+                    " cast(? as bigint) as order_count, cast(? as bigint) as units, cast(? as bigint) as revenue";
+    private static final String MERGE_ITEM =
+            "merge into item_hourly_sales t using (%s) s" +
+                    " on (t.item_id = s.item_id and t.sales_hour = s.sales_hour and t.slot = s.slot)" +
+                    " when matched then update set order_count = t.order_count + s.order_count," +
+                    " units = t.units + s.units, revenue = t.revenue + s.revenue" +
+                    " when not matched then insert (item_id, sales_hour, slot, order_count, units, revenue)" +
+                    " values (s.item_id, s.sales_hour, s.slot, s.order_count, s.units, s.revenue)";
+    private static final String MERGE_MEMBER =
+            "merge into member_daily_sales t using (" +
+                    "select cast(? as bigint) as member_id, cast(? as date) as sales_day," +
+                    " cast(? as bigint) as order_count, cast(? as bigint) as units, cast(? as bigint) as revenue) s" +
+                    " on (t.member_id = s.member_id and t.sales_day = s.sales_day)" +
+                    " when matched then update set order_count = t.order_count + s.order_count," +
+                    " units = t.units + s.units, revenue = t.revenue + s.revenue" +
+                    " when not matched then insert (member_id, sales_day, order_count, units, revenue)" +
+                    " values (s.member_id, s.sales_day, s.order_count, s.units, s.revenue)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    public void addOrder(Order order) {
+        apply(order, 1);
+    }
+
+    // 취소는 주문한 시간 / 날짜, 주문할 때와 같은 slot 의 집계에서 뺀다.
+    public void removeOrder(Order order) {
+        apply(order, -1);
+    }
+
+    private void apply(Order order, int sign) {
+        Timestamp hour = Timestamp.valueOf(order.getOrderDate().truncatedTo(ChronoUnit.HOURS));
+        java.sql.Date day = java.sql.Date.valueOf(order.getOrderDate().toLocalDate());
+        int orderSlot = (int) Math.floorMod(order.getId(), (long) SLOTS);
+
+        // 상품 id -> slot -> { 주문 수, 수량, 금액 }
+        Map<Long, Map<Integer, long[]>> itemDeltas = new TreeMap<>();
+        long units = 0;
+        for (OrderItem orderItem : order.getOrderItems()) {
+            int slot = orderItem.getStockShardNo() == null ? orderSlot : orderItem.getStockShardNo();
+            long[] delta = itemDeltas.computeIfAbsent(orderItem.getItem().getId(), k -> new TreeMap<>())
+                    .computeIfAbsent(slot, k -> new long[3]);
+            delta[0] = sign;
+            delta[1] += sign * orderItem.getCount();
+            delta[2] += sign * orderItem.getTotalPrice();
+            units += orderItem.getCount();
+        }
+
+        List<Object> itemParams = new ArrayList<>();
+        itemDeltas.forEach((itemId, slots) -> slots.forEach((slot, delta) ->
+                itemParams.addAll(Arrays.asList(itemId, hour, slot, delta[0], delta[1], delta[2]))));
+        String itemRows = String.join(" union all ", Collections.nCopies(itemParams.size() / 6, ITEM_ROW));
+
+        em.flush();
+        merge(String.format(MERGE_ITEM, itemRows), ItemHourlySales.class, itemParams);
+        merge(MERGE_MEMBER, MemberDailySales.class, Arrays.asList(
+                order.getMember().getId(), day, (long) sign, sign * units, sign * order.getTotalPrice()));
+    }
+
+    // 집계 테이블만 바뀌었다고 알려서 다른 2차 캐시 region 은 그대로 둔다.
+    private void merge(String sql, Class<?> table, List<Object> params) {
+        NativeQuery<?> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(table);
+        for (int i = 0; i < params.size(); i++) {
+            query.setParameter(i + 1, params.get(i));
+        }
+        try {
+            query.executeUpdate();
+        } catch (PersistenceException e) {
+            if (e.getCause() instanceof JDBCException && isConcurrentInsert((JDBCException) e.getCause())) {
+                throw new ConcurrencyFailureException("다른 주문이 같은 집계 row 를 먼저 만들었습니다.", e);
+            }
+            throw e;
+        }
+    }
+
+    private boolean isConcurrentInsert(JDBCException e) {
+        return DUPLICATE_KEY.equals(e.getSQLState()) || CONCURRENT_UPDATE.equals(e.getSQLState());
+    }
+
+    // 주문 테이블에서 집계를 처음부터 다시 만든다. ( 집계 도입 전 주문, JDBC 로 넣은 주문 )
+    // 주문할 때와 같은 규칙으로 slot 을 나눈다. 진행 중인 주문과 섞이지 않도록 주문이 없을 때 실행
+    public void rebuild() {
+        em.createNativeQuery("delete from item_hourly_sales").executeUpdate();
+        em.createNativeQuery("delete from member_daily_sales").executeUpdate();
+        em.createNativeQuery(
+                "insert into item_hourly_sales (item_id, sales_hour, slot, order_count, units, revenue)" +
+                        " select oi.item_id, dateadd('HOUR', hour(o.order_date), cast(cast(o.order_date as date) as timestamp))," +
+                        " coalesce(oi.stock_shard_no, mod(o.order_id, " + SLOTS + "))," +
+                        " count(distinct o.order_id), sum(oi.count), sum(cast(oi.order_price as bigint) * oi.count)" +
+                        " from orders o" +
+                        " join order_item oi on oi.order_id = o.order_id" +
+                        " where o.status = 'ORDER'" +
+                        " group by oi.item_id, dateadd('HOUR', hour(o.order_date), cast(cast(o.order_date as date) as timestamp))," +
+                        " coalesce(oi.stock_shard_no, mod(o.order_id, " + SLOTS + "))")
+                .executeUpdate();
+        em.createNativeQuery(
+                "insert into member_daily_sales (member_id, sales_day, order_count, units, revenue)" +
+                        " select o.member_id, cast(o.order_date as date)," +
+                        " count(distinct o.order_id), sum(oi.count), sum(cast(oi.order_price as bigint) * oi.count)" +
+                        " from orders o" +
+                        " join order_item oi on oi.order_id = o.order_id" +
+                        " where o.status = 'ORDER' and o.member_id is not null" +
+                        " group by o.member_id, cast(o.order_date as date)")
+                .executeUpdate();
+    }
+
+    //== 리포트 ( 집계 row 만 읽는다 ) ==//
+
+    // 상품 한 개의 시간별 판매 ( slot 합계 )
+    public List<SalesReportRow> findItemHourly(Long itemId, LocalDateTime from, LocalDateTime to) {
+        return em.createQuery(
+                "select new com.jpabook.jpashop.repository.SalesReportRow(s.itemId, s.salesHour, sum(s.orderCount), sum(s.units), sum(s.revenue))" +
+                        " from ItemHourlySales s" +
+                        " where s.itemId = :itemId" +
+                        " and s.salesHour >= :from and s.salesHour < :to" +
+                        " group by s.itemId, s.salesHour" +
+                        " order by s.salesHour", SalesReportRow.class)
+                .setParameter("itemId", itemId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    // 기간 중 많이 팔린 상품 ( 금액 순 )
+    public List<SalesReportRow> findTopItems(LocalDateTime from, LocalDateTime to, int limit) {
+        return em.createQuery(
+                "select new com.jpabook.jpashop.repository.SalesReportRow(s.itemId, sum(s.orderCount), sum(s.units), sum(s.revenue))" +
+                        " from ItemHourlySales s" +
+                        " where s.salesHour >= :from and s.salesHour < :to" +
+                        " group by s.itemId" +
+                        " order by sum(s.revenue) desc", SalesReportRow.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // 회원 한 명의 일별 구매
+    public List<SalesReportRow> findMemberDaily(Long memberId, LocalDate from, LocalDate to) {
+        return em.createQuery(
+                "select new com.jpabook.jpashop.repository.SalesReportRow(s.memberId, s.salesDay, s.orderCount, s.units, s.revenue)" +
+                        " from MemberDailySales s" +
+                        " where s.memberId = :memberId" +
+                        " and s.salesDay >= :from and s.salesDay <= :to" +
+                        " order by s.salesDay", SalesReportRow.class)
+                .setParameter("memberId", memberId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    // 기간 중 많이 구매한 회원 ( 금액 순 )
+    public List<SalesReportRow> findTopMembers(LocalDate from, LocalDate to, int limit) {
+        return em.createQuery(
+                "select new com.jpabook.jpashop.repository.SalesReportRow(s.memberId, sum(s.orderCount), sum(s.units), sum(s.revenue))" +
+                        " from MemberDailySales s" +
+                        " where s.salesDay >= :from and s.salesDay <= :to" +
+                        " group by s.memberId" +
+                        " order by sum(s.revenue) desc", SalesReportRow.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,148 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
+import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.domain.item.StockShard;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// >> 33. 분할 재고 ( StockShard ) 차감 / 반환
+@Repository
+public class StockShardRepository {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    // 랜덤한 샤드부터 조건부 update, 모자라면 다음 샤드로 ( 주문마다 다른 row 를 건드리므로 락이 분산된다 )
+    // 어느 한 샤드로도 부족하면 샤드 전체를 잠그고 여러 샤드에서 나눠서 뺀다.
+    // 반환값은 샤드 번호 -> 뺀 수량 ( 뺀 순서, 취소 시 그대로 돌려놓는다 )
+    public Map<Integer, Integer> decrease(Long itemId, int shardCount, int count) {
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            int shardNo = (start + i) % shardCount;
+            int updated = em.createQuery(
+                    "update StockShard s" +
+                            " set s.quantity = s.quantity - :count" +
+                            " where s.item.id = :itemId" +
+                            " and s.shardNo = :shardNo" +
+                            " and s.quantity >= :count")
+                    .setParameter("count", count)
+                    .setParameter("itemId", itemId)
+                    .setParameter("shardNo", shardNo)
+                    .executeUpdate();
+            if (updated == 1) {
+                return Collections.singletonMap(shardNo, count);
+            }
+        }
+        return decreaseAcrossShards(itemId, count);
+    }
+
+    // 샤드 번호 순으로 잠가서 ( 데드락 방지 ) 남은 재고를 모아서 뺀다.
+    private Map<Integer, Integer> decreaseAcrossShards(Long itemId, int count) {
+        List<StockShard> shards = findLocked(itemId);
+        int total = shards.stream().mapToInt(StockShard::getQuantity).sum();
+        if (total < count) {
+            throw new NotEnoughStockException("need more stock");
+        }
+
+        Map<Integer, Integer> taken = new LinkedHashMap<>();
+        int remaining = count;
+        for (StockShard shard : shards) {
+            int take = Math.min(shard.getQuantity(), remaining);
+            if (take == 0) {
+                continue;
+            }
+            shard.setQuantity(shard.getQuantity() - take);   // 변경감지
+            taken.put(shard.getShardNo(), take);
+            remaining -= take;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return taken;
+    }
+
+    // 취소 시 재고 반환 ( 샤드마다 뺀 만큼 호출 -> 주문 전 샤드별 재고로 돌아간다 )
+    // 재분할로 그 샤드가 없어졌으면 0번 샤드로, 분할이 해제되어 샤드가 하나도 없으면 false
+    // 0번 샤드로 몰린 재고는 다음 재분할 ( ItemService.shardStock ) 때 다시 고르게 나눠진다.
+    public boolean increase(Long itemId, int shardNo, int count) {
+        return increaseShard(itemId, shardNo, count) || increaseShard(itemId, 0, count);
+    }
+
+    private boolean increaseShard(Long itemId, int shardNo, int count) {
+        return em.createQuery(
+                "update StockShard s" +
+                        " set s.quantity = s.quantity + :count" +
+                        " where s.item.id = :itemId" +
+                        " and s.shardNo = :shardNo")
+                .setParameter("count", count)
+                .setParameter("itemId", itemId)
+                .setParameter("shardNo", shardNo)
+                .executeUpdate() == 1;
+    }
+
+    // 샤드 재고 합계 ( 화면 / API 에서 필요할 때만 읽는다 )
+    public int sumQuantity(Long itemId) {
+        return em.createQuery(
+                "select coalesce(sum(s.quantity), 0) from StockShard s where s.item.id = :itemId", Number.class)
+                .setParameter("itemId", itemId)
+                .getSingleResult()
+                .intValue();
+    }
+
+    // 상품 목록용 ( 상품 id -> 샤드 재고 합계, group by 한 번 )
+    public Map<Long, Integer> sumQuantities(Collection<Long> itemIds) {
+        Map<Long, Integer> sums = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return sums;
+        }
+        em.createQuery(
+                "select s.item.id, sum(s.quantity) from StockShard s" +
+                        " where s.item.id in :itemIds" +
+                        " group by s.item.id", Object[].class)
+                .setParameter("itemIds", itemIds)
+                .getResultList()
+                .forEach(row -> sums.put((Long) row[0], ((Number) row[1]).intValue()));
+        return sums;
+    }
+
+    // 재고를 shardCount 개로 고르게 나눈다. ( 나머지는 앞 샤드부터 1개씩 )
+    public void distribute(Item item, int quantity, int shardCount) {
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            int shardQuantity = quantity / shardCount + (shardNo < quantity % shardCount ? 1 : 0);
+            em.persist(StockShard.createStockShard(item, shardNo, shardQuantity));
+        }
+    }
+
+    // 샤드를 모두 지우고 남아있던 재고 합계를 돌려준다.
+    public int removeAll(Long itemId) {
+        List<StockShard> shards = findLocked(itemId);
+        int total = 0;
+        for (StockShard shard : shards) {
+            total += shard.getQuantity();
+            em.remove(shard);
+        }
+        em.flush(); // 같은 트랜잭션에서 다시 distribute 할 때 unique 제약에 걸리지 않도록 먼저 delete
+        return total;
+    }
+
+    private List<StockShard> findLocked(Long itemId) {
+        return em.createQuery(
+                "select s from StockShard s" +
+                        " where s.item.id = :itemId" +
+                        " order by s.shardNo", StockShard.class)
+                .setParameter("itemId", itemId)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+}
@@ -0,0 +1,64 @@
+package com.jpabook.jpashop.repository.order;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// >> 27. 조회 전용 주문 목록(DTO) 결과 캐시
+// 대시보드가 몇 초마다 같은 목록을 polling 하므로 결과를 잠깐 들고 있는다.
+//  1) 주문 / 취소, 상품 수정 ( 이름 / 가격 ), 대량 등록 / 생성이 커밋되면 version 을 올린다. -> 이전 version 으로 만든 결과는 다시 읽히지 않음
+//  2) 같은 key 를 동시에 miss 하면 먼저 온 요청 하나만 DB 를 조회하고 나머지는 그 결과를 기다린다. ( single-flight )
+//     -> 캐시가 만료되는 순간 orders 테이블로 요청이 몰리지 않는다.
+// 애플리케이션 한 대 안에서만 유효한 로컬 캐시
+@Component
+public class OrderQueryResultCache {
+
+	private final AsyncCache<String, Object> cache;
+	private final AtomicLong version = new AtomicLong();
+
+	public OrderQueryResultCache(@Value("${jpashop.order-query-cache.ttl-seconds:60}") long ttlSeconds,
+								 @Value("${jpashop.order-query-cache.maximum-size:100}") long maximumSize) {
+		this.cache = Caffeine.newBuilder()
+			.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+			.maximumSize(maximumSize)
+			.buildAsync();
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T get(String name, Supplier<T> loader) {
+		String key = name + ":" + version.get();
+		ConcurrentMap<String, CompletableFuture<Object>> map = cache.asMap();
+
+		CompletableFuture<Object> loading = new CompletableFuture<>();
+		CompletableFuture<Object> existing = map.putIfAbsent(key, loading);
+		if (existing != null) {
+			// 이미 누군가 조회 중이거나 조회가 끝난 결과
+			return (T) existing.join();
+		}
+
+		// 조회는 요청한 스레드(현재 트랜잭션)에서 직접 실행
+		// Error 까지 잡아서 끝내지 않으면 기다리던 요청이 영원히 join 에 묶이고 그 key 는 계속 실패한 채로 남는다.
+		try {
+			T result = loader.get();
+			loading.complete(result);
+			return result;
+		} catch (Throwable e) {
+			map.remove(key, loading);
+			loading.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	// 주문 / 상품 데이터가 바뀐 트랜잭션이 커밋된 뒤 호출
+	public void invalidate() {
+		version.incrementAndGet();
+		cache.synchronous().invalidateAll();
+	}
+}
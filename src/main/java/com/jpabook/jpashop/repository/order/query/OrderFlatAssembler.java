@@ -0,0 +1,47 @@
+package com.jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// >> 23-1. flat row를 주문 단위로 묶어주는 조립기
+// groupingBy는 row마다 key용 DTO를 새로 만들고 HashMap에 넣기 때문에 순서도 뒤죽박죽이 된다.
+// flat 쿼리를 order id 순으로 정렬해 두면 id가 바뀌는 순간 이전 주문이 완성되므로
+// 한 번 훑으면서(single pass) 주문당 OrderQueryDto 1개만 만들면 된다.
+public class OrderFlatAssembler {
+
+	private final Consumer<OrderQueryDto> sink;
+	private OrderQueryDto current;
+
+	public OrderFlatAssembler(Consumer<OrderQueryDto> sink) {
+		this.sink = sink;
+	}
+
+	// 정렬된 row 목록을 주문 목록으로 ( 쿼리 순서 유지 )
+	public static List<OrderQueryDto> assemble(List<OrderFlatDto> rows) {
+		List<OrderQueryDto> result = new ArrayList<>();
+		OrderFlatAssembler assembler = new OrderFlatAssembler(result::add);
+		rows.forEach(assembler::add);
+		assembler.finish();
+		return result;
+	}
+
+	// row는 반드시 order id 순으로 들어와야 한다.
+	public void add(OrderFlatDto row) {
+		if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+			finish();
+			current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(),
+				row.getOrderStatus(), row.getAddress(), new ArrayList<>());
+		}
+		current.getOrderItems().add(
+			new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+	}
+
+	// 마지막 주문까지 내보낸다.
+	public void finish() {
+		if (current != null) {
+			sink.accept(current);
+			current = null;
+		}
+	}
+}
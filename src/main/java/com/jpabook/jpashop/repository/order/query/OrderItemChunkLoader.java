@@ -0,0 +1,138 @@
+package com.jpabook.jpashop.repository.order.query;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+// >> 21-1. orderItem IN 쿼리를 고정 크기 덩어리(chunk)로 나눠서 조회
+// in :orderIds 에 id를 전부 넣으면
+//  1) DB 파라미터 개수 제한에 걸리고 ( Oracle 1000개 등 )
+//  2) id 개수가 달라질 때마다 SQL이 달라져서 실행 계획 캐시를 못 쓴다.
+// 그래서 항상 chunkSize 개로 맞춰서(모자라면 마지막 id로 채움) 같은 모양의 SQL만 나가게 한다.
+// parallel 옵션을 켜면 chunk 마다 별도 커넥션으로 동시에 조회한 뒤 합친다.
+// 스레드 풀은 병렬 조회를 처음 할 때 만든다. ( 옵션을 끈 기본 설정에서는 스레드를 잡아두지 않음 )
+@Component
+public class OrderItemChunkLoader {
+
+	private static final String QUERY =
+		"select new com.jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+			" from OrderItem oi" +
+			" join oi.item i" +
+			" where oi.order.id in :orderIds";
+
+	@PersistenceContext
+	private EntityManager em;
+
+	private final EntityManagerFactory emf;
+	private final int chunkSize;
+	private final boolean parallel;
+	private final int threads;
+	private ExecutorService executor;
+
+	public OrderItemChunkLoader(EntityManagerFactory emf,
+								@Value("${jpashop.query.in-chunk-size:500}") int chunkSize,
+								@Value("${jpashop.query.parallel-in-loading:false}") boolean parallel,
+								@Value("${jpashop.query.parallel-in-threads:4}") int threads) {
+		this.emf = emf;
+		this.chunkSize = chunkSize;
+		this.parallel = parallel;
+		this.threads = threads;
+	}
+
+	// 설정에 따라 순차 / 병렬 조회
+	public Map<Long, List<OrderItemQueryDto>> load(List<Long> orderIds) {
+		if (parallel && orderIds.size() > chunkSize) {
+			return loadParallel(orderIds);
+		}
+		return loadSequential(orderIds);
+	}
+
+	// 현재 트랜잭션(커넥션)에서 chunk 순서대로 조회
+	public Map<Long, List<OrderItemQueryDto>> loadSequential(List<Long> orderIds) {
+		Map<Long, List<OrderItemQueryDto>> result = new HashMap<>();
+		for (List<Long> chunk : chunks(orderIds)) {
+			merge(result, findChunk(em, chunk));
+		}
+		return result;
+	}
+
+	// chunk 마다 새 EntityManager(=별도 커넥션)로 동시에 조회
+	// 커밋된 데이터만 보이므로 현재 트랜잭션에서 방금 저장한 주문은 보이지 않는다. ( 조회 전용 화면에서만 사용 )
+	public Map<Long, List<OrderItemQueryDto>> loadParallel(List<Long> orderIds) {
+		List<CompletableFuture<List<OrderItemQueryDto>>> futures = chunks(orderIds).stream()
+			.map(chunk -> CompletableFuture.supplyAsync(() -> {
+				EntityManager chunkEm = emf.createEntityManager();
+				try {
+					return findChunk(chunkEm, chunk);
+				} finally {
+					chunkEm.close();
+				}
+			}, executor()))
+			.collect(Collectors.toList());
+
+		Map<Long, List<OrderItemQueryDto>> result = new HashMap<>();
+		for (CompletableFuture<List<OrderItemQueryDto>> future : futures) {
+			merge(result, future.join());
+		}
+		return result;
+	}
+
+	// 마지막 chunk는 마지막 id를 반복해서 chunkSize 개로 채운다. ( IN 절 중복 값은 결과에 영향 없음 )
+	List<List<Long>> chunks(List<Long> orderIds) {
+		List<List<Long>> chunks = new ArrayList<>();
+		for (int from = 0; from < orderIds.size(); from += chunkSize) {
+			int to = Math.min(from + chunkSize, orderIds.size());
+			List<Long> chunk = new ArrayList<>(chunkSize);
+			chunk.addAll(orderIds.subList(from, to));
+
+			Long last = chunk.get(chunk.size() - 1);
+			while (chunk.size() < chunkSize) {
+				chunk.add(last);
+			}
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	private List<OrderItemQueryDto> findChunk(EntityManager em, List<Long> chunk) {
+		return em.createQuery(QUERY, OrderItemQueryDto.class)
+			.setParameter("orderIds", chunk)
+			.getResultList();
+	}
+
+	private void merge(Map<Long, List<OrderItemQueryDto>> result, List<OrderItemQueryDto> orderItems) {
+		for (OrderItemQueryDto orderItem : orderItems) {
+			result.computeIfAbsent(orderItem.getOrderId(), id -> new ArrayList<>()).add(orderItem);
+		}
+	}
+
+	private synchronized ExecutorService executor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(threads);
+		}
+		return executor;
+	}
+
+	synchronized boolean isExecutorStarted() {
+		return executor != null;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+}
@@ -1,11 +1,16 @@
 package com.jpabook.jpashop.repository.order.query;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 // >> 19. simplequery처럼 Entity를 가져오는 것이 아닌 특정 화면에 대한 DTO를 직접 가져오는 repository
@@ -13,7 +18,23 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
+	// >> 23. order, orderItem, item 까지 한 번에 join 하는 flat 조회
+	private static final String FLAT_QUERY =
+		"select new com.jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+			" from Order o" +
+			" join o.member m" +
+			" join o.delivery d" +
+			" join o.orderItems oi" +
+			" join oi.item i";
+
+	// OrderFlatAssembler 가 한 번에 묶을 수 있도록 주문 id 순으로 정렬
+	private static final String FLAT_ORDER_BY = " order by o.id, oi.id";
+
+	// export 시 JDBC 드라이버가 한 번에 가져오는 row 수
+	private static final int EXPORT_FETCH_SIZE = 1000;
+
 	private final EntityManager em;
+	private final OrderItemChunkLoader orderItemChunkLoader;
 
 	public List<OrderQueryDto> findOrderQueryDtos() {
 
@@ -41,7 +62,8 @@ public class OrderQueryRepository {
 
 		// 쿼리 2
 		//	in 절을 이용하여 orderItem들을 한 방 쿼리로 가져옴
-		Map<Long, List<OrderItemQueryDto>> orderItemMap = findOrderItemMap(orderIds);
+		//	>> 21-1. 주문이 많으면 id를 고정 크기 chunk로 나눠서 IN 쿼리 ( chunk 수 만큼 쿼리 )
+		Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItemChunkLoader.load(orderIds);
 
 		result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
 
@@ -49,7 +71,8 @@ public class OrderQueryRepository {
 
 	}
 
-	private Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+	// 단일 IN 쿼리 방식 ( 벤치마크 비교용으로 남겨둠 )
+	Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
 		List<OrderItemQueryDto> orderItems = em.createQuery(
 				"select new com.jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
 					" from OrderItem oi" +
@@ -87,13 +110,57 @@ public class OrderQueryRepository {
 
 
 	public List<OrderFlatDto> findAllByDto_flat() {
-		return em.createQuery(
-				"select new com.jpabook.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count" +
-					" from Order o" +
-					" join o.member m" +
-					" join o.delivery d" +
-					" join o.orderItems oi " +
-					" join oi.item i", OrderFlatDto.class)
+		return em.createQuery(FLAT_QUERY + FLAT_ORDER_BY, OrderFlatDto.class)
+			.getResultList();
+	}
+
+	// >> 23-2. flat 조회 + 페이징
+	// row 단위로 limit을 걸면 주문이 중간에 잘리므로 주문 id만 먼저 페이징하고,
+	// 그 id들에 대해서만 flat join 한 뒤 OrderFlatAssembler로 한 번에 묶는다. ( 쿼리 2번, HashMap 없음 )
+	public List<OrderQueryDto> findAllByDto_flatGrouped(int offset, int limit) {
+		List<Long> orderIds = em.createQuery(
+				"select o.id from Order o" +
+					" order by o.id", Long.class)
+			.setFirstResult(offset)
+			.setMaxResults(limit)
+			.getResultList();
+
+		if (orderIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		List<OrderFlatDto> flats = em.createQuery(
+				FLAT_QUERY +
+					" where o.id in :orderIds" +
+					FLAT_ORDER_BY, OrderFlatDto.class)
+			.setParameter("orderIds", orderIds)
 			.getResultList();
+
+		return OrderFlatAssembler.assemble(flats);
+	}
+
+	// >> 24. 대용량 export 용 스트리밍 조회
+	// List로 다 받지 않고 forward-only 커서로 한 row씩 읽는다.
+	// order id 순으로 정렬되어 있으므로 id가 바뀌는 순간 이전 주문이 완성된 것 -> 바로 consumer로 넘긴다. ( OrderFlatAssembler )
+	// DTO 조회라서 영속성 컨텍스트에도 쌓이지 않으므로 힙 사용량은 주문 1건 크기로 일정하다.
+	@Transactional(readOnly = true)
+	public void streamAllByDto_flat(Consumer<OrderQueryDto> consumer) {
+		org.hibernate.query.Query<OrderFlatDto> query = em.createQuery(FLAT_QUERY + FLAT_ORDER_BY, OrderFlatDto.class)
+			.unwrap(org.hibernate.query.Query.class);
+
+		ScrollableResults results = query
+			.setFetchSize(EXPORT_FETCH_SIZE)
+			.setReadOnly(true)
+			.scroll(ScrollMode.FORWARD_ONLY);
+
+		try {
+			OrderFlatAssembler assembler = new OrderFlatAssembler(consumer);
+			while (results.next()) {
+				assembler.add((OrderFlatDto) results.get(0));
+			}
+			assembler.finish();
+		} finally {
+			results.close();
+		}
 	}
 }
@@ -0,0 +1,76 @@
+package com.jpabook.jpashop.repository.order.revenue;
+
+import com.jpabook.jpashop.domain.OrderStatus;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// >> 38. 매출 집계
+// 엔티티를 읽어서 더하지 않고 orders.total_price 를 DB 에서 sum / group by 한다. ( 주문이 100만 건이어도 쿼리 1번 )
+// order_item 은 조인하지 않는다. 기간은 [from, to] ( 날짜 포함 ), 주문일 인덱스로 범위 조회
+@Repository
+public class OrderRevenueRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	// 상태별 주문 수 / 금액 ( 취소 금액은 CANCEL )
+	public List<RevenueByStatusDto> findRevenueByStatus(LocalDate from, LocalDate to) {
+		return em.createQuery(
+				"select new com.jpabook.jpashop.repository.order.revenue.RevenueByStatusDto(o.status, count(o), sum(o.totalPrice))" +
+					" from Order o" +
+					" where o.orderDate >= :from and o.orderDate < :to" +
+					" group by o.status", RevenueByStatusDto.class)
+			.setParameter("from", from.atStartOfDay())
+			.setParameter("to", to.plusDays(1).atStartOfDay())
+			.getResultList();
+	}
+
+	// 회원별 매출 상위 limit 명 ( 취소 제외 )
+	public List<RevenueByMemberDto> findTopMembers(LocalDate from, LocalDate to, int limit) {
+		return em.createQuery(
+				"select new com.jpabook.jpashop.repository.order.revenue.RevenueByMemberDto(m.id, m.name, count(o), sum(o.totalPrice))" +
+					" from Order o" +
+					" join o.member m" +
+					" where o.orderDate >= :from and o.orderDate < :to" +
+					" and o.status = :status" +
+					" group by m.id, m.name" +
+					" order by sum(o.totalPrice) desc", RevenueByMemberDto.class)
+			.setParameter("from", from.atStartOfDay())
+			.setParameter("to", to.plusDays(1).atStartOfDay())
+			.setParameter("status", OrderStatus.ORDER)
+			.setMaxResults(limit)
+			.getResultList();
+	}
+
+	// 일별 매출 ( 취소 제외 )
+	// JPQL 에는 날짜 자르기가 없어서 native 쿼리
+	@SuppressWarnings("unchecked")
+	public List<RevenueByDayDto> findRevenueByDay(LocalDate from, LocalDate to) {
+		List<Object[]> rows = em.createNativeQuery(
+				"select cast(o.order_date as date), count(*), sum(o.total_price)" +
+					" from orders o" +
+					" where o.order_date >= :from and o.order_date < :to" +
+					" and o.status = :status" +
+					" group by cast(o.order_date as date)" +
+					" order by 1")
+			.setParameter("from", from.atStartOfDay())
+			.setParameter("to", to.plusDays(1).atStartOfDay())
+			.setParameter("status", OrderStatus.ORDER.name())
+			.getResultList();
+
+		List<RevenueByDayDto> result = new ArrayList<>(rows.size());
+		for (Object[] row : rows) {
+			result.add(new RevenueByDayDto(
+				((Date) row[0]).toLocalDate(),
+				((Number) row[1]).longValue(),
+				row[2] == null ? 0 : ((Number) row[2]).longValue()));
+		}
+		return result;
+	}
+}
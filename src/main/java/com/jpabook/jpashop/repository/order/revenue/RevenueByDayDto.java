@@ -0,0 +1,15 @@
+package com.jpabook.jpashop.repository.order.revenue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class RevenueByDayDto {
+
+	private LocalDate day;
+	private long orderCount;
+	private long totalPrice;
+}
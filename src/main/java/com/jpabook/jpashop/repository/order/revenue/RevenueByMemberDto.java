@@ -0,0 +1,19 @@
+package com.jpabook.jpashop.repository.order.revenue;
+
+import lombok.Data;
+
+@Data
+public class RevenueByMemberDto {
+
+	private Long memberId;
+	private String name;
+	private long orderCount;
+	private long totalPrice;
+
+	public RevenueByMemberDto(Long memberId, String name, Long orderCount, Long totalPrice) {
+		this.memberId = memberId;
+		this.name = name;
+		this.orderCount = orderCount;
+		this.totalPrice = totalPrice == null ? 0 : totalPrice;
+	}
+}
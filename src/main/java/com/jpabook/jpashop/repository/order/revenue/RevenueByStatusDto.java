@@ -0,0 +1,18 @@
+package com.jpabook.jpashop.repository.order.revenue;
+
+import com.jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+@Data
+public class RevenueByStatusDto {
+
+	private OrderStatus status;
+	private long orderCount;
+	private long totalPrice;
+
+	public RevenueByStatusDto(OrderStatus status, Long orderCount, Long totalPrice) {
+		this.status = status;
+		this.orderCount = orderCount;
+		this.totalPrice = totalPrice == null ? 0 : totalPrice;
+	}
+}
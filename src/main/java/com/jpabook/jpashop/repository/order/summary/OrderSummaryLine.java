@@ -0,0 +1,17 @@
+package com.jpabook.jpashop.repository.order.summary;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// >> 40. OrderSummary.orderItems 에 json 으로 들어가는 주문상품 한 줄
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryLine {
+
+	private Long itemId;
+	private String itemName;
+	private int orderPrice;
+	private int count;
+}
@@ -0,0 +1,116 @@
+package com.jpabook.jpashop.repository.order.summary;
+
+import com.jpabook.jpashop.domain.Member;
+import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.domain.summary.OrderSummary;
+import com.jpabook.jpashop.repository.MemberNameIndex;
+import com.jpabook.jpashop.repository.OrderSearch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+// >> 40. 주문 목록 조회 ( order_summary 한 테이블만, 조인 없음 )
+// 정렬은 order_id ( PK ) 순, 조건은 ( status, order_id ), ( member_id, order_id ) 인덱스로 찾는다.
+@Repository
+@RequiredArgsConstructor
+public class OrderSummaryRepository {
+
+	@PersistenceContext
+	private EntityManager em;
+
+	private final MemberNameIndex memberNameIndex;
+
+	public void save(OrderSummary orderSummary) {
+		em.persist(orderSummary);
+	}
+
+	// 키셋 페이징 ( after 다음 주문부터, after 가 null 이면 처음부터 )
+	public List<OrderSummary> findAfter(Long after, OrderSearch orderSearch, int limit) {
+		StringBuilder jpql = new StringBuilder("select s from OrderSummary s where s.orderId > :after");
+		OrderStatus status = orderSearch.getOrderStatus();
+		if (status != null) {
+			jpql.append(" and s.status = :status");
+		}
+
+		// 회원 이름은 trigram 인덱스로 후보 회원을 먼저 찾고 ( member_id 인덱스 ), 후보는 like 로 한 번 더 확인
+		List<Long> memberIds = null;
+		String memberName = null;
+		if (StringUtils.hasText(orderSearch.getMemberName())) {
+			memberIds = memberNameIndex.findCandidates(orderSearch.getMemberName());
+			if (memberIds != null && memberIds.isEmpty()) {
+				return new ArrayList<>();
+			}
+			if (memberIds != null) {
+				jpql.append(" and s.memberId in :memberIds");
+			}
+			memberName = "%" + Member.normalizeName(orderSearch.getMemberName()) + "%";
+			jpql.append(" and s.memberNormalizedName like :memberName");
+		}
+		jpql.append(" order by s.orderId");
+
+		TypedQuery<OrderSummary> query = em.createQuery(jpql.toString(), OrderSummary.class)
+			.setParameter("after", after == null ? 0L : after)
+			.setMaxResults(limit);
+		if (status != null) {
+			query.setParameter("status", status);
+		}
+		if (memberIds != null) {
+			query.setParameter("memberIds", memberIds);
+		}
+		if (memberName != null) {
+			query.setParameter("memberName", memberName);
+		}
+		return query.getResultList();
+	}
+
+	public OrderSummary findOne(Long orderId) {
+		return em.find(OrderSummary.class, orderId);
+	}
+
+	//== 이벤트 반영 ( 엔티티를 읽지 않고 bulk update ) ==//
+
+	public int updateStatus(Long orderId, OrderStatus status) {
+		return em.createQuery(
+				"update OrderSummary s set s.status = :status where s.orderId = :orderId")
+			.setParameter("status", status)
+			.setParameter("orderId", orderId)
+			.executeUpdate();
+	}
+
+	public int updateMemberName(Long memberId, String name) {
+		return em.createQuery(
+				"update OrderSummary s" +
+					" set s.memberName = :name, s.memberNormalizedName = :normalizedName" +
+					" where s.memberId = :memberId")
+			.setParameter("name", name)
+			.setParameter("normalizedName", Member.normalizeName(name))
+			.setParameter("memberId", memberId)
+			.executeUpdate();
+	}
+
+	//== 재구성 ( 범위 단위로 지우고 다시 넣는다 ) ==//
+
+	public int deleteRange(long from, long to) {
+		return em.createQuery("delete from OrderSummary s where s.orderId between :from and :to")
+			.setParameter("from", from)
+			.setParameter("to", to)
+			.executeUpdate();
+	}
+
+	// 주문 테이블에서 지워진 주문의 row ( 가장 작은 주문 id 보다 앞 )
+	public int deleteBefore(long orderId) {
+		return em.createQuery("delete from OrderSummary s where s.orderId < :orderId")
+			.setParameter("orderId", orderId)
+			.executeUpdate();
+	}
+
+	public int deleteAll() {
+		return em.createQuery("delete from OrderSummary").executeUpdate();
+	}
+}
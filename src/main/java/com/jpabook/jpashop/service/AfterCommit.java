@@ -0,0 +1,26 @@
+package com.jpabook.jpashop.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 트랜잭션이 커밋된 다음에 실행해야 하는 작업 ( 캐시 무효화 등 )
+// 커밋 전에 실행하면 다른 요청이 아직 커밋 안 된(이전) 데이터로 캐시를 다시 채울 수 있다.
+// 롤백되면 실행하지 않는다.
+final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    static void run(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.jpabook.jpashop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jpabook.jpashop.repository.OutboxMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// >> 41. 파일 싱크 ( 이벤트 한 건을 json 한 줄로 이어 쓴다, batch 마다 flush 한 번 )
+@Component
+@ConditionalOnProperty(name = "jpashop.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectWriter writer;
+    private final OutputStream out;
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${jpashop.outbox.file:outbox-events.ndjson}") String file) throws IOException {
+        this.writer = objectMapper.writerFor(OutboxMessage.class);
+        Path path = Paths.get(file);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.out = new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), 64 * 1024);
+    }
+
+    @Override
+    public synchronized void send(List<OutboxMessage> messages) throws IOException {
+        for (OutboxMessage message : messages) {
+            out.write(writer.writeValueAsBytes(message));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,35 @@
+package com.jpabook.jpashop.service;
+
+import lombok.Getter;
+
+// >> 36. 대량 등록 진행 상황 ( chunk 가 커밋될 때마다 갱신 )
+@Getter
+public class ImportProgress {
+
+    private long processed;     // 커밋까지 끝난 줄 수
+    private long inserted;
+    private long updated;
+    private long skipped;       // isbn, 이름이 없거나 값이 잘못된 줄, 같은 chunk 안에서 뒤에 같은 isbn 이 또 나온 줄
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    private boolean done;
+
+    void skip() {
+        skipped++;
+    }
+
+    void committed(int inserted, int updated, int skipped, long startNanos) {
+        this.inserted += inserted;
+        this.updated += updated;
+        this.skipped += skipped;
+        this.processed += inserted + updated;
+        this.elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        this.rowsPerSecond = processed * 1000 / Math.max(elapsedMillis, 1);
+    }
+
+    void finish(long startNanos) {
+        this.elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        this.rowsPerSecond = processed * 1000 / Math.max(elapsedMillis, 1);
+        this.done = true;
+    }
+}
@@ -0,0 +1,45 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.repository.OutboxMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// >> 41. 메모리 싱크 ( 기본값, 테스트 / 개발용 )
+// 최근 capacity 개만 들고 있고 전체 건수는 따로 센다.
+@Component
+@ConditionalOnProperty(name = "jpashop.outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOutboxSink implements OutboxSink {
+
+    private final int capacity;
+    private final Deque<OutboxMessage> recent = new ArrayDeque<>();
+    private long sentCount;
+
+    public InMemoryOutboxSink(@Value("${jpashop.outbox.memory-capacity:10000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void send(List<OutboxMessage> messages) {
+        for (OutboxMessage message : messages) {
+            if (recent.size() == capacity) {
+                recent.removeFirst();
+            }
+            recent.addLast(message);
+        }
+        sentCount += messages.size();
+    }
+
+    public synchronized List<OutboxMessage> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    public synchronized long getSentCount() {
+        return sentCount;
+    }
+}
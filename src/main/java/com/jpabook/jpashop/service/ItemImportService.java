@@ -0,0 +1,93 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.repository.BookImportLine;
+import com.jpabook.jpashop.repository.ItemBulkRepository;
+import com.jpabook.jpashop.repository.ItemSearchIndex;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+// >> 36. 책 대량 등록
+// 입력을 한 줄씩 읽어서 chunkSize 개씩 모아 upsert ( 메모리에는 chunk 하나만 )
+// 트랜잭션은 chunk 마다 ItemBulkRepository 가 따로 잡으므로 여기에는 @Transactional 을 걸지 않는다.
+@Slf4j
+@Service
+public class ItemImportService {
+
+    private final ItemBulkRepository itemBulkRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final OrderQueryResultCache orderQueryResultCache;
+    private final EntityManagerFactory emf;
+    private final int chunkSize;
+
+    public ItemImportService(ItemBulkRepository itemBulkRepository, ItemSearchIndex itemSearchIndex,
+                             OrderQueryResultCache orderQueryResultCache, EntityManagerFactory emf,
+                             @Value("${jpashop.import.chunk-size:1000}") int chunkSize) {
+        this.itemBulkRepository = itemBulkRepository;
+        this.itemSearchIndex = itemSearchIndex;
+        this.orderQueryResultCache = orderQueryResultCache;
+        this.emf = emf;
+        this.chunkSize = chunkSize;
+    }
+
+    // chunk 가 커밋될 때마다 listener 로 진행 상황을 알려준다.
+    public ImportProgress importBooks(Iterator<BookImportLine> lines, Consumer<ImportProgress> listener) {
+        long start = System.nanoTime();
+        ImportProgress progress = new ImportProgress();
+        List<BookImportLine> chunk = new ArrayList<>(chunkSize);
+
+        while (lines.hasNext()) {
+            BookImportLine line = lines.next();
+            if (!line.isValid()) {
+                progress.skip();
+                continue;
+            }
+            chunk.add(line);
+            if (chunk.size() == chunkSize) {
+                commit(chunk, progress, start, listener);
+            }
+        }
+        commit(chunk, progress, start, listener);
+
+        progress.finish(start);
+        log.info("book import finished. inserted={}, updated={}, skipped={}, elapsed={}ms, rowsPerSecond={}",
+                progress.getInserted(), progress.getUpdated(), progress.getSkipped(),
+                progress.getElapsedMillis(), progress.getRowsPerSecond());
+        listener.accept(progress);
+        return progress;
+    }
+
+    private void commit(List<BookImportLine> chunk, ImportProgress progress, long start,
+                        Consumer<ImportProgress> listener) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        ItemBulkRepository.UpsertCount count = itemBulkRepository.upsertBooks(chunk);
+        chunk.clear();
+
+        // 커밋된 chunk 의 상품만 2차 캐시에서 빼고 검색 색인을 고친다. ( 뒤 chunk 가 실패해도 앞 chunk 는 맞춰져 있음 )
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+        for (Long itemId : count.getItemIds()) {
+            cache.evictEntityData(Item.class, itemId);
+        }
+        itemSearchIndex.index(count.getItemIds());
+
+        // >> 27. 기존 상품 이름 / 가격이 바뀌었으면 주문 목록 결과 캐시 무효화 ( chunk 는 upsertBooks 안에서 이미 커밋됨 )
+        if (count.getUpdated() > 0) {
+            AfterCommit.run(orderQueryResultCache::invalidate);
+        }
+
+        progress.committed(count.getInserted(), count.getUpdated(), count.getSkipped(), start);
+        listener.accept(progress);
+    }
+}
@@ -3,19 +3,33 @@ package com.jpabook.jpashop.service;
 import com.jpabook.jpashop.domain.item.Book;
 import com.jpabook.jpashop.domain.item.Item;
 import com.jpabook.jpashop.repository.ItemRepository;
+import com.jpabook.jpashop.repository.ItemSearchIndex;
+import com.jpabook.jpashop.repository.ItemSearchResult;
+import com.jpabook.jpashop.repository.StockShardRepository;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final StockShardRepository stockShardRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final OrderQueryResultCache orderQueryResultCache;
 
-    public ItemService(ItemRepository itemRepository) {
+    public ItemService(ItemRepository itemRepository, StockShardRepository stockShardRepository,
+                       ItemSearchIndex itemSearchIndex, OrderQueryResultCache orderQueryResultCache) {
         this.itemRepository = itemRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.itemSearchIndex = itemSearchIndex;
+        this.orderQueryResultCache = orderQueryResultCache;
     }
 
 
@@ -28,7 +42,13 @@ public class ItemService {
         // 아래처럼 값을 셋팅하게 되면
         findItem.setPrice(price);
         findItem.setName(name);
-        findItem.setStockQuantity(stockQuantity);
+        if (findItem.isStockSharded()) {
+            // >> 33. 분할 재고는 샤드를 다시 나눈다.
+            stockShardRepository.removeAll(itemId);
+            stockShardRepository.distribute(findItem, stockQuantity, findItem.getStockShardCount());
+        } else {
+            findItem.setStockQuantity(stockQuantity);
+        }
 
         // @Transactional에 의해서 commit이 되고 flush를 날리게 된다.
         // flush를 날리면 변경된 부분을 찾게 되고 JPA는 그 변경된 부분에 대해
@@ -36,17 +56,70 @@ public class ItemService {
 
         // merge를 쓰기보다 변경 감지를 쓴다.
 
+        // >> 31. 커밋되면 검색 색인도 수정
+        AfterCommit.run(() -> itemSearchIndex.index(findItem));
+        // >> 27. 주문 목록 결과에 상품 이름 / 가격이 들어가므로 결과 캐시도 무효화
+        AfterCommit.run(orderQueryResultCache::invalidate);
+    }
+
+    // >> 33. 재고 분할 ( 주문이 몰리는 상품만 )
+    // shardCount 개의 StockShard 로 재고를 나누고, 1 이하면 분할을 해제해서 item 재고로 되돌린다.
+    @Transactional
+    public void shardStock(Long itemId, int shardCount) {
+        if (shardCount < 0) {
+            throw new IllegalArgumentException("샤드 개수는 0 이상이어야 합니다.");
+        }
+        Item item = itemRepository.findOneForUpdate(itemId);
+
+        int quantity = item.isStockSharded() ? stockShardRepository.removeAll(itemId) : item.getStockQuantity();
+        if (shardCount > 1) {
+            item.setStockQuantity(0);
+            item.setStockShardCount(shardCount);
+            stockShardRepository.distribute(item, quantity, shardCount);
+        } else {
+            item.setStockQuantity(quantity);
+            item.setStockShardCount(0);
+        }
     }
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        AfterCommit.run(() -> itemSearchIndex.index(item));
+    }
+
+    // >> 31. 상품 검색 ( 메모리 색인, DB 조회 없음 )
+    public ItemSearchResult searchItems(String query, int offset, int limit) {
+        return itemSearchIndex.search(query, offset, limit);
     }
 
     public List<Item> findItems() {
         return itemRepository.findAll();
     }
 
+    // >> 33. 재고 수량 ( 분할 재고는 샤드 합계를 DB 에서 읽는다 )
+    public int getStockQuantity(Long itemId) {
+        Item item = itemRepository.findOne(itemId);
+        return item.isStockSharded() ? stockShardRepository.sumQuantity(itemId) : item.getStockQuantity();
+    }
+
+    // 상품 목록의 재고 수량 ( 상품 id -> 재고, 분할 재고 상품만 샤드 합계 쿼리 한 번 )
+    public Map<Long, Integer> getStockQuantities(List<Item> items) {
+        List<Long> shardedIds = items.stream()
+                .filter(Item::isStockSharded)
+                .map(Item::getId)
+                .collect(Collectors.toList());
+        Map<Long, Integer> sharded = stockShardRepository.sumQuantities(shardedIds);
+
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Item item : items) {
+            quantities.put(item.getId(), item.isStockSharded()
+                    ? sharded.getOrDefault(item.getId(), 0)
+                    : item.getStockQuantity());
+        }
+        return quantities;
+    }
+
     public Item findOne(Long itemId) {
         return itemRepository.findOne(itemId);
     }
@@ -1,39 +1,99 @@
 package com.jpabook.jpashop.service;
 
 import com.jpabook.jpashop.domain.Member;
+import com.jpabook.jpashop.domain.event.MemberUpdatedEvent;
+import com.jpabook.jpashop.repository.MemberNameIndex;
 import com.jpabook.jpashop.repository.MemberRepository;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)  // 기본적으로 트랜잭션 안에서 DB 변경되어야 하는 경우라면 필요
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final OrderQueryResultCache orderQueryResultCache;
+    private final MemberNameIndex memberNameIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public MemberService(MemberRepository memberRepository) {
+    public MemberService(MemberRepository memberRepository, OrderQueryResultCache orderQueryResultCache,
+                         MemberNameIndex memberNameIndex, ApplicationEventPublisher eventPublisher) {
         this.memberRepository = memberRepository;
+        this.orderQueryResultCache = orderQueryResultCache;
+        this.memberNameIndex = memberNameIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     //회원 가입
+    // >> 29. 이름으로 미리 조회(풀스캔)하지 않고 normalized_name 유니크 인덱스에 맡긴다.
+    //  - 회원 수가 늘어나도 가입 속도가 일정하고, 동시에 같은 이름으로 가입해도 하나만 성공한다.
     @Transactional(readOnly = false) // 회원가입 시 내용이 수정되므로 false
     public Long join(Member member) {
-        validateDuplicateMember(member);    // 회원가입 시 중복된 회원일 경우 검증하여 중복 배제
         memberRepository.save(member);
+        flushOrThrowDuplicate();    // 중복된 회원이면 여기서 예외
+
+        // >> 30. 커밋되면 회원 이름 검색 인덱스에 추가
+        AfterCommit.run(() -> memberNameIndex.add(member.getId(), member.getName()));
 
         return member.getId();
     }
 
-    private void validateDuplicateMember(Member member) {
-        // EXCEPTION
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-
-        if (!findMembers.isEmpty()) {
+    // >> 29-1. 여러 명 일괄 가입
+    // 이름 전체를 IN 쿼리로 한 번에 검사하고 ( 회원마다 조회 X ), 마지막 방어는 유니크 인덱스가 한다.
+    @Transactional
+    public List<Long> joinAll(List<Member> members) {
+        Set<String> names = new HashSet<>();
+        for (Member member : members) {
+            if (!names.add(member.getNormalizedName())) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.");
+            }
+        }
+        if (!memberRepository.findExistingNormalizedNames(names).isEmpty()) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
+
+        members.forEach(memberRepository::save);
+        flushOrThrowDuplicate();
+
+        AfterCommit.run(() -> members.forEach(m -> memberNameIndex.add(m.getId(), m.getName())));
+
+        return members.stream()
+                .map(Member::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void flushOrThrowDuplicate() {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (isDuplicateName(e)) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+            }
+            throw e;
+        }
+    }
+
+    // 유니크 인덱스 위반인지 확인 ( 제약조건 이름을 못 꺼내는 DB면 중복으로 간주 )
+    private boolean isDuplicateName(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                return constraintName == null
+                        || constraintName.toLowerCase(Locale.ROOT).contains("uk_member_normalized_name");
+            }
+        }
+        return false;
     }
 
     // 회원 전체 조회
@@ -51,6 +111,16 @@ public class MemberService {
     @Transactional
     public void update(Long id, String name) {
 		Member member = memberRepository.findOne(id);
+		String oldName = member.getName();
 		member.setName(name);	// 변경감지에 의해 수정이 됨
+		flushOrThrowDuplicate();	// 다른 회원과 이름이 겹치면 예외
+
+		// >> 40. 주문 목록 read model 의 회원 이름도 같은 트랜잭션에서 변경
+		eventPublisher.publishEvent(new MemberUpdatedEvent(id, name));
+
+		AfterCommit.run(() -> memberNameIndex.update(id, oldName, name));
+
+		// 주문 목록에 회원 이름이 들어가므로 결과 캐시도 무효화
+		AfterCommit.run(orderQueryResultCache::invalidate);
 	}
 }
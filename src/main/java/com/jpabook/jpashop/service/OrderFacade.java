@@ -0,0 +1,68 @@
+package com.jpabook.jpashop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// >> 32-1. 낙관적 락 충돌 ( + 락 대기 시간 초과 등 동시성 예외 ) 시 재시도
+// 충돌은 커밋할 때 나므로 트랜잭션 밖에서 OrderService 를 다시 호출해야 한다. ( 새 트랜잭션에서 최신 재고로 다시 계산 )
+// 무한히 재시도하지 않도록 maxAttempts 번까지만, 시도 사이에 조금씩 늘어나는 랜덤 대기
+@Slf4j
+@Service
+public class OrderFacade {
+
+    private final OrderService orderService;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OrderFacade(OrderService orderService,
+                       @Value("${jpashop.order.max-attempts:3}") int maxAttempts,
+                       @Value("${jpashop.order.backoff-millis:10}") long backoffMillis) {
+        this.orderService = orderService;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public Long order(Long memberId, Long itemId, int count) {
+        return retry(() -> orderService.order(memberId, itemId, count));
+    }
+
+    public Long checkout(Long memberId, List<OrderLine> lines) {
+        return retry(() -> orderService.checkout(memberId, lines));
+    }
+
+    public void cancelOrder(Long orderId) {
+        retry(() -> {
+            orderService.cancelOrder(orderId);
+            return null;
+        });
+    }
+
+    private <T> T retry(Supplier<T> task) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return task.get();
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("optimistic lock conflict, retry {}/{}", attempt, maxAttempts);
+                sleep(ThreadLocalRandom.current().nextLong(backoffMillis * attempt + 1));
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("주문 재시도 중 인터럽트", e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.jpabook.jpashop.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// >> 37. 비동기 주문 접수 ( group commit )
+// 요청마다 트랜잭션 / 커넥션을 잡지 않고 대기열에 넣은 뒤 접수표(ticket)만 바로 돌려준다.
+// 워커가 대기열에서 최대 batchSize 건씩 꺼내서 한 트랜잭션으로 주문하고 한 번에 커밋한다.
+//  - 대기열이 가득 차면 OrderIntakeFullException ( 요청이 쌓이기만 하고 처리 지연이 끝없이 늘어나지 않도록 )
+//  - 묶음 중 한 건이라도 실패하면 ( 재고 부족 등 ) 묶음 전체가 롤백되므로 한 건씩 다시 처리해서 실패한 건만 FAILED
+//  - 대기열은 워커마다 하나, 주문은 상품 id 로 대기열을 고른다. ( 한 상품의 주문은 항상 같은 워커가 처리 )
+//    낙관적 락 ( @Version ) 으로 재고를 차감하므로 두 워커가 같은 상품을 동시에 주문하면 한쪽 묶음이 통째로 롤백되기 때문
+//  - 묶음 안에서는 회원 id, 상품 id 순으로 주문 ( 워커끼리 같이 쓰는 회원 집계 row 의 락을 같은 순서로 잡아서 데드락 방지 )
+//  - 입력 검증 ( 회원 / 상품 id, 수량 ) 은 API 요청에서 ( OrderIntakeApiController.IntakeRequest )
+// 메모리 대기열이므로 서버가 죽으면 접수만 되고 처리되지 않은 주문은 사라진다. ( 종료 시에는 남은 대기열을 처리하고 끝냄 )
+@Slf4j
+@Service
+public class OrderIntake {
+
+    private final OrderService orderService;
+    private final OrderFacade orderFacade;
+    private final TransactionTemplate transactionTemplate;
+    private final List<BlockingQueue<OrderTicket>> queues = new ArrayList<>();
+    private final Cache<String, OrderTicket> tickets;
+    private final int batchSize;
+    private final int workers;
+    private final long retryAfterSeconds;
+
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+
+    public OrderIntake(OrderService orderService, OrderFacade orderFacade, PlatformTransactionManager transactionManager,
+                       @Value("${jpashop.order-intake.queue-capacity:10000}") int queueCapacity,
+                       @Value("${jpashop.order-intake.batch-size:100}") int batchSize,
+                       @Value("${jpashop.order-intake.workers:2}") int workers,
+                       @Value("${jpashop.order-intake.retry-after-seconds:1}") long retryAfterSeconds,
+                       @Value("${jpashop.order-intake.ticket-ttl-minutes:10}") long ticketTtlMinutes) {
+        this.orderService = orderService;
+        this.orderFacade = orderFacade;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // 워커 없이 만들어도 ( 테스트 ) 접수는 되도록 대기열은 최소 하나, 전체 용량은 대기열끼리 나눈다.
+        int partitions = Math.max(workers, 1);
+        for (int i = 0; i < partitions; i++) {
+            queues.add(new ArrayBlockingQueue<>(Math.max(queueCapacity / partitions, 1)));
+        }
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ticketTtlMinutes))
+                .build();
+        this.batchSize = batchSize;
+        this.workers = workers;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            BlockingQueue<OrderTicket> queue = queues.get(i);
+            Thread thread = new Thread(() -> work(queue), "order-intake-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+    }
+
+    // 남은 대기열까지 처리하고 종료
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : workerThreads) {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    public OrderTicket submit(Long memberId, Long itemId, int count) {
+        OrderTicket ticket = new OrderTicket(UUID.randomUUID().toString(), memberId, itemId, count);
+        tickets.put(ticket.getId(), ticket);
+        if (!queueOf(itemId).offer(ticket)) {
+            tickets.invalidate(ticket.getId());
+            throw new OrderIntakeFullException(retryAfterSeconds);
+        }
+        return ticket;
+    }
+
+    // 없거나 만료된 접수표면 null
+    public OrderTicket findTicket(String ticketId) {
+        return tickets.getIfPresent(ticketId);
+    }
+
+    public int getQueueSize() {
+        return queues.stream().mapToInt(BlockingQueue::size).sum();
+    }
+
+    private BlockingQueue<OrderTicket> queueOf(Long itemId) {
+        return queues.get(Math.floorMod(itemId.hashCode(), queues.size()));
+    }
+
+    private void work(BlockingQueue<OrderTicket> queue) {
+        List<OrderTicket> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OrderTicket first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("order intake worker failed", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void process(List<OrderTicket> batch) {
+        List<OrderTicket> sorted = new ArrayList<>(batch);
+        sorted.sort(Comparator.comparing(OrderTicket::getMemberId).thenComparing(OrderTicket::getItemId));
+
+        List<Long> orderIds;
+        try {
+            orderIds = transactionTemplate.execute(status -> {
+                List<Long> ids = new ArrayList<>(sorted.size());
+                for (OrderTicket ticket : sorted) {
+                    ids.add(orderService.order(ticket.getMemberId(), ticket.getItemId(), ticket.getCount()));
+                }
+                return ids;
+            });
+        } catch (RuntimeException e) {
+            log.debug("order batch rolled back, retry one by one. size={}, cause={}", sorted.size(), e.toString());
+            processOneByOne(sorted);
+            return;
+        }
+
+        // 커밋된 뒤에 완료 처리
+        for (int i = 0; i < sorted.size(); i++) {
+            sorted.get(i).complete(orderIds.get(i));
+        }
+    }
+
+    private void processOneByOne(List<OrderTicket> tickets) {
+        for (OrderTicket ticket : tickets) {
+            try {
+                ticket.complete(orderFacade.order(ticket.getMemberId(), ticket.getItemId(), ticket.getCount()));
+            } catch (RuntimeException e) {
+                ticket.fail(e.getMessage());
+            }
+        }
+    }
+}
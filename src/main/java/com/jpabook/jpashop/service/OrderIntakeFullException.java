@@ -0,0 +1,16 @@
+package com.jpabook.jpashop.service;
+
+// >> 37. 주문 접수 대기열이 가득 참 ( 503 + Retry-After )
+public class OrderIntakeFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OrderIntakeFullException(long retryAfterSeconds) {
+        super("주문이 많아 잠시 후 다시 시도해 주세요.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package com.jpabook.jpashop.service;
+
+import lombok.Getter;
+
+// >> 34. 장바구니 주문 한 줄 ( 상품, 수량 )
+@Getter
+public class OrderLine {
+
+    private final Long itemId;
+    private final int count;
+
+    public OrderLine(Long itemId, int count) {
+        this.itemId = itemId;
+        this.count = count;
+    }
+}
@@ -9,10 +9,20 @@ import com.jpabook.jpashop.repository.ItemRepository;
 import com.jpabook.jpashop.repository.MemberRepository;
 import com.jpabook.jpashop.repository.OrderRepository;
 import com.jpabook.jpashop.repository.OrderSearch;
+import com.jpabook.jpashop.repository.SalesRollupRepository;
+import com.jpabook.jpashop.repository.StockShardRepository;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -21,11 +31,24 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final StockShardRepository stockShardRepository;
+    private final OrderQueryResultCache orderQueryResultCache;
+    private final SalesRollupRepository salesRollupRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockMode stockMode;
 
-    public OrderService(OrderRepository orderRepository, MemberRepository memberRepository, ItemRepository itemRepository) {
+    public OrderService(OrderRepository orderRepository, MemberRepository memberRepository, ItemRepository itemRepository,
+                        StockShardRepository stockShardRepository, OrderQueryResultCache orderQueryResultCache,
+                        SalesRollupRepository salesRollupRepository, ApplicationEventPublisher eventPublisher,
+                        @Value("${jpashop.order.stock-mode:optimistic}") StockMode stockMode) {
         this.orderRepository = orderRepository;
         this.memberRepository = memberRepository;
         this.itemRepository = itemRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.orderQueryResultCache = orderQueryResultCache;
+        this.salesRollupRepository = salesRollupRepository;
+        this.eventPublisher = eventPublisher;
+        this.stockMode = stockMode;
     }
 
     /*
@@ -46,8 +69,8 @@ public class OrderService {
         Delivery delivery = new Delivery();
         delivery.setAddress(member.getAddress());
 
-        // 주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        // 주문상품 생성 ( 재고 차감 방식에 따라 )
+        OrderItem orderItem = createOrderItem(item, count);
 
         // 주문생성
         Order order = Order.createOrder(member, delivery, orderItem);
@@ -57,21 +80,118 @@ public class OrderService {
         // 자동으로 persist가 된다.
         orderRepository.save(order);
 
+        // >> 39. 판매 집계도 같은 트랜잭션에서
+        salesRollupRepository.addOrder(order);
+
+        // >> 40. 주문 생성 이벤트 ( 주문 목록 read model 은 커밋 직전에 반영 )
+        publishEvents(order);
+
+        // 커밋되면 주문 목록 결과 캐시 무효화
+        AfterCommit.run(orderQueryResultCache::invalidate);
+
+        return order.getId();
+    }
+
+    // >> 34. 장바구니 주문 ( 여러 상품을 주문 1건, 트랜잭션 1번으로 )
+    //  - 같은 상품이 여러 줄이면 수량을 합친다.
+    //  - 상품은 IN 쿼리 한 번으로 가져오고, 재고는 상품 id 순으로 차감 ( 주문끼리 락을 같은 순서로 잡아서 데드락 방지 )
+    //  - 주문 / 주문상품 / 배송 insert 는 JDBC batch 로 ( hibernate.jdbc.batch_size, order_inserts )
+    //  - 재고가 하나라도 모자라면 전체 롤백
+    @Transactional
+    public Long checkout(Long memberId, List<OrderLine> lines) {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("주문할 상품이 없습니다.");
+        }
+
+        SortedMap<Long, Integer> counts = new TreeMap<>();
+        for (OrderLine line : lines) {
+            if (line.getCount() <= 0) {
+                throw new IllegalArgumentException("주문 수량은 1개 이상이어야 합니다.");
+            }
+            counts.merge(line.getItemId(), line.getCount(), Integer::sum);
+        }
+
+        Member member = memberRepository.findOne(memberId);
+        Map<Long, Item> items = itemRepository.findAllById(counts.keySet()).stream()
+                .collect(Collectors.toMap(Item::getId, item -> item));
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        counts.forEach((itemId, count) -> {
+            Item item = items.get(itemId);
+            if (item == null) {
+                throw new IllegalArgumentException("존재하지 않는 상품입니다. itemId=" + itemId);
+            }
+            orderItems.add(createOrderItem(item, count));
+        });
+
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+
+        Order order = Order.createOrder(member, delivery, orderItems.toArray(new OrderItem[0]));
+        orderRepository.save(order);
+        salesRollupRepository.addOrder(order);
+        publishEvents(order);
+
+        AfterCommit.run(orderQueryResultCache::invalidate);
+
         return order.getId();
     }
 
+    // >> 32, 33. 재고 차감 ( 모자라면 NotEnoughStockException )
+    //  - 분할 재고 상품 : 샤드 하나를 골라서 조건부 update ( item row 는 건드리지 않음 )
+    //  - atomic : item row 조건부 update ( 읽어 온 item 엔티티는 예전 재고라서 영속성 컨텍스트 / 2차 캐시에서 뺀다 )
+    //  - optimistic : 엔티티 removeStock ( @Version 충돌 시 OrderFacade 가 재시도 )
+    private OrderItem createOrderItem(Item item, int count) {
+        if (item.isStockSharded()) {
+            Map<Integer, Integer> taken = stockShardRepository.decrease(item.getId(), item.getStockShardCount(), count);
+            OrderItem orderItem = OrderItem.createStockReservedOrderItem(item, item.getPrice(), count);
+            orderItem.reserveStockShards(taken);
+            return orderItem;
+        }
+        if (stockMode == StockMode.ATOMIC) {
+            itemRepository.decreaseStock(item, count);
+            return OrderItem.createStockReservedOrderItem(item, item.getPrice(), count);
+        }
+        return OrderItem.createOrderItem(item, item.getPrice(), count);
+    }
+
     // 취소
     @Transactional
     public void cancelOrder(Long orderId) {
         //주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
 
-        //주문 취소
-        order.cancel();
+        //주문 취소 ( atomic 이면 엔티티로 읽고 더하지 않고 아래에서 조건부 update 로 반환 )
+        boolean atomic = stockMode == StockMode.ATOMIC;
+        order.cancel(!atomic);
+        salesRollupRepository.removeOrder(order);
+        publishEvents(order);
+
+        // >> 33. 분할 재고 상품은 차감했던 샤드마다 뺀 만큼 반환 ( 그 사이 분할이 해제되었으면 item 재고로 )
+        for (OrderItem orderItem : order.getOrderItems()) {
+            Item item = orderItem.getItem();
+            if (orderItem.getStockShardNo() == null) {
+                if (atomic) {
+                    itemRepository.increaseStock(item, orderItem.getCount());
+                }
+                continue;
+            }
+            orderItem.getReservedStockShards().forEach((shardNo, count) -> {
+                if (!stockShardRepository.increase(item.getId(), shardNo, count)) {
+                    itemRepository.increaseStock(item, count);
+                }
+            });
+        }
+
+        AfterCommit.run(orderQueryResultCache::invalidate);
+    }
+
+    private void publishEvents(Order order) {
+        order.pullDomainEvents().forEach(eventPublisher::publishEvent);
     }
 
     // 검색
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+        return orderRepository.findAllBySearch(orderSearch);
     }
 }
@@ -0,0 +1,87 @@
+package com.jpabook.jpashop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.domain.OrderItem;
+import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.domain.event.MemberUpdatedEvent;
+import com.jpabook.jpashop.domain.event.OrderCanceledEvent;
+import com.jpabook.jpashop.domain.event.OrderPlacedEvent;
+import com.jpabook.jpashop.domain.summary.OrderSummary;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryLine;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// >> 40. 도메인 이벤트로 주문 목록 read model ( OrderSummary ) 갱신
+// 커밋 직전 ( BEFORE_COMMIT ) 에 같은 트랜잭션으로 반영하므로 주문과 목록이 어긋나지 않는다. ( 롤백되면 같이 롤백 )
+// 주문 생성 시점에는 회원 / 배송 / 상품이 이미 영속성 컨텍스트에 있어서 추가 조회가 없다.
+@Component
+public class OrderSummaryProjector {
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final ObjectWriter linesWriter;
+
+    public OrderSummaryProjector(OrderSummaryRepository orderSummaryRepository, ObjectMapper objectMapper) {
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.linesWriter = objectMapper.writerFor(
+                TypeFactory.defaultInstance().constructCollectionType(List.class, OrderSummaryLine.class));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void on(OrderPlacedEvent event) {
+        Order order = event.getOrder();
+        orderSummaryRepository.save(toSummary(order, order.getOrderItems()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void on(OrderCanceledEvent event) {
+        orderSummaryRepository.updateStatus(event.getOrder().getId(), OrderStatus.CANCEL);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void on(MemberUpdatedEvent event) {
+        orderSummaryRepository.updateMemberName(event.getMemberId(), event.getName());
+    }
+
+    // 재구성 ( OrderSummaryRebuilder ) 에서도 사용, 회원 / 배송이 없는 주문도 만든다.
+    OrderSummary toSummary(Order order, List<OrderItem> orderItems) {
+        OrderSummary summary = new OrderSummary();
+        summary.setOrderId(order.getId());
+        if (order.getMember() != null) {
+            summary.setMemberId(order.getMember().getId());
+            summary.setMemberName(order.getMember().getName());
+            summary.setMemberNormalizedName(order.getMember().getNormalizedName());
+        }
+        if (order.getDelivery() != null) {
+            summary.setAddress(order.getDelivery().getAddress());
+        }
+        summary.setOrderDate(order.getOrderDate());
+        summary.setStatus(order.getStatus());
+        summary.setTotalPrice(order.getTotalPrice());
+
+        List<OrderSummaryLine> lines = new ArrayList<>(orderItems.size());
+        for (OrderItem orderItem : orderItems) {
+            lines.add(new OrderSummaryLine(orderItem.getItem().getId(), orderItem.getItem().getName(),
+                    orderItem.getOrderPrice(), orderItem.getCount()));
+        }
+        if (!lines.isEmpty()) {
+            summary.setFirstItemName(lines.get(0).getItemName());
+            summary.setFirstOrderPrice(lines.get(0).getOrderPrice());
+            summary.setFirstCount(lines.get(0).getCount());
+        }
+        try {
+            summary.setOrderItems(linesWriter.writeValueAsString(lines));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,139 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.domain.OrderItem;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// >> 40. 주문 목록 read model 을 주문 테이블에서 다시 만든다.
+// 주문 id 범위를 chunkSize 씩 나눠서 여러 스레드가 범위마다 트랜잭션 하나로 만든다.
+//  - 범위마다 쿼리 2번 ( 주문 + 회원 + 배송 fetch join, 주문상품 + 상품 fetch join ), insert 는 JDBC batch
+//  - 테이블을 먼저 비우지 않고 범위마다 같은 트랜잭션에서 지우고 다시 넣는다.
+//    조회하는 쪽은 그 범위의 예전 row 또는 새 row 를 보고, 목록이 비어 보이는 순간이 없다.
+//  - 시작할 때 읽은 가장 큰 주문 id 뒤의 주문 ( 재구성 중 들어온 주문 ) 은 이벤트로 반영된 row 를 그대로 둔다.
+// 실행 : --rebuild-order-summary 옵션으로 시작하거나 rebuild() 호출
+@Slf4j
+@Service
+public class OrderSummaryRebuilder implements ApplicationRunner {
+
+    static final String OPTION = "rebuild-order-summary";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderSummaryProjector orderSummaryProjector;
+    private final TransactionTemplate transactionTemplate;
+    private final int threads;
+    private final int chunkSize;
+
+    public OrderSummaryRebuilder(OrderSummaryRepository orderSummaryRepository, OrderSummaryProjector orderSummaryProjector,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${jpashop.order-summary.rebuild-threads:4}") int threads,
+                                 @Value("${jpashop.order-summary.rebuild-chunk-size:1000}") int chunkSize) {
+        this.orderSummaryRepository = orderSummaryRepository;
+        this.orderSummaryProjector = orderSummaryProjector;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption(OPTION)) {
+            rebuild();
+        }
+    }
+
+    // 만든 row 수를 돌려준다.
+    public long rebuild() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        Object[] range = transactionTemplate.execute(status ->
+                em.createQuery("select min(o.id), max(o.id) from Order o", Object[].class).getSingleResult());
+        if (range == null || range[0] == null) {
+            transactionTemplate.execute(status -> orderSummaryRepository.deleteAll());
+            return 0;
+        }
+        long minId = (Long) range[0];
+        long maxId = (Long) range[1];
+        transactionTemplate.execute(status -> orderSummaryRepository.deleteBefore(minId));
+
+        AtomicLong rows = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                long chunkFrom = from;
+                long chunkTo = Math.min(from + chunkSize - 1, maxId);
+                futures.add(executor.submit(() -> rows.addAndGet(rebuildRange(chunkFrom, chunkTo))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("order summary rebuild failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("order summary rebuilt. rows={}, threads={}, elapsed={}ms", rows.get(), threads, System.currentTimeMillis() - start);
+        return rows.get();
+    }
+
+    // 범위의 row 를 지우고 다시 넣는다. ( 한 트랜잭션, 그 사이 지워진 주문의 row 도 같이 빠진다 )
+    private long rebuildRange(long from, long to) {
+        Integer count = transactionTemplate.execute(status -> {
+            orderSummaryRepository.deleteRange(from, to);
+            List<Order> orders = em.createQuery(
+                    "select o from Order o" +
+                            " left join fetch o.member m" +
+                            " left join fetch o.delivery d" +
+                            " where o.id between :from and :to", Order.class)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList();
+            if (orders.isEmpty()) {
+                return 0;
+            }
+
+            // orderItems 컬렉션을 초기화하지 않고 따로 한 번에 가져와서 주문별로 나눈다.
+            List<OrderItem> orderItems = em.createQuery(
+                    "select oi from OrderItem oi" +
+                            " join fetch oi.item i" +
+                            " where oi.order.id between :from and :to" +
+                            " order by oi.id", OrderItem.class)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .getResultList();
+            Map<Long, List<OrderItem>> itemsByOrder = new HashMap<>();
+            for (OrderItem orderItem : orderItems) {
+                itemsByOrder.computeIfAbsent(orderItem.getOrder().getId(), k -> new ArrayList<>()).add(orderItem);
+            }
+
+            for (Order order : orders) {
+                orderSummaryRepository.save(orderSummaryProjector.toSummary(
+                        order, itemsByOrder.getOrDefault(order.getId(), new ArrayList<>())));
+            }
+            return orders.size();
+        });
+        return count == null ? 0 : count;
+    }
+}
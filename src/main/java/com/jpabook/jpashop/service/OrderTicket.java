@@ -0,0 +1,42 @@
+package com.jpabook.jpashop.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// >> 37. 비동기 주문 접수표
+// 요청 스레드가 만들고 워커 스레드가 결과를 채운다. ( 상태 조회는 다른 요청 스레드 )
+@Getter
+public class OrderTicket {
+
+    private final String id;
+    private final Long memberId;
+    private final Long itemId;
+    private final int count;
+    private final LocalDateTime acceptedAt = LocalDateTime.now();
+
+    // orderId / message 를 먼저 쓰고 status 를 마지막에 쓴다. ( status 를 본 스레드는 결과도 보인다 )
+    private volatile Long orderId;
+    private volatile String message;
+    private volatile LocalDateTime completedAt;
+    private volatile OrderTicketStatus status = OrderTicketStatus.ACCEPTED;
+
+    OrderTicket(String id, Long memberId, Long itemId, int count) {
+        this.id = id;
+        this.memberId = memberId;
+        this.itemId = itemId;
+        this.count = count;
+    }
+
+    void complete(Long orderId) {
+        this.orderId = orderId;
+        this.completedAt = LocalDateTime.now();
+        this.status = OrderTicketStatus.DONE;
+    }
+
+    void fail(String message) {
+        this.message = message;
+        this.completedAt = LocalDateTime.now();
+        this.status = OrderTicketStatus.FAILED;
+    }
+}
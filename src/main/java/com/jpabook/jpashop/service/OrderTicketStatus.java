@@ -0,0 +1,6 @@
+package com.jpabook.jpashop.service;
+
+// >> 37. 비동기 주문 접수 상태
+public enum OrderTicketStatus {
+    ACCEPTED, DONE, FAILED
+}
@@ -0,0 +1,79 @@
+package com.jpabook.jpashop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.domain.OrderItem;
+import com.jpabook.jpashop.domain.event.OrderCanceledEvent;
+import com.jpabook.jpashop.domain.event.OrderPlacedEvent;
+import com.jpabook.jpashop.domain.outbox.OutboxEvent;
+import com.jpabook.jpashop.repository.OutboxRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// >> 41. 주문 생성 / 취소 이벤트를 outbox 에 기록
+// 주문과 같은 트랜잭션 ( 커밋 직전 ) 에 persist 만 하므로 외부 시스템 호출이 주문 응답 시간에 들어가지 않는다.
+// insert 는 커밋할 때 flush 되고, 한 트랜잭션에 여러 건이면 JDBC batch 로 묶인다.
+@Component
+public class OutboxEventWriter {
+
+    static final String AGGREGATE_ORDER = "Order";
+    static final String ORDER_PLACED = "ORDER_PLACED";
+    static final String ORDER_CANCELED = "ORDER_CANCELED";
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxEventWriter(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void on(OrderPlacedEvent event) {
+        Order order = event.getOrder();
+        Map<String, Object> payload = orderPayload(order);
+
+        List<Map<String, Object>> lines = new ArrayList<>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("itemId", orderItem.getItem().getId());
+            line.put("orderPrice", orderItem.getOrderPrice());
+            line.put("count", orderItem.getCount());
+            lines.add(line);
+        }
+        payload.put("orderItems", lines);
+
+        outboxRepository.save(new OutboxEvent(AGGREGATE_ORDER, order.getId(), ORDER_PLACED, toJson(payload)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void on(OrderCanceledEvent event) {
+        Order order = event.getOrder();
+        outboxRepository.save(new OutboxEvent(AGGREGATE_ORDER, order.getId(), ORDER_CANCELED, toJson(orderPayload(order))));
+    }
+
+    private Map<String, Object> orderPayload(Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("memberId", order.getMember().getId());
+        payload.put("status", order.getStatus());
+        payload.put("orderDate", order.getOrderDate());
+        payload.put("totalPrice", order.getTotalPrice());
+        return payload;
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
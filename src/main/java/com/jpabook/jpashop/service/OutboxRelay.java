@@ -0,0 +1,106 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.repository.OutboxMessage;
+import com.jpabook.jpashop.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// >> 41. outbox 이벤트 전달
+// 스레드 하나가 미전송 이벤트를 batchSize 개씩 읽어서 싱크로 보내고 update 한 번으로 전송 완료 표시한다.
+//  - batch 가 가득 차 있으면 쉬지 않고 다음 batch, 비어 있으면 pollInterval 만큼 대기
+//  - 싱크가 실패하면 표시하지 않고 잠시 뒤 같은 batch 를 다시 보낸다. ( at-least-once )
+// 서버 한 대에서만 돌려야 한다. ( 여러 대면 같은 이벤트를 중복으로 읽음, 나누려면 select ... for update skip locked 필요 )
+@Slf4j
+@Service
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxSink outboxSink;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    public OutboxRelay(OutboxRepository outboxRepository, OutboxSink outboxSink, PlatformTransactionManager transactionManager,
+                       @Value("${jpashop.outbox.relay-enabled:true}") boolean enabled,
+                       @Value("${jpashop.outbox.batch-size:1000}") int batchSize,
+                       @Value("${jpashop.outbox.poll-interval-millis:100}") long pollIntervalMillis) {
+        this.outboxRepository = outboxRepository;
+        this.outboxSink = outboxSink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::work, "outbox-relay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private void work() {
+        while (running) {
+            try {
+                if (relayOnce() < batchSize) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("outbox relay failed, retry later. cause={}", e.toString());
+                try {
+                    Thread.sleep(Math.max(pollIntervalMillis, 1000));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // batch 하나를 보내고 보낸 건수를 돌려준다.
+    public int relayOnce() throws IOException {
+        List<OutboxMessage> messages = transactionTemplate.execute(status -> outboxRepository.findPending(batchSize));
+        if (messages == null || messages.isEmpty()) {
+            return 0;
+        }
+
+        outboxSink.send(messages);
+
+        List<Long> ids = messages.stream()
+                .map(OutboxMessage::getId)
+                .collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.markDelivered(ids, LocalDateTime.now()));
+        return messages.size();
+    }
+}
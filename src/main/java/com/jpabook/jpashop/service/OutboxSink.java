@@ -0,0 +1,14 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.repository.OutboxMessage;
+
+import java.io.IOException;
+import java.util.List;
+
+// >> 41. outbox 이벤트를 받는 곳 ( 메시지 브로커, 파일 등 )
+// 예외 없이 돌아오면 batch 전체를 보낸 것으로 보고 전송 완료 표시한다.
+// 실패하면 같은 batch 를 다시 보내므로 받는 쪽은 id 로 중복을 걸러야 한다. ( at-least-once )
+public interface OutboxSink {
+
+    void send(List<OutboxMessage> messages) throws IOException;
+}
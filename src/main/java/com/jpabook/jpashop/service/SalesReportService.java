@@ -0,0 +1,61 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.repository.SalesReportRow;
+import com.jpabook.jpashop.repository.SalesRollupRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// >> 39. 판매 리포트 ( 집계 row 만 읽으므로 주문이 쌓여도 조회 시간은 기간 / 상품 수에만 비례 )
+@Service
+@Transactional(readOnly = true)
+public class SalesReportService {
+
+    private final SalesRollupRepository salesRollupRepository;
+
+    public SalesReportService(SalesRollupRepository salesRollupRepository) {
+        this.salesRollupRepository = salesRollupRepository;
+    }
+
+    // 상품 한 개의 시간별 판매
+    public List<SalesReportRow> itemHourly(Long itemId, LocalDate from, LocalDate to) {
+        return salesRollupRepository.findItemHourly(itemId, from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+    }
+
+    // 상품 한 개의 일별 판매 ( 시간별 row 를 하루 단위로 합친다, 하루 최대 24줄 )
+    public List<SalesReportRow> itemDaily(Long itemId, LocalDate from, LocalDate to) {
+        List<SalesReportRow> result = new ArrayList<>();
+        SalesReportRow day = null;
+        for (SalesReportRow hour : itemHourly(itemId, from, to)) {
+            if (day == null || !day.getPeriod().toLocalDate().equals(hour.getPeriod().toLocalDate())) {
+                day = new SalesReportRow(itemId, hour.getPeriod().toLocalDate().atStartOfDay(), 0, 0, 0);
+                result.add(day);
+            }
+            day.setOrderCount(day.getOrderCount() + hour.getOrderCount());
+            day.setUnits(day.getUnits() + hour.getUnits());
+            day.setRevenue(day.getRevenue() + hour.getRevenue());
+        }
+        return result;
+    }
+
+    public List<SalesReportRow> topItems(LocalDate from, LocalDate to, int limit) {
+        return salesRollupRepository.findTopItems(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), limit);
+    }
+
+    public List<SalesReportRow> memberDaily(Long memberId, LocalDate from, LocalDate to) {
+        return salesRollupRepository.findMemberDaily(memberId, from, to);
+    }
+
+    public List<SalesReportRow> topMembers(LocalDate from, LocalDate to, int limit) {
+        return salesRollupRepository.findTopMembers(from, to, limit);
+    }
+
+    // 집계를 주문 테이블에서 다시 만든다. ( HTTP 로 열지 않고 DataGenRunner 처럼 주문이 없을 때만 부른다 )
+    @Transactional
+    public void rebuild() {
+        salesRollupRepository.rebuild();
+    }
+}
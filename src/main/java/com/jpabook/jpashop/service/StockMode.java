@@ -0,0 +1,11 @@
+package com.jpabook.jpashop.service;
+
+// >> 32. 주문 시 재고 차감 방식 ( jpashop.order.stock-mode )
+public enum StockMode {
+
+    // 엔티티로 읽고 removeStock 으로 차감, @Version 충돌 시 OrderFacade 가 재시도
+    OPTIMISTIC,
+
+    // 조건부 update 한 번으로 DB 에서 차감 ( 재시도 없음, 같은 상품 주문이 몰릴 때 )
+    ATOMIC
+}
@@ -0,0 +1,40 @@
+package com.jpabook.jpashop;
+
+import com.jpabook.jpashop.domain.Address;
+import com.jpabook.jpashop.domain.Member;
+import com.jpabook.jpashop.domain.item.Book;
+import com.jpabook.jpashop.service.ItemService;
+
+// 여러 테스트에서 같이 쓰는 회원 / 상품
+// 회원 이름은 유니크 ( normalized_name ) 하므로 테스트마다 다른 이름을 준다.
+public final class TestFixtures {
+
+	public static final int PRICE = 10000;
+
+	private TestFixtures() {
+	}
+
+	// 저장하지 않은 회원 ( memberService.join / em.persist 는 테스트에서 )
+	public static Member member(String name) {
+		Member member = new Member();
+		member.setName(name);
+		member.setAddress(new Address("서울", "강가", "123-1234"));
+		return member;
+	}
+
+	// 저장하지 않은 책
+	public static Book book(String name, int price, int stockQuantity) {
+		Book book = new Book();
+		book.setName(name);
+		book.setPrice(price);
+		book.setStockQuantity(stockQuantity);
+		return book;
+	}
+
+	// 책을 저장하고 id 를 돌려준다.
+	public static Long saveBook(ItemService itemService, String name, int price, int stockQuantity) {
+		Book book = book(name, price, stockQuantity);
+		itemService.saveItem(book);
+		return book.getId();
+	}
+}
@@ -0,0 +1,66 @@
+package com.jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpabook.jpashop.controller.BookForm;
+import com.jpabook.jpashop.repository.BookImportLine;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 36. 숫자가 잘못된 줄은 건너뛴 줄이 되고 다음 줄은 계속 읽는다.
+class BookFormReaderTest {
+
+	@Test
+	void csv_숫자가_잘못된_줄은_건너뛰고_계속_읽는다() throws IOException {
+		//given
+		String csv = "name,price,stockQuantity,isbn\n" +
+			"book-1,1000,1,isbn-1\n" +
+			"book-2,abc,1,isbn-2\n" +
+			"\"book, 3\",3000,3,isbn-3\n";
+
+		//when
+		List<BookForm> forms = readAll(BookFormReader.csv(stream(csv)));
+
+		//then
+		assertThat(forms).extracting(BookForm::getName).containsExactly("book-1", null, "book, 3");
+		assertThat(forms).extracting(this::isValid).containsExactly(true, false, true);
+	}
+
+	@Test
+	void ndjson_값의_형식이_잘못된_줄은_건너뛰고_계속_읽는다() throws IOException {
+		//given
+		String ndjson = "{\"name\":\"book-1\",\"price\":1000,\"stockQuantity\":1,\"isbn\":\"isbn-1\"}\n" +
+			"{\"name\":\"book-2\",\"price\":\"abc\",\"stockQuantity\":1,\"isbn\":\"isbn-2\"}\n" +
+			"{\"name\":\"book-3\",\"price\":3000,\"stockQuantity\":3,\"isbn\":\"isbn-3\"}\n";
+
+		//when
+		List<BookForm> forms = readAll(BookFormReader.ndjson(stream(ndjson), new ObjectMapper()));
+
+		//then
+		assertThat(forms).extracting(this::isValid).containsExactly(true, false, true);
+		assertThat(forms.get(2).getName()).isEqualTo("book-3");
+	}
+
+	private boolean isValid(BookForm form) {
+		return new BookImportLine(form.getName(), form.getPrice(), form.getStockQuantity(),
+			form.getAuthor(), form.getIsbn()).isValid();
+	}
+
+	private InputStream stream(String body) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private List<BookForm> readAll(Iterator<BookForm> forms) {
+		List<BookForm> result = new ArrayList<>();
+		forms.forEachRemaining(result::add);
+		return result;
+	}
+}
@@ -0,0 +1,139 @@
+package com.jpabook.jpashop.api;
+
+import com.jpabook.jpashop.querycount.QueryCountAssert;
+import com.jpabook.jpashop.querycount.QueryCountExtension;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import com.jpabook.jpashop.repository.order.query.OrderQueryDto;
+import com.jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 44. /api/v*/orders 조회 쿼리 수 고정
+// 별도 메모리 DB 에 InitDb 주문 2건 ( 주문 당 상품 2개 ) 만 있고, 운영 설정과 같이 batch fetch / IN 패딩을 켠다.
+// 테스트 트랜잭션 하나 안에서 호출하므로 OSIV 처럼 지연 로딩이 된다. ( 끝나면 롤백 )
+// 주문 등록 ( v1 ) 의 statement 수는 CheckoutTest 참고
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:querycount",
+	"spring.jpa.properties.hibernate.default_batch_fetch_size=100",
+	"spring.jpa.properties.hibernate.query.in_clause_parameter_padding=true"})
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+class OrderApiQueryCountTest {
+
+	@Autowired OrderApiController orderApiController;
+	@Autowired OrderQueryResultCache orderQueryResultCache;
+	@Autowired OrderService orderService;
+	@Autowired EntityManager em;
+
+	// 주문 1 + 회원 / 배송 / 주문상품 / 상품 batch IN 쿼리 각 1
+	@Test
+	void v2_엔티티_조회(QueryCountAssert queries) {
+		List<OrderApiController.OrderDto> orders = queries.selectsAtMost(5, orderApiController::ordersV2);
+		assertThat(orders).hasSize(2);
+	}
+
+	// 주문 id 페이징 1 + fetch join 1
+	@Test
+	void v3_컬렉션_fetch_join(QueryCountAssert queries) {
+		List<OrderApiController.OrderDto> orders = queries.selectsAtMost(2, () -> orderApiController.ordersV3(0, 100));
+		assertThat(orders).hasSize(2);
+	}
+
+	// 주문 + 회원 + 배송 fetch join 1 + 주문상품 1 + 상품 1
+	@Test
+	void v3_1_batch_fetch(QueryCountAssert queries) {
+		List<OrderApiController.OrderDto> orders = queries.selectsAtMost(3, () -> orderApiController.ordersV3_page(0, 100));
+		assertThat(orders).hasSize(2);
+	}
+
+	@Test
+	void v3_2_키셋_페이징(QueryCountAssert queries) {
+		OrderApiController.CursorResult<OrderApiController.OrderDto> page =
+			queries.selectsAtMost(3, () -> orderApiController.ordersV3_cursor(null, 100));
+		assertThat(page.getData()).hasSize(2);
+	}
+
+	// 주문 1 + 주문 당 주문상품 1 ( N+1 그대로 두는 비교용 )
+	@Test
+	void v4_DTO_직접_조회(QueryCountAssert queries) {
+		List<OrderQueryDto> orders = queries.selectsAtMost(3, orderApiController::ordersV4);
+		assertThat(orders).hasSize(2);
+	}
+
+	// 주문 1 + 주문상품 IN 1 ( 캐시를 비우고 ), 캐시에 있으면 0
+	@Test
+	void v5_DTO_IN_조회와_결과_캐시(QueryCountAssert queries) {
+		orderQueryResultCache.invalidate();
+		List<OrderQueryDto> orders = queries.selectsAtMost(2, orderApiController::ordersV5);
+		assertThat(orders).hasSize(2);
+
+		queries.selectsAtMost(0, orderApiController::ordersV5);
+	}
+
+	// 주문 id 페이징 1 + flat 조회 1
+	@Test
+	void v6_flat_조회(QueryCountAssert queries) {
+		List<OrderQueryDto> orders = queries.selectsAtMost(2, () -> orderApiController.ordersV6(0, 100));
+		assertThat(orders).hasSize(2);
+	}
+
+	// order_summary 한 테이블
+	@Test
+	void v7_read_model(QueryCountAssert queries) {
+		OrderApiController.CursorResult<OrderApiController.OrderSummaryDto> page =
+			queries.selectsAtMost(1, () -> orderApiController.ordersV7(null, 100, null, null));
+		assertThat(page.getData()).hasSize(2);
+	}
+
+	// 주문이 늘어도 v4 만 주문 수만큼 늘어난다.
+	@Test
+	void 주문이_늘어도_쿼리_수가_늘지_않는다(QueryCountAssert queries) {
+		//given
+		Map<String, Integer> before = countAll(queries);
+
+		Long memberId = em.createQuery("select min(m.id) from Member m", Long.class).getSingleResult();
+		List<Long> itemIds = em.createQuery("select i.id from Item i order by i.id", Long.class).getResultList();
+		for (int i = 0; i < 3; i++) {
+			orderService.order(memberId, itemIds.get(i), 1);
+		}
+		em.flush();
+
+		//when
+		Map<String, Integer> after = countAll(queries);
+
+		//then
+		assertThat(after.remove("v4")).isEqualTo(before.remove("v4") + 3);
+		assertThat(after).isEqualTo(before);
+	}
+
+	private Map<String, Integer> countAll(QueryCountAssert queries) {
+		Map<String, Runnable> endpoints = new LinkedHashMap<>();
+		endpoints.put("v2", orderApiController::ordersV2);
+		endpoints.put("v3", () -> orderApiController.ordersV3(0, 100));
+		endpoints.put("v3.1", () -> orderApiController.ordersV3_page(0, 100));
+		endpoints.put("v3.2", () -> orderApiController.ordersV3_cursor(null, 100));
+		endpoints.put("v4", orderApiController::ordersV4);
+		endpoints.put("v5", orderApiController::ordersV5);
+		endpoints.put("v6", () -> orderApiController.ordersV6(0, 100));
+		endpoints.put("v7", () -> orderApiController.ordersV7(null, 100, null, null));
+
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		endpoints.forEach((name, call) -> {
+			// 앞 호출에서 영속성 컨텍스트에 올라온 엔티티 / 캐시된 결과를 쓰지 않도록
+			em.clear();
+			orderQueryResultCache.invalidate();
+			counts.put(name, queries.countSelects(call));
+		});
+		return counts;
+	}
+}
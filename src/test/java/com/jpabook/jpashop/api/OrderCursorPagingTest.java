@@ -0,0 +1,142 @@
+package com.jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// >> 15-2. / >> 40. 키셋 페이징 ( v3.2, v7 )
+// 별도 메모리 DB 에 InitDb 주문 2건 + InitDb 회원 / 상품으로 만든 주문 5건, 주문 시각은 모두 같게 맞춘다. ( 정렬 키는 주문 id )
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cursor-paging")
+@AutoConfigureMockMvc
+class OrderCursorPagingTest {
+
+	private static final String[] ENDPOINTS = {"/api/v3.2/orders", "/api/v7/orders"};
+	private static final int ORDERS = 5;
+
+	@Autowired MockMvc mockMvc;
+	@Autowired ObjectMapper objectMapper;
+	@Autowired OrderService orderService;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	private List<Long> orderIds;
+
+	@BeforeEach
+	void setUp() {
+		orderIds = jdbcTemplate.queryForList("select order_id from orders order by order_id", Long.class);
+		if (orderIds.size() < 2 + ORDERS) {
+			Long memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+			Long itemId = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+			for (int i = 0; i < ORDERS; i++) {
+				orderService.order(memberId, itemId, 1);
+			}
+			// 같은 시각에 들어온 주문 ( 시각으로 정렬했다면 페이지 경계에서 빠지거나 겹친다 )
+			LocalDateTime sameTime = LocalDateTime.of(2021, 6, 1, 12, 0);
+			jdbcTemplate.update("update orders set order_date = ?", sameTime);
+			jdbcTemplate.update("update order_summary set order_date = ?", sameTime);
+			orderIds = jdbcTemplate.queryForList("select order_id from orders order by order_id", Long.class);
+		}
+	}
+
+	@Test
+	void 다음_커서를_따라가면_모든_주문을_한번씩_받는다() throws Exception {
+		for (String endpoint : ENDPOINTS) {
+			//when ( 7건을 3개씩 : 3, 3, 1 )
+			List<Long> received = new ArrayList<>();
+			List<Integer> pageSizes = new ArrayList<>();
+			String cursor = null;
+			do {
+				JsonNode page = page(endpoint, cursor, 3);
+				page.get("data").forEach(order -> received.add(order.get("orderId").asLong()));
+				pageSizes.add(page.get("data").size());
+				cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+			} while (cursor != null);
+
+			//then
+			assertThat(pageSizes).as(endpoint).containsExactly(3, 3, 1);
+			assertThat(received).as(endpoint).isEqualTo(orderIds);
+		}
+	}
+
+	@Test
+	void 남은_주문이_limit과_같으면_마지막_페이지다() throws Exception {
+		for (String endpoint : ENDPOINTS) {
+			//given ( 첫 주문 다음부터 남은 주문 수 )
+			String cursor = OrderCursor.encode(orderIds.get(0));
+			int remaining = orderIds.size() - 1;
+
+			//when
+			JsonNode exact = page(endpoint, cursor, remaining);
+			JsonNode oneLess = page(endpoint, cursor, remaining - 1);
+
+			//then ( limit + 1 로 조회해서 다음 페이지가 없으면 커서를 주지 않는다 )
+			assertThat(exact.get("data").size()).as(endpoint).isEqualTo(remaining);
+			assertThat(exact.get("nextCursor").isNull()).as(endpoint).isTrue();
+			assertThat(oneLess.get("nextCursor").asText()).as(endpoint)
+				.isEqualTo(OrderCursor.encode(orderIds.get(remaining - 1)));
+		}
+	}
+
+	@Test
+	void 마지막_주문_다음은_빈_페이지다() throws Exception {
+		for (String endpoint : ENDPOINTS) {
+			JsonNode page = page(endpoint, OrderCursor.encode(orderIds.get(orderIds.size() - 1)), 10);
+
+			assertThat(page.get("data").size()).as(endpoint).isZero();
+			assertThat(page.get("nextCursor").isNull()).as(endpoint).isTrue();
+		}
+	}
+
+	@Test
+	void 잘못된_커서는_400() throws Exception {
+		String[] cursors = {"not base64!", encode("x:1"), encode("o:abc"), encode("o:")};
+		for (String endpoint : ENDPOINTS) {
+			for (String cursor : cursors) {
+				mockMvc.perform(get(endpoint).param("after", cursor))
+					.andExpect(status().isBadRequest());
+			}
+		}
+	}
+
+	@Test
+	void 범위를_벗어난_limit은_400() throws Exception {
+		String[] limits = {"0", "-1", String.valueOf(OrderApiController.MAX_PAGE_LIMIT + 1), String.valueOf(Integer.MAX_VALUE)};
+		for (String endpoint : ENDPOINTS) {
+			for (String limit : limits) {
+				mockMvc.perform(get(endpoint).param("limit", limit))
+					.andExpect(status().isBadRequest());
+			}
+			mockMvc.perform(get(endpoint).param("limit", String.valueOf(OrderApiController.MAX_PAGE_LIMIT)))
+				.andExpect(status().isOk());
+		}
+	}
+
+	private JsonNode page(String endpoint, String cursor, int limit) throws Exception {
+		String body = mockMvc.perform(get(endpoint)
+				.param("after", cursor == null ? "" : cursor)
+				.param("limit", String.valueOf(limit)))
+			.andExpect(status().isOk())
+			.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		return objectMapper.readTree(body);
+	}
+
+	private String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,148 @@
+package com.jpabook.jpashop.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.jpabook.jpashop.repository.order.query.OrderQueryDto;
+import com.jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import com.jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// >> 24. 주문 전체 export ( NDJSON 스트리밍 )
+// 별도 메모리 DB 에 InitDb 주문 2건 ( 상품 2개씩 ) + InitDb 회원 / 상품으로 만든 상품 1개 주문 1건
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-export")
+@AutoConfigureMockMvc
+class OrderExportTest {
+
+	@Autowired MockMvc mockMvc;
+	@Autowired ObjectMapper objectMapper;
+	@Autowired OrderApiController orderApiController;
+	@Autowired OrderQueryRepository orderQueryRepository;
+	@Autowired OrderService orderService;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		if (orderQueryRepository.findOrderQueryDtos().size() < 3) {
+			Long memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+			Long itemId = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+			orderService.order(memberId, itemId, 1);
+		}
+	}
+
+	@Test
+	void 주문_한건이_한줄이고_v4와_같은_내용이다() throws Exception {
+		//given ( v4 는 정렬이 없으므로 주문 id 순으로 )
+		List<OrderQueryDto> expected = expectedOrders();
+
+		//when
+		MvcResult result = mockMvc.perform(get("/api/orders/export"))
+			.andExpect(status().isOk())
+			.andReturn();
+
+		//then ( 마지막 줄도 줄바꿈으로 끝난다 )
+		assertThat(result.getResponse().getContentType()).startsWith("application/x-ndjson");
+		String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertThat(body).endsWith("\n");
+
+		String[] lines = body.split("\n");
+		assertThat(lines).hasSize(expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ObjectNode line = (ObjectNode) objectMapper.readTree(lines[i]);
+			ObjectNode order = (ObjectNode) objectMapper.readTree(objectMapper.writeValueAsString(expected.get(i)));
+
+			// 주문상품은 순서 없이 비교 ( v4 는 주문상품 정렬이 없음 )
+			List<JsonNode> lineItems = new ArrayList<>();
+			line.remove("orderItems").forEach(lineItems::add);
+			List<JsonNode> orderItems = new ArrayList<>();
+			order.remove("orderItems").forEach(orderItems::add);
+
+			assertThat(line).isEqualTo(order);
+			assertThat(lineItems).as("order %s", order.get("orderId")).containsExactlyInAnyOrderElementsOf(orderItems);
+		}
+	}
+
+	@Test
+	void 스트리밍_조회는_주문마다_완성된_주문을_넘긴다() {
+		//when
+		List<OrderQueryDto> streamed = new ArrayList<>();
+		orderQueryRepository.streamAllByDto_flat(streamed::add);
+
+		//then ( 주문상품이 다음 주문으로 넘어가거나 나뉘지 않는다 )
+		List<OrderQueryDto> expected = expectedOrders();
+		assertThat(streamed).hasSize(expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertThat(streamed.get(i).getOrderId()).isEqualTo(expected.get(i).getOrderId());
+			assertThat(streamed.get(i).getOrderItems()).containsExactlyInAnyOrderElementsOf(expected.get(i).getOrderItems());
+		}
+	}
+
+	@Test
+	void 클라이언트가_끊기면_더_쓰지_않고_IOException() {
+		//given ( 첫 번째 쓰기부터 실패하는 응답 )
+		DisconnectedResponse response = new DisconnectedResponse();
+
+		//when
+		assertThrows(IOException.class, () -> orderApiController.exportOrders(response));
+
+		//then ( 남은 주문을 계속 쓰지 않고 조회도 중단 )
+		assertThat(response.attempts).isEqualTo(1);
+	}
+
+	private List<OrderQueryDto> expectedOrders() {
+		List<OrderQueryDto> orders = new ArrayList<>(orderQueryRepository.findOrderQueryDtos());
+		orders.sort(Comparator.comparing(OrderQueryDto::getOrderId));
+		return orders;
+	}
+
+	static class DisconnectedResponse extends MockHttpServletResponse {
+
+		int attempts;
+
+		@Override
+		public ServletOutputStream getOutputStream() {
+			return new ServletOutputStream() {
+				@Override
+				public void write(int b) throws IOException {
+					write(new byte[]{(byte) b}, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					attempts++;
+					throw new IOException("Broken pipe");
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.jpabook.jpashop.api;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// >> 15-4. offset 페이징 ( v3, v6 ) 도 범위를 벗어난 offset / limit 은 400
+// 페이지 크기가 id IN 목록 크기이므로 limit 에 상한을 둔다. ( 별도 메모리 DB, InitDb 주문 2건 )
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:page-request")
+@AutoConfigureMockMvc
+class OrderPageRequestTest {
+
+	private static final String[] ENDPOINTS = {"/api/v3/orders", "/api/v6/orders"};
+
+	@Autowired MockMvc mockMvc;
+
+	@Test
+	void 음수_offset은_400() throws Exception {
+		for (String endpoint : ENDPOINTS) {
+			mockMvc.perform(get(endpoint).param("offset", "-1"))
+				.andExpect(status().isBadRequest());
+		}
+	}
+
+	@Test
+	void 범위를_벗어난_limit은_400() throws Exception {
+		String[] limits = {"0", "-1", String.valueOf(OrderApiController.MAX_PAGE_LIMIT + 1), "1000000"};
+		for (String endpoint : ENDPOINTS) {
+			for (String limit : limits) {
+				mockMvc.perform(get(endpoint).param("limit", limit))
+					.andExpect(status().isBadRequest());
+			}
+			mockMvc.perform(get(endpoint).param("offset", "0").param("limit", String.valueOf(OrderApiController.MAX_PAGE_LIMIT)))
+				.andExpect(status().isOk());
+		}
+	}
+}
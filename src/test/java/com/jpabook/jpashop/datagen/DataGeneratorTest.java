@@ -0,0 +1,153 @@
+package com.jpabook.jpashop.datagen;
+
+import com.jpabook.jpashop.service.MemberService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 43. 대량 데이터 생성 ( 커넥션 별로 커밋하므로 @Transactional 을 걸지 않고 끝나면 지운다 )
+@Slf4j
+@SpringBootTest
+class DataGeneratorTest {
+
+	@Autowired DataGenerator dataGenerator;
+	@Autowired MemberService memberService;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	private final List<DataGenResult> generated = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		for (DataGenResult result : generated) {
+			long lastOrderId = result.getFirstOrderId() + result.getOrders() - 1;
+			jdbcTemplate.update("delete from order_item where order_id between ? and ?", result.getFirstOrderId(), lastOrderId);
+			List<Long> deliveryIds = jdbcTemplate.queryForList(
+				"select delivery_id from orders where order_id between ? and ?", Long.class, result.getFirstOrderId(), lastOrderId);
+			jdbcTemplate.update("delete from orders where order_id between ? and ?", result.getFirstOrderId(), lastOrderId);
+			deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+			jdbcTemplate.update("delete from item where item_id between ? and ?",
+				result.getFirstItemId(), result.getFirstItemId() + result.getItems() - 1);
+			jdbcTemplate.update("delete from member where member_id between ? and ?",
+				result.getFirstMemberId(), result.getFirstMemberId() + result.getMembers() - 1);
+		}
+	}
+
+	@Test
+	void 같은_seed면_스레드_수와_상관없이_같은_데이터() {
+		//given
+		DataGenSpec single = spec(500);
+		single.setThreads(1);
+		single.setChunkSize(500);
+
+		DataGenSpec parallel = spec(500);
+		parallel.setThreads(4);
+		parallel.setChunkSize(37);
+		parallel.setBatchSize(10);
+
+		//when
+		DataGenResult first = generate(single);
+		DataGenResult second = generate(parallel);
+
+		//then
+		assertThat(second.getOrderItems()).isEqualTo(first.getOrderItems());
+		assertThat(fingerprint(second)).isEqualTo(fingerprint(first));
+	}
+
+	@Test
+	void 인기_상품에_주문이_몰리고_설정한_분포를_따른다() {
+		//given
+		DataGenSpec spec = spec(2000);
+		spec.setItemSkew(1.2);
+		spec.setCancelRatio(0.2);
+
+		//when
+		DataGenResult result = generate(spec);
+		log.info("orders={} orderItems={} elapsed={}ms ordersPerSecond={}",
+			result.getOrders(), result.getOrderItems(), result.getElapsedMillis(), result.getOrdersPerSecond());
+
+		//then
+		long lastOrderId = result.getFirstOrderId() + result.getOrders() - 1;
+		long top = countLines(result, result.getFirstItemId(), lastOrderId);
+		long tail = countLines(result, result.getFirstItemId() + 50, lastOrderId);
+		assertThat(top).isGreaterThan(tail * 5);
+
+		Long canceled = jdbcTemplate.queryForObject(
+			"select count(*) from orders where status = 'CANCEL' and order_id between ? and ?",
+			Long.class, result.getFirstOrderId(), lastOrderId);
+		assertThat(canceled).isBetween(300L, 500L);
+
+		Map<String, Object> range = jdbcTemplate.queryForMap(
+			"select min(order_date) as first_date, max(order_date) as last_date, max(line_count) as max_lines" +
+				" from orders o join (select order_id, count(*) as line_count from order_item group by order_id) l on l.order_id = o.order_id" +
+				" where o.order_id between ? and ?", result.getFirstOrderId(), lastOrderId);
+		assertThat(range.get("FIRST_DATE").toString()).startsWith("2020-01");
+		assertThat(range.get("LAST_DATE").toString()).startsWith("2020-12");
+		assertThat(((Number) range.get("MAX_LINES")).intValue()).isLessThanOrEqualTo(spec.getMaxItemsPerOrder());
+	}
+
+	@Test
+	void 생성한_id와_JPA로_저장한_id는_겹치지_않는다() {
+		//given
+		DataGenResult result = generate(spec(10));
+
+		//when
+		Long memberId = memberService.join(member("datagen-after"));
+
+		//then ( 시퀀스를 잡기 전에 받아 둔 범위의 id 일 수도 있으므로 생성한 범위 밖인지만 본다 )
+		assertThat(memberId).isNotBetween(result.getFirstMemberId(), result.getFirstMemberId() + result.getMembers() - 1);
+		jdbcTemplate.update("delete from member where member_id = ?", memberId);
+	}
+
+	private DataGenSpec spec(long orders) {
+		DataGenSpec spec = new DataGenSpec();
+		spec.setSeed(7);
+		spec.setMembers(50);
+		spec.setItems(100);
+		spec.setOrders(orders);
+		spec.setDays(366);
+		spec.setEndDate(LocalDate.of(2021, 1, 1));
+		spec.setThreads(2);
+		spec.setChunkSize(100);
+		return spec;
+	}
+
+	private DataGenResult generate(DataGenSpec spec) {
+		try {
+			DataGenResult result = dataGenerator.generate(spec);
+			generated.add(result);
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// id 시작값을 뺀 값으로 비교 ( 두 번 만들면 id 범위만 다르다 )
+	private List<String> fingerprint(DataGenResult result) {
+		return jdbcTemplate.query(
+			"select o.order_id - ? as order_no, o.member_id - ? as member_no, o.order_date, o.status, o.total_price," +
+				" (select count(*) from order_item oi where oi.order_id = o.order_id) as line_count" +
+				" from orders o where o.order_id between ? and ? order by o.order_id",
+			(rs, rowNum) -> rs.getLong(1) + "," + rs.getLong(2) + "," + rs.getTimestamp(3) + ","
+				+ rs.getString(4) + "," + rs.getLong(5) + "," + rs.getLong(6),
+			result.getFirstOrderId(), result.getFirstMemberId(),
+			result.getFirstOrderId(), result.getFirstOrderId() + result.getOrders() - 1);
+	}
+
+	private long countLines(DataGenResult result, long itemId, long lastOrderId) {
+		return jdbcTemplate.queryForObject(
+			"select count(*) from order_item where item_id = ? and order_id between ? and ?",
+			Long.class, itemId, result.getFirstOrderId(), lastOrderId);
+	}
+}
@@ -0,0 +1,156 @@
+package com.jpabook.jpashop.domain;
+
+import com.jpabook.jpashop.querycount.QueryCounter;
+import com.jpabook.jpashop.service.ItemService;
+import com.jpabook.jpashop.service.MemberService;
+import com.jpabook.jpashop.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.NestedTestConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.jpabook.jpashop.TestFixtures.PRICE;
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 35. 엔티티 별 pooled-lo 시퀀스
+@Slf4j
+@SpringBootTest
+class PooledSequenceGeneratorTest {
+
+	private static final int ORDERS = 100;
+
+	// 주문 1건에 나가는 statement ( 시퀀스 조회 제외, QueryCounter 의 SQL 모양을 "문장 종류 + 테이블" 로 묶은 것 )
+	// 합계 10 : select 2 + 주문 insert 3 + 재고 update 1 + 집계 merge 2 + read model 1 + outbox 1
+	private static final Map<String, Integer> PER_ORDER = new LinkedHashMap<>();
+	static {
+		PER_ORDER.put("select", 2);                           // 회원, 상품
+		PER_ORDER.put("insert into delivery", 1);
+		PER_ORDER.put("insert into orders", 1);
+		PER_ORDER.put("insert into order_item", 1);
+		PER_ORDER.put("update item", 1);                      // 재고 ( version )
+		PER_ORDER.put("merge into item_hourly_sales", 1);     // >> 39. 판매 집계
+		PER_ORDER.put("merge into member_daily_sales", 1);
+		PER_ORDER.put("insert into order_summary", 1);        // >> 40. 주문 목록 read model ( 커밋 직전 )
+		PER_ORDER.put("insert into outbox_event", 1);         // >> 41. outbox ( 커밋 직전 )
+	}
+
+	// 주문 1건에 id 를 새로 받는 엔티티의 시퀀스
+	private static final List<String> SEQUENCES = Arrays.asList("delivery_seq", "orders_seq", "order_item_seq", "outbox_event_seq");
+
+	private static final Pattern STATEMENT = Pattern.compile("^(select|insert into \\w+|update \\w+|merge into \\w+|delete from \\w+)");
+	private static final Pattern SEQUENCE_CALL = Pattern.compile("next value for (\\w+)");
+
+	@Autowired EntityManager em;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired OrderService orderService;
+
+	@Test
+	@Transactional
+	void 같은_범위_안에서는_메모리에서_연속된_id() {
+		//given
+		Delivery first = new Delivery();
+		Delivery second = new Delivery();
+
+		//when
+		em.persist(first);
+		em.persist(second);
+
+		//then ( 시퀀스 범위 경계에 걸리면 다음 범위로 넘어감 )
+		long gap = second.getId() - first.getId();
+		assertThat(gap == 1 || first.getId() % PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE == 0).isTrue();
+	}
+
+	// 시퀀스는 allocationSize 번에 한 번만 조회 ( 100건에 시퀀스 당 2~3번 )
+	@Test
+	void 주문_한건당_statement_수() {
+		//when
+		Map<String, Integer> counts = countOrders(memberService, itemService, orderService);
+
+		//then
+		assertPerOrder(counts);
+		for (String sequence : SEQUENCES) {
+			assertThat(counts.getOrDefault("next value for " + sequence, 0))
+				.as(sequence)
+				.isLessThanOrEqualTo(ORDERS / PooledSequenceGenerator.DEFAULT_ALLOCATION_SIZE + 1);
+		}
+	}
+
+	// 비교용 : 시퀀스를 id 마다 조회하던 때 ( allocation_size=1 ) 는 같은 주문에 시퀀스 조회가 주문 1건당 4번 더 나간다.
+	// ( 주문, 주문상품, 배송 3번 + >> 41. outbox 1번 )
+	@Nested
+	@NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+	@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:sequence-per-id",
+		"spring.jpa.properties." + PooledSequenceGenerator.ALLOCATION_SIZE_SETTING + "=1"})
+	class 시퀀스를_id마다_조회하면 {
+
+		@Autowired MemberService memberService;
+		@Autowired ItemService itemService;
+		@Autowired OrderService orderService;
+
+		@Test
+		void 주문_한건당_statement_수() {
+			//when
+			Map<String, Integer> counts = countOrders(memberService, itemService, orderService);
+
+			//then
+			assertPerOrder(counts);
+			for (String sequence : SEQUENCES) {
+				assertThat(counts.get("next value for " + sequence)).as(sequence).isEqualTo(ORDERS);
+			}
+		}
+	}
+
+	// 워밍업 주문 1건 뒤 ORDERS 건을 주문하면서 SQL 을 "문장 종류 + 테이블" 별로 센다.
+	private static Map<String, Integer> countOrders(MemberService memberService, ItemService itemService,
+													OrderService orderService) {
+		Long memberId = memberService.join(member("pooled-seq-member"));
+		Long itemId = saveBook(itemService, "pooled-seq-book", PRICE, 10_000);
+		orderService.order(memberId, itemId, 1);
+
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		try (QueryCounter counter = QueryCounter.start()) {
+			for (int i = 0; i < ORDERS; i++) {
+				orderService.order(memberId, itemId, 1);
+			}
+			counter.getShapes().forEach((shape, count) -> counts.merge(kindOf(shape), count, Integer::sum));
+			log.info("orders={} statements={} statementsPerOrder={} counts={}",
+				ORDERS, counter.getStatementCount(), (double) counter.getStatementCount() / ORDERS, counts);
+		}
+		return counts;
+	}
+
+	// 목록에 없는 statement 가 새로 생겨도 실패한다. ( 시퀀스 조회만 따로 검사 )
+	private static void assertPerOrder(Map<String, Integer> counts) {
+		PER_ORDER.forEach((kind, perOrder) ->
+			assertThat(counts.get(kind)).as("%s ( 전체 : %s )", kind, counts).isEqualTo(perOrder * ORDERS));
+		assertThat(counts.keySet())
+			.as("주문 한 건에 나가는 statement 종류")
+			.allMatch(kind -> PER_ORDER.containsKey(kind) || kind.startsWith("next value for "));
+	}
+
+	private static String kindOf(String shape) {
+		String sql = shape.toLowerCase(Locale.ROOT);
+		Matcher sequence = SEQUENCE_CALL.matcher(sql);
+		if (sequence.find()) {
+			return "next value for " + sequence.group(1);
+		}
+		Matcher statement = STATEMENT.matcher(sql);
+		return statement.find() ? statement.group(1) : sql;
+	}
+}
@@ -0,0 +1,28 @@
+package com.jpabook.jpashop.querycount;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 44. "이 호출은 select 를 N번까지만" 검사 ( QueryCountExtension 이 테스트 메소드 파라미터로 넣어준다 )
+// 실패하면 실행된 SQL 모양 별 횟수를 같이 보여준다.
+public class QueryCountAssert {
+
+	public <T> T selectsAtMost(int max, Supplier<T> call) {
+		try (QueryCounter counter = QueryCounter.start()) {
+			T result = call.get();
+			assertThat(counter.getSelectCount())
+				.as("select 수 ( 실행된 SQL : %s )", counter.getShapes())
+				.isLessThanOrEqualTo(max);
+			return result;
+		}
+	}
+
+	// 검사 없이 센 값만 ( 데이터가 늘 때 쿼리 수가 같은지 비교할 때 )
+	public int countSelects(Runnable call) {
+		try (QueryCounter counter = QueryCounter.start()) {
+			call.run();
+			return counter.getSelectCount();
+		}
+	}
+}
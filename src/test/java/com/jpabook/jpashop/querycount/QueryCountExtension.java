@@ -0,0 +1,21 @@
+package com.jpabook.jpashop.querycount;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+
+// >> 44. @ExtendWith(QueryCountExtension.class) 를 붙이면 테스트 메소드에서 QueryCountAssert 를 받을 수 있다.
+// 예) @Test void 조회(QueryCountAssert queries) { queries.selectsAtMost(3, () -> controller.ordersV3_page(0, 100)); }
+// ( statement_inspector 로 QueryCountInspector 가 등록된 컨텍스트에서만 의미가 있다 )
+public class QueryCountExtension implements ParameterResolver {
+
+	@Override
+	public boolean supportsParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		return parameterContext.getParameter().getType() == QueryCountAssert.class;
+	}
+
+	@Override
+	public Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
+		return new QueryCountAssert();
+	}
+}
@@ -0,0 +1,59 @@
+package com.jpabook.jpashop.querycount;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// >> 44. 요청 별 N+1 감지 ( detect-enabled 를 켠 별도 메모리 DB, InitDb 주문 2건 )
+// 같은 SQL 이 1번을 넘으면 경고하도록 해서 주문 당 주문상품을 따로 조회하는 v4 로 확인한다.
+@SpringBootTest(properties = {
+	"spring.datasource.url=jdbc:h2:mem:querycount-web",
+	"jpashop.query-count.detect-enabled=true",
+	"jpashop.query-count.repeat-threshold=1"})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class QueryCountInterceptorTest {
+
+	@Autowired MockMvc mockMvc;
+
+	@Test
+	void 같은_SQL이_반복되는_요청은_경고한다(CapturedOutput output) throws Exception {
+		//when
+		mockMvc.perform(get("/api/v4/orders")).andExpect(status().isOk());
+
+		//then
+		assertThat(output.getOut())
+			.contains("N+1 의심")
+			.contains("request=GET /api/v4/orders")
+			.contains("SQL 실행 위치");
+	}
+
+	@Test
+	void 쿼리가_한번인_요청은_경고하지_않는다(CapturedOutput output) throws Exception {
+		//when ( order_summary 한 테이블 )
+		mockMvc.perform(get("/api/v7/orders")).andExpect(status().isOk());
+
+		//then
+		assertThat(output.getOut()).doesNotContain("N+1 의심");
+	}
+
+	@Test
+	void 설정을_켜지_않으면_등록되지_않는다() {
+		WebApplicationContextRunner runner = new WebApplicationContextRunner()
+			.withUserConfiguration(QueryCountWebConfig.class);
+
+		runner.run(context -> assertThat(context).doesNotHaveBean(QueryCountWebConfig.class));
+		runner.withPropertyValues("jpashop.query-count.detect-enabled=true")
+			.run(context -> assertThat(context).hasSingleBean(QueryCountWebConfig.class));
+	}
+}
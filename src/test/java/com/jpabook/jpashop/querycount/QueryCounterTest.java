@@ -0,0 +1,69 @@
+package com.jpabook.jpashop.querycount;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryCounterTest {
+
+	@Test
+	void 종류별로_세고_IN_절_길이가_달라도_같은_모양() {
+		//given
+		try (QueryCounter counter = QueryCounter.start()) {
+			//when
+			QueryCounter.record("select m.name from member m where m.member_id in (?, ?)");
+			QueryCounter.record("select m.name\n  from member m where m.member_id in (?, ?, ?, ?)");
+			QueryCounter.record("insert into member (name, member_id) values (?, ?)");
+			QueryCounter.record("update member set name=? where member_id=?");
+
+			//then
+			assertThat(counter.getSelectCount()).isEqualTo(2);
+			assertThat(counter.getInsertCount()).isEqualTo(1);
+			assertThat(counter.getUpdateCount()).isEqualTo(1);
+			assertThat(counter.getStatementCount()).isEqualTo(4);
+			assertThat(counter.getShapes())
+				.containsEntry("select m.name from member m where m.member_id in (...)", 2);
+		}
+	}
+
+	@Test
+	void 안쪽_카운터는_바깥에도_세고_닫으면_바깥으로_돌아간다() {
+		//given
+		try (QueryCounter outer = QueryCounter.start()) {
+			QueryCounter.record("select 1");
+
+			//when
+			try (QueryCounter inner = QueryCounter.start()) {
+				QueryCounter.record("select 2");
+				assertThat(inner.getSelectCount()).isEqualTo(1);
+			}
+			QueryCounter.record("select 3");
+
+			//then
+			assertThat(outer.getSelectCount()).isEqualTo(3);
+		}
+
+		// 카운터가 없으면 기록하지 않는다.
+		QueryCounter.record("select 4");
+	}
+
+	@Test
+	void 같은_모양이_기준을_넘는_순간_한_번만_알린다() {
+		//given
+		List<String> repeated = new ArrayList<>();
+		try (QueryCounter counter = QueryCounter.start(2, repeated::add)) {
+			//when
+			for (int i = 0; i < 5; i++) {
+				QueryCounter.record("select * from order_item where order_id=?");
+			}
+			QueryCounter.record("select * from orders");
+
+			//then
+			assertThat(repeated).containsExactly("select * from order_item where order_id=?");
+			assertThat(counter.getShapes()).containsEntry("select * from order_item where order_id=?", 5);
+		}
+	}
+}
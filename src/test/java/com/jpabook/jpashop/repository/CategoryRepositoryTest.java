@@ -0,0 +1,142 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.Category;
+import com.jpabook.jpashop.domain.item.Book;
+import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.querycount.QueryCountAssert;
+import com.jpabook.jpashop.querycount.QueryCountExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+@ExtendWith(QueryCountExtension.class)
+class CategoryRepositoryTest {
+
+	@Autowired EntityManager em;
+	@Autowired CategoryRepository categoryRepository;
+
+	@Test
+	void 하위_트리_상품_조회() {
+		//given  도서 > 소설 > 장편,  도서 > IT
+		Category books = createCategory("도서", null);
+		Category novel = createCategory("소설", books);
+		Category longNovel = createCategory("장편", novel);
+		Category it = createCategory("IT", books);
+		Category music = createCategory("음반", null);
+
+		Book jpa = createBook("JPA", it);
+		Book novelBook = createBook("장편소설", longNovel);
+		createBook("음반 아님", music);
+
+		em.flush();
+		em.clear();
+
+		//when
+		List<Item> items = categoryRepository.findItemsInSubtree(categoryRepository.findOne(books.getId()));
+
+		//then
+		assertThat(longNovel.getPath()).isEqualTo("/" + books.getId() + "/" + novel.getId() + "/" + longNovel.getId() + "/");
+		assertThat(items).extracting(Item::getId).containsExactlyInAnyOrder(jpa.getId(), novelBook.getId());
+	}
+
+	@Test
+	void 하위_트리_전체_로딩() {
+		//given
+		Category books = createCategory("도서", null);
+		Category novel = createCategory("소설", books);
+		createCategory("장편", novel);
+		createCategory("IT", books);
+
+		em.flush();
+		em.clear();
+
+		//when
+		List<Category> subtree = categoryRepository.findSubtree(categoryRepository.findOne(novel.getId()));
+
+		//then
+		assertThat(subtree).extracting(Category::getName).containsExactly("소설", "장편");
+	}
+
+	// 하위 트리 1번 + child 컬렉션 batch 1번 ( 노드 100개 이하 ) 이면 깊이와 상관없이 끝까지 탐색
+	@Test
+	void 하위_트리_탐색_쿼리_수(QueryCountAssert queries) {
+		//given  4단계 : 도서 > 소설 / IT > 장편 / 단편 / 웹 > 장편 아래 2개
+		Category books = createCategory("도서", null);
+		Category novel = createCategory("소설", books);
+		Category it = createCategory("IT", books);
+		Category longNovel = createCategory("장편", novel);
+		createCategory("단편", novel);
+		createCategory("웹", it);
+		createCategory("대하", longNovel);
+		createCategory("연작", longNovel);
+
+		em.flush();
+		em.clear();
+		Category root = categoryRepository.findOne(books.getId());
+
+		//when
+		List<Category> visited = queries.selectsAtMost(2, () -> {
+			categoryRepository.findSubtree(root);
+			List<Category> nodes = new ArrayList<>();
+			collect(root, nodes);
+			return nodes;
+		});
+
+		//then
+		assertThat(visited).hasSize(8);
+		assertThat(visited).extracting(Category::getName).contains("대하", "연작", "웹");
+	}
+
+	@Test
+	void 경로_길이를_넘는_하위_카테고리는_붙일_수_없다() {
+		//given  path 가 거의 찬 카테고리
+		Category deep = createCategory("깊은", null);
+		deep.setPath("/" + "1/".repeat((Category.MAX_PATH_LENGTH - 10) / 2));
+		Category child = new Category();
+		child.setName("더 깊은");
+
+		//when, then
+		assertThatThrownBy(() -> deep.addChildCategory(child))
+			.isInstanceOf(IllegalStateException.class);
+		assertThat(deep.getChild()).isEmpty();
+		assertThat(child.getParent()).isNull();
+	}
+
+	private void collect(Category category, List<Category> nodes) {
+		nodes.add(category);
+		for (Category c : category.getChild()) {
+			collect(c, nodes);
+		}
+	}
+
+	private Category createCategory(String name, Category parent) {
+		Category category = new Category();
+		category.setName(name);
+		if (parent != null) {
+			parent.addChildCategory(category);
+		}
+		categoryRepository.save(category);
+		return category;
+	}
+
+	private Book createBook(String name, Category category) {
+		Book book = new Book();
+		book.setName(name);
+		book.setPrice(10000);
+		book.setStockQuantity(10);
+		em.persist(book);
+		category.getItems().add(book);
+		return book;
+	}
+}
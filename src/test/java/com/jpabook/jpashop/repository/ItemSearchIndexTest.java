@@ -0,0 +1,191 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.item.Album;
+import com.jpabook.jpashop.domain.item.Book;
+import com.jpabook.jpashop.service.ItemService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 커밋 후에 색인이 갱신되므로 @Transactional 을 걸지 않는다.
+@Slf4j
+@SpringBootTest
+class ItemSearchIndexTest {
+
+	@Autowired ItemService itemService;
+
+	@Test
+	void 시작할때_기존_상품이_색인된다() {
+		//given ( InitDb 의 JPA1 BOOK, JPA2 BOOK ... )
+
+		//when
+		ItemSearchResult result = itemService.searchItems("jpa", 0, 10);
+
+		//then
+		assertThat(result.getTotal()).isGreaterThanOrEqualTo(2);
+	}
+
+	@Test
+	void 저장_수정이_커밋되면_색인에_반영된다() {
+		//given
+		Book book = createBook("Indexed Spring Batch", "Zelda Writer", "978-00-1234-567-8");
+		itemService.saveItem(book);
+
+		//when
+		itemService.updateItem(book.getId(), "Renamed Kotlin Guide", 20000, 5);
+
+		//then
+		assertThat(itemService.searchItems("batch", 0, 10).getHits())
+			.extracting(ItemSearchHit::getItemId).doesNotContain(book.getId());
+		assertThat(itemService.searchItems("kotlin gui", 0, 10).getHits())
+			.extracting(ItemSearchHit::getItemId).contains(book.getId());
+		assertThat(itemService.searchItems("zeld", 0, 10).getHits())
+			.extracting(ItemSearchHit::getItemId).contains(book.getId());
+		assertThat(itemService.searchItems("9780012345678", 0, 10).getHits())
+			.extracting(ItemSearchHit::getItemId).containsExactly(book.getId());
+	}
+
+	@Test
+	void 이름이_맞는_상품이_먼저_나오고_페이징된다() {
+		//given ( 빈과 섞이지 않도록 별도 인스턴스 )
+		ItemSearchIndex index = new ItemSearchIndex(null, 1);
+		index.index(createBook(1L, "Other Title", "Rowan"));
+		index.index(createBook(2L, "Rowan Story", "Nobody"));
+		Album album = new Album();
+		album.setId(3L);
+		album.setName("Rowanberry");
+		album.setArtist("Band");
+		index.index(album);
+
+		//when
+		ItemSearchResult first = index.search("rowan", 0, 2);
+		ItemSearchResult second = index.search("rowan", 2, 2);
+
+		//then ( 정확히 맞은 이름 > 저자 > 접두어로 맞은 이름 )
+		assertThat(first.getTotal()).isEqualTo(3);
+		assertThat(first.getHits()).extracting(ItemSearchHit::getItemId).containsExactly(2L, 1L);
+		assertThat(second.getHits()).extracting(ItemSearchHit::getItemId).containsExactly(3L);
+	}
+
+	@Test
+	void 모든_단어가_있어야_검색된다() {
+		ItemSearchIndex index = new ItemSearchIndex(null, 1);
+		index.index(createBook(1L, "Effective Java", "Bloch"));
+		index.index(createBook(2L, "Effective Kotlin", "Moskala"));
+
+		assertThat(index.search("effective ja", 0, 10).getHits())
+			.extracting(ItemSearchHit::getItemId).containsExactly(1L);
+		assertThat(index.search("effective scala", 0, 10).getTotal()).isZero();
+		assertThat(index.search("  ", 0, 10).getTotal()).isZero();
+	}
+
+	// 접두어가 MAX_PREFIX_TERMS 개보다 많은 단어로 펼쳐져도 알파벳 순으로 뒤쪽인 단어가 빠지지 않는다.
+	@Test
+	void 접두어가_많은_단어로_펼쳐져도_뒤쪽_단어가_검색된다() {
+		//given ( ja000 ~ ja099 는 한 상품씩, 알파벳 순으로 마지막인 jazz 는 세 상품 )
+		ItemSearchIndex index = new ItemSearchIndex(null, 1);
+		long id = 1;
+		for (int i = 0; i < ItemSearchIndex.MAX_PREFIX_TERMS + 36; i++) {
+			index.index(createBook(id++, String.format("ja%03d", i), "Filler"));
+		}
+		index.index(createBook(1001L, "Jazz Standards", "Miles"));
+		index.index(createBook(1002L, "Jazz Piano", "Bill"));
+		index.index(createBook(1003L, "Jazz Guitar", "Miles"));
+
+		//when
+		ItemSearchResult prefixOnly = index.search("ja", 0, 10);
+		ItemSearchResult narrowed = index.search("miles ja", 0, 10);
+
+		//then ( 접두어 하나 : 상품이 많이 달린 단어부터, 앞 단어가 있으면 후보 상품에서 모두 )
+		assertThat(prefixOnly.getHits()).extracting(ItemSearchHit::getItemId).contains(1001L, 1002L, 1003L);
+		assertThat(narrowed.getTotal()).isEqualTo(2);
+		assertThat(narrowed.getHits()).extracting(ItemSearchHit::getItemId).containsExactlyInAnyOrder(1001L, 1003L);
+	}
+
+	// 접두어 하나가 MAX_PREFIX_TERMS 개보다 많은 단어로 펼쳐지면 결과가 잘렸다고 표시하고 total 은 최소 건수다.
+	@Test
+	void 접두어_하나가_너무_많이_펼쳐지면_잘린_결과로_표시된다() {
+		//given ( ja000 ~ ja099 가 한 상품씩 -> 100개 단어, 100개 상품 )
+		ItemSearchIndex index = new ItemSearchIndex(null, 1);
+		int items = ItemSearchIndex.MAX_PREFIX_TERMS + 36;
+		for (int i = 0; i < items; i++) {
+			index.index(createBook((long) i + 1, String.format("ja%03d", i), "Filler"));
+		}
+
+		//when
+		ItemSearchResult prefixOnly = index.search("ja", 0, 10);
+		ItemSearchResult narrowed = index.search("filler ja", 0, 10);
+		ItemSearchResult few = index.search("ja09", 0, 10);
+
+		//then
+		assertThat(prefixOnly.isTruncated()).isTrue();
+		assertThat(prefixOnly.getTotal()).isEqualTo(ItemSearchIndex.MAX_PREFIX_TERMS).isLessThan(items);
+		assertThat(narrowed.isTruncated()).isFalse();
+		assertThat(narrowed.getTotal()).isEqualTo(items);
+		assertThat(few.isTruncated()).isFalse();
+		assertThat(few.getTotal()).isEqualTo(10);
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 상품 100만 개 색인에서 type-ahead 한 글자씩 입력할 때의 검색 시간
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_typeahead() {
+		int items = 1_000_000;
+		Random random = new Random(42);
+		String[] words = new String[5_000];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = randomWord(random);
+		}
+
+		ItemSearchIndex index = new ItemSearchIndex(null, 1);
+		for (long id = 1; id <= items; id++) {
+			String name = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+			index.index(createBook(id, name, words[random.nextInt(words.length)]));
+		}
+
+		String target = words[0] + " " + words[1];
+		for (int length = 1; length <= target.length(); length++) {
+			String typed = target.substring(0, length);
+			index.search(typed, 0, 10);    // 워밍업
+			int runs = 50;
+			long start = System.nanoTime();
+			ItemSearchResult result = null;
+			for (int r = 0; r < runs; r++) {
+				result = index.search(typed, 0, 10);
+			}
+			long micros = (System.nanoTime() - start) / 1_000 / runs;
+			log.info("items={} q='{}' total={} elapsed={}us", items, typed, result.getTotal(), micros);
+		}
+	}
+
+	private String randomWord(Random random) {
+		char[] chars = new char[4 + random.nextInt(6)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(chars);
+	}
+
+	private Book createBook(Long id, String name, String author) {
+		Book book = createBook(name, author, null);
+		book.setId(id);
+		return book;
+	}
+
+	private Book createBook(String name, String author, String isbn) {
+		Book book = new Book();
+		book.setName(name);
+		book.setAuthor(author);
+		book.setIsbn(isbn);
+		book.setPrice(10000);
+		book.setStockQuantity(10);
+		return book;
+	}
+}
@@ -0,0 +1,153 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.service.MemberService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// 커밋 후에 인덱스가 갱신되므로 @Transactional 을 걸지 않는다.
+@Slf4j
+@SpringBootTest
+class MemberNameIndexTest {
+
+	@Autowired MemberService memberService;
+	@Autowired MemberNameIndex memberNameIndex;
+	@Autowired OrderRepository orderRepository;
+	@Autowired EntityManagerFactory emf;
+
+	@Test
+	void 가입한_회원은_부분이름으로_후보가_된다() {
+		//given
+		Long memberId = memberService.join(member("Trigram-Park"));
+
+		//when
+		List<Long> candidates = memberNameIndex.findCandidates("GRAM-pa");
+
+		//then
+		assertThat(candidates).containsExactly(memberId);
+	}
+
+	@Test
+	void 이름을_바꾸면_이전_이름으로는_찾을수_없다() {
+		//given
+		Long memberId = memberService.join(member("rename-before-xyz"));
+
+		//when
+		memberService.update(memberId, "rename-after-qrs");
+
+		//then
+		assertThat(memberNameIndex.findCandidates("before-xyz")).isEmpty();
+		assertThat(memberNameIndex.findCandidates("after-qrs")).containsExactly(memberId);
+	}
+
+	@Test
+	void 다시_만드는_동안_커밋된_변경도_남는다() throws Exception {
+		//given ( 실제 빈을 건드리지 않도록 별도 인스턴스, DB 에 없는 id 라서 rebuild 조회로는 들어오지 않는다 )
+		MemberNameIndex index = new MemberNameIndex(emf);
+		Thread rebuild = new Thread(index::rebuild);
+		List<Long> added = new ArrayList<>();
+
+		//when ( rebuild 가 끝날 때까지 계속 가입 )
+		rebuild.start();
+		long id = -1;
+		do {
+			index.add(id, "during-rebuild-" + (-id) + "-member");
+			added.add(id--);
+		} while (rebuild.isAlive());
+		rebuild.join();
+
+		//then
+		assertThat(index.findCandidates("during-rebuild-1-member")).contains(-1L);
+		assertThat(index.findCandidates("during-rebuild-" + added.size() + "-member")).contains(added.get(added.size() - 1));
+	}
+
+	@Test
+	void 짧은_검색어는_인덱스를_쓰지_않는다() {
+		assertThat(memberNameIndex.findCandidates("ab")).isNull();
+	}
+
+	@Test
+	@Transactional
+	void 인덱스를_거친_주문검색은_like_검색과_같다() {
+		//given ( InitDb 의 userA / userB 주문 )
+		OrderSearch byIndex = new OrderSearch();
+		byIndex.setMemberName("user");
+
+		//when
+		List<Long> indexed = new ArrayList<>();
+		orderRepository.findAllBySearch(byIndex).forEach(o -> indexed.add(o.getId()));
+		List<Long> scanned = new ArrayList<>();
+		orderRepository.findAllByCriteria(byIndex).forEach(o -> scanned.add(o.getId()));
+
+		//then
+		assertThat(indexed).isNotEmpty();
+		assertThat(indexed).containsExactlyInAnyOrderElementsOf(scanned);
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 회원 100만 명 이름에서 trigram 교집합 vs 전체 contains 스캔 ( DB 없이 인덱스 자체만 비교 )
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_trigram_vs_contains() {
+		int members = 1_000_000;
+		Random random = new Random(42);
+		String[] names = new String[members];
+		for (int i = 0; i < members; i++) {
+			names[i] = randomName(random);
+		}
+
+		// 실제 빈을 건드리지 않도록 별도 인스턴스 ( id 는 1부터 )
+		MemberNameIndex index = new MemberNameIndex(null);
+		for (int i = 0; i < members; i++) {
+			index.add((long) i + 1, names[i]);
+		}
+		index.markReady();
+
+		String term = names[members / 2].substring(1, 6);
+		int runs = 20;
+
+		long start = System.nanoTime();
+		int indexed = 0;
+		for (int r = 0; r < runs; r++) {
+			List<Long> candidates = index.findCandidates(term);
+			indexed = candidates == null ? -1 : candidates.size();
+		}
+		long indexMs = (System.nanoTime() - start) / 1_000_000 / runs;
+
+		start = System.nanoTime();
+		int scanned = 0;
+		for (int r = 0; r < runs; r++) {
+			scanned = 0;
+			for (String name : names) {
+				if (name.contains(term)) {
+					scanned++;
+				}
+			}
+		}
+		long scanMs = (System.nanoTime() - start) / 1_000_000 / runs;
+
+		log.info("members={} term={} candidates={} matches={} trigram={}ms contains={}ms",
+			members, term, indexed, scanned, indexMs, scanMs);
+		assertThat(indexed).isGreaterThanOrEqualTo(scanned);
+	}
+
+	private String randomName(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int length = 8 + random.nextInt(8);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) ('a' + random.nextInt(26)));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,137 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.Delivery;
+import com.jpabook.jpashop.domain.Member;
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 14-1. 컬렉션 fetch join 페이징 ( 주문 id 페이징 -> 그 id 들만 fetch join )
+// 별도 메모리 DB 에 InitDb 주문 2건 ( 상품 2개씩 ) + InitDb 회원 / 상품으로 만든 상품 1개 주문 3건 + 주문상품이 없는 주문 1건
+// 트랜잭션 없이 호출해서 페이지마다 새 영속성 컨텍스트로 조회한다.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:two-phase-paging")
+@ExtendWith(OutputCaptureExtension.class)
+class OrderRepositoryPagingTest {
+
+	// Hibernate 가 컬렉션 fetch join 결과를 메모리에서 페이징할 때 남기는 경고
+	private static final String IN_MEMORY_PAGING = "HHH000104";
+
+	@Autowired OrderRepository orderRepository;
+	@Autowired OrderService orderService;
+	@Autowired JdbcTemplate jdbcTemplate;
+	@Autowired EntityManager em;
+	@Autowired TransactionTemplate transactionTemplate;
+
+	// 주문 id -> 주문상품 수 ( id 순 )
+	private Map<Long, Integer> itemCounts;
+
+	@BeforeEach
+	void setUp() {
+		if (countItems().size() < 6) {
+			Long memberId = jdbcTemplate.queryForObject("select min(member_id) from member", Long.class);
+			Long itemId = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+			for (int i = 0; i < 3; i++) {
+				orderService.order(memberId, itemId, 1);
+			}
+			transactionTemplate.executeWithoutResult(status -> {
+				Member member = em.find(Member.class, memberId);
+				Delivery delivery = new Delivery();
+				delivery.setAddress(member.getAddress());
+				em.persist(Order.createOrder(member, delivery));
+			});
+		}
+		itemCounts = countItems();
+	}
+
+	@Test
+	void 페이지를_이어_붙이면_모든_주문과_주문상품이_한번씩_나온다(CapturedOutput output) {
+		//when ( 6건을 2개씩 : 2, 2, 2 )
+		List<Order> received = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		for (int offset = 0; offset < itemCounts.size(); offset += 2) {
+			List<Order> page = orderRepository.findAllWithItem(offset, 2);
+			pageSizes.add(page.size());
+			received.addAll(page);
+		}
+
+		//then ( 주문상품 row 로 늘어난 주문이 중복되거나, 페이지 경계에서 주문상품이 잘리지 않는다 )
+		assertThat(pageSizes).containsExactly(2, 2, 2);
+		assertThat(received).extracting(Order::getId).containsExactlyElementsOf(itemCounts.keySet());
+		for (Order order : received) {
+			assertThat(order.getOrderItems()).as("order %d", order.getId()).hasSize(itemCounts.get(order.getId()));
+			assertThat(order.getOrderItems()).allSatisfy(orderItem -> assertThat(orderItem.getItem().getName()).isNotNull());
+		}
+		assertThat(output.getOut()).doesNotContain(IN_MEMORY_PAGING);
+	}
+
+	@Test
+	void 상품이_여러개인_주문도_limit_개수만큼_나온다() {
+		//when ( InitDb 주문 2건 : row 는 4개 )
+		List<Long> orderIds = new ArrayList<>(itemCounts.keySet());
+		List<Order> page = orderRepository.findAllWithItem(0, 2);
+
+		//then ( row 수가 아니라 주문 수로 자른다 )
+		assertThat(page).extracting(Order::getId).containsExactly(orderIds.get(0), orderIds.get(1));
+		assertThat(page).allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(2));
+	}
+
+	@Test
+	void 주문상품이_없는_주문도_페이지에서_빠지지_않는다() {
+		//given ( 주문상품이 없는 주문이 두 번째인 페이지 )
+		List<Long> orderIds = new ArrayList<>(itemCounts.keySet());
+		Long empty = orderIds.stream().filter(id -> itemCounts.get(id) == 0).findFirst().get();
+		int offset = orderIds.indexOf(empty) - 1;
+
+		//when
+		List<Order> page = orderRepository.findAllWithItem(offset, 2);
+
+		//then ( 마지막 페이지로 오해하지 않도록 limit 개수만큼 )
+		assertThat(page).extracting(Order::getId).containsExactly(orderIds.get(offset), empty);
+		assertThat(page.get(1).getOrderItems()).isEmpty();
+	}
+
+	@Test
+	void 마지막_주문을_지나면_빈_목록() {
+		assertThat(orderRepository.findAllWithItem(itemCounts.size(), 2)).isEmpty();
+	}
+
+	// 비교용 : fetch join 쿼리에 바로 limit 을 걸면 Hibernate 가 전체를 읽고 메모리에서 자른다.
+	@Test
+	void fetch_join에_바로_limit을_걸면_메모리에서_페이징한다(CapturedOutput output) {
+		em.createQuery(
+				"select distinct o from Order o" +
+					" join fetch o.orderItems oi", Order.class)
+			.setFirstResult(0)
+			.setMaxResults(2)
+			.getResultList();
+
+		assertThat(output.getOut()).contains(IN_MEMORY_PAGING);
+	}
+
+	private Map<Long, Integer> countItems() {
+		Map<Long, Integer> counts = new LinkedHashMap<>();
+		jdbcTemplate.query("select o.order_id, count(oi.order_item_id) from orders o" +
+				" left join order_item oi on oi.order_id = o.order_id" +
+				" group by o.order_id order by o.order_id",
+			rs -> {
+				counts.put(rs.getLong(1), rs.getInt(2));
+			});
+		return counts;
+	}
+}
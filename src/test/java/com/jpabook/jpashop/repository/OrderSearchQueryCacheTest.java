@@ -0,0 +1,138 @@
+package com.jpabook.jpashop.repository;
+
+import com.jpabook.jpashop.domain.Address;
+import com.jpabook.jpashop.domain.Member;
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.service.MemberService;
+import com.jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 25-1. 조건 조합(shape)별 JPQL 템플릿 캐시
+// 별도 메모리 DB 에 InitDb 주문 2건 ( userA, userB ) + search-kim 주문 2건 ( 1건 취소 ) + search-lee 주문 1건
+// 회원 이름 인덱스는 커밋 후에 갱신되므로 @Transactional 을 걸지 않는다.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-search")
+class OrderSearchQueryCacheTest {
+
+	private static final OrderStatus[] STATUSES = {null, OrderStatus.ORDER, OrderStatus.CANCEL};
+	private static final String[] NAMES = {null, "", "  ", "user", "userA", "search", "kim", "nobody"};
+
+	@Autowired OrderRepository orderRepository;
+	@Autowired MemberService memberService;
+	@Autowired OrderService orderService;
+	@Autowired EntityManager em;
+
+	@BeforeEach
+	void setUp() {
+		if (orderRepository.findAllByCriteria(search(null, "search-")).isEmpty()) {
+			Long kim = join("search-kim");
+			Long lee = join("search-lee");
+			Long itemId = em.createQuery("select min(i.id) from Item i", Long.class).getSingleResult();
+			orderService.order(kim, itemId, 1);
+			orderService.cancelOrder(orderService.order(kim, itemId, 1));
+			orderService.order(lee, itemId, 1);
+		}
+	}
+
+	@Test
+	void 값이_달라도_조건_조합이_같으면_템플릿을_한번만_만든다() {
+		//given ( 빈과 통계가 섞이지 않도록 별도 인스턴스 )
+		OrderSearchQueryCache cache = new OrderSearchQueryCache();
+
+		//when
+		cache.createQuery(em, search(OrderStatus.ORDER, "kim")).getResultList();
+		cache.createQuery(em, search(OrderStatus.CANCEL, "lee")).getResultList();
+		cache.createQuery(em, search(OrderStatus.ORDER, "user")).getResultList();
+
+		//then
+		assertThat(cache.getMissCount()).isEqualTo(1);
+		assertThat(cache.getHitCount()).isEqualTo(2);
+		assertThat(cache.getTemplateCount()).isEqualTo(1);
+	}
+
+	@Test
+	void 조건_조합마다_템플릿이_하나씩_생긴다() {
+		//given
+		OrderSearchQueryCache cache = new OrderSearchQueryCache();
+
+		//when ( 상태 3 x 이름 8 = 24번, 조합은 없음 / 상태 / 이름 / 상태 + 이름 4가지 )
+		for (OrderStatus status : STATUSES) {
+			for (String name : NAMES) {
+				cache.createQuery(em, search(status, name)).getResultList();
+			}
+		}
+
+		//then ( 빈 이름, 공백 이름은 조건이 없는 것과 같은 조합 )
+		assertThat(cache.getTemplateCount()).isEqualTo(4);
+		assertThat(cache.getMissCount()).isEqualTo(4);
+		assertThat(cache.getHitCount()).isEqualTo(STATUSES.length * NAMES.length - 4);
+	}
+
+	@Test
+	void 공백_이름은_조건에서_빠진다() {
+		assertThat(OrderSearchCondition.shapeOf(search(null, "  "))).isEqualTo(OrderSearchCondition.shapeOf(search(null, null)));
+		assertThat(OrderSearchCondition.shapeOf(search(OrderStatus.ORDER, "kim")))
+			.isNotEqualTo(OrderSearchCondition.shapeOf(search(OrderStatus.ORDER, null)));
+	}
+
+	@Test
+	void 모든_조합에서_Criteria_검색과_같은_주문이_나온다() {
+		for (OrderStatus status : STATUSES) {
+			for (String name : NAMES) {
+				//when
+				List<Long> cached = ids(orderRepository.findAllBySearch(search(status, name)));
+				List<Long> criteria = ids(orderRepository.findAllByCriteria(search(status, name)));
+
+				//then
+				assertThat(cached).as("status=%s, name='%s'", status, name).containsExactlyInAnyOrderElementsOf(criteria);
+			}
+		}
+		assertThat(ids(orderRepository.findAllBySearch(search(OrderStatus.CANCEL, "kim")))).hasSize(1);
+		assertThat(ids(orderRepository.findAllBySearch(search(null, "search")))).hasSize(3);
+	}
+
+	@Test
+	void 회원_id_목록_조건도_바인딩된다() {
+		//given
+		Long kim = em.createQuery("select m.id from Member m where m.name = :name", Long.class)
+			.setParameter("name", "search-kim")
+			.getSingleResult();
+		OrderSearch orderSearch = search(OrderStatus.ORDER, "search");
+		orderSearch.setMemberIds(Arrays.asList(kim));
+
+		//when
+		List<Long> orders = ids(orderRepository.findAllBySearch(orderSearch));
+
+		//then ( search-lee 는 이름은 맞지만 후보에 없음, 취소된 주문 제외 )
+		assertThat(orders).hasSize(1);
+		assertThat(orders).isEqualTo(ids(orderRepository.findAllByCriteria(search(OrderStatus.ORDER, "search-kim"))));
+	}
+
+	private Long join(String name) {
+		Member member = new Member();
+		member.setName(name);
+		member.setAddress(new Address("서울", "강가", "123-1234"));
+		return memberService.join(member);
+	}
+
+	private OrderSearch search(OrderStatus status, String memberName) {
+		OrderSearch orderSearch = new OrderSearch();
+		orderSearch.setOrderStatus(status);
+		orderSearch.setMemberName(memberName);
+		return orderSearch;
+	}
+
+	private List<Long> ids(List<Order> orders) {
+		return orders.stream().map(Order::getId).collect(Collectors.toList());
+	}
+}
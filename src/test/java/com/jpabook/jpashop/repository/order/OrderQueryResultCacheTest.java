@@ -0,0 +1,95 @@
+package com.jpabook.jpashop.repository.order;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderQueryResultCacheTest {
+
+	OrderQueryResultCache cache = new OrderQueryResultCache(60, 100);
+
+	@Test
+	void 동시에_miss_나도_조회는_한번() throws Exception {
+		//given
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+
+		//when
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				return cache.get("orders", () -> {
+					loads.incrementAndGet();
+					sleep(100);
+					return "result";
+				});
+			}));
+		}
+		start.countDown();
+
+		//then
+		for (Future<String> result : results) {
+			assertThat(result.get()).isEqualTo("result");
+		}
+		assertThat(loads.get()).isEqualTo(1);
+		executor.shutdown();
+	}
+
+	@Test
+	void 무효화하면_다시_조회() {
+		//given
+		AtomicInteger loads = new AtomicInteger();
+		cache.get("orders", loads::incrementAndGet);
+		cache.get("orders", loads::incrementAndGet);
+
+		//when
+		cache.invalidate();
+		Integer result = cache.get("orders", loads::incrementAndGet);
+
+		//then
+		assertThat(result).isEqualTo(2);
+		assertThat(loads.get()).isEqualTo(2);
+	}
+
+	// RuntimeException 이 아닌 Error 로 실패해도 기다리던 요청은 같이 실패하고, 다음 요청은 다시 조회한다.
+	@Test
+	void 조회가_Error로_실패해도_기다리던_요청이_풀린다() throws Exception {
+		//given
+		CountDownLatch loading = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Object> first = executor.submit(() -> cache.get("orders", () -> {
+			loading.countDown();
+			sleep(100);
+			throw new StackOverflowError("loader failed");
+		}));
+		loading.await();
+
+		//when, then
+		assertThatThrownBy(() -> cache.get("orders", () -> "never"))
+			.isInstanceOf(CompletionException.class)
+			.hasCauseInstanceOf(StackOverflowError.class);
+		assertThatThrownBy(first::get).hasCauseInstanceOf(StackOverflowError.class);
+		assertThat(cache.get("orders", () -> "reloaded")).isEqualTo("reloaded");
+		executor.shutdown();
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
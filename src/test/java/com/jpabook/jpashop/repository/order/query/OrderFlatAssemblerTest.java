@@ -0,0 +1,74 @@
+package com.jpabook.jpashop.repository.order.query;
+
+import com.jpabook.jpashop.domain.Address;
+import com.jpabook.jpashop.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 23-1. order id 순으로 정렬된 flat row 를 한 번 훑으면서 주문 단위로 묶는다.
+class OrderFlatAssemblerTest {
+
+	private static final LocalDateTime ORDER_DATE = LocalDateTime.of(2021, 6, 1, 12, 0);
+
+	@Test
+	void 연속된_row를_주문_하나로_묶고_순서를_유지한다() {
+		//given ( 주문 3 -> 1 -> 2 순서로 정렬된 row, 주문 1 은 상품 3개 )
+		List<OrderFlatDto> rows = Arrays.asList(
+			row(3L, "book-c", 3000, 1),
+			row(1L, "book-a", 1000, 1),
+			row(1L, "book-b", 2000, 2),
+			row(1L, "book-c", 3000, 3),
+			row(2L, "book-a", 1000, 4));
+
+		//when
+		List<OrderQueryDto> orders = OrderFlatAssembler.assemble(rows);
+
+		//then
+		assertThat(orders).extracting(OrderQueryDto::getOrderId).containsExactly(3L, 1L, 2L);
+		assertThat(orders.get(1).getOrderItems()).extracting(OrderItemQueryDto::getItemName)
+			.containsExactly("book-a", "book-b", "book-c");
+		assertThat(orders.get(1).getOrderItems()).extracting(OrderItemQueryDto::getCount).containsExactly(1, 2, 3);
+		assertThat(orders.get(1).getName()).isEqualTo("member-1");
+		assertThat(orders.get(1).getOrderStatus()).isEqualTo(OrderStatus.ORDER);
+		assertThat(orders.get(2).getOrderItems()).hasSize(1);
+	}
+
+	@Test
+	void row가_없으면_빈_목록() {
+		assertThat(OrderFlatAssembler.assemble(Collections.emptyList())).isEmpty();
+	}
+
+	@Test
+	void id가_바뀌는_순간_이전_주문을_내보낸다() {
+		//given
+		List<OrderQueryDto> emitted = new ArrayList<>();
+		OrderFlatAssembler assembler = new OrderFlatAssembler(emitted::add);
+
+		//when / then ( 스트리밍 export 에서 주문 1건만 메모리에 남는 이유 )
+		assembler.add(row(1L, "book-a", 1000, 1));
+		assembler.add(row(1L, "book-b", 2000, 1));
+		assertThat(emitted).isEmpty();
+
+		assembler.add(row(2L, "book-a", 1000, 1));
+		assertThat(emitted).extracting(OrderQueryDto::getOrderId).containsExactly(1L);
+		assertThat(emitted.get(0).getOrderItems()).hasSize(2);
+
+		assembler.finish();
+		assertThat(emitted).extracting(OrderQueryDto::getOrderId).containsExactly(1L, 2L);
+
+		assembler.finish();    // 두 번 불러도 다시 내보내지 않는다.
+		assertThat(emitted).hasSize(2);
+	}
+
+	private OrderFlatDto row(Long orderId, String itemName, int orderPrice, int count) {
+		return new OrderFlatDto(orderId, "member-" + orderId, ORDER_DATE, OrderStatus.ORDER,
+			new Address("서울", "강가", "123-1234"), itemName, orderPrice, count);
+	}
+}
@@ -0,0 +1,130 @@
+package com.jpabook.jpashop.repository.order.query;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@SpringBootTest
+class OrderItemChunkLoaderTest {
+
+	@Autowired EntityManager em;
+	@Autowired EntityManagerFactory emf;
+	@Autowired JdbcTemplate jdbcTemplate;
+	@Autowired OrderQueryRepository orderQueryRepository;
+	@Autowired OrderItemChunkLoader orderItemChunkLoader;
+
+	@Test
+	void chunk는_고정크기로_채워진다() {
+		List<List<Long>> chunks = orderItemChunkLoader.chunks(Arrays.asList(1L, 2L, 3L));
+
+		assertThat(chunks).hasSize(1);
+		assertThat(chunks.get(0)).hasSize(500);
+		assertThat(chunks.get(0).subList(0, 4)).containsExactly(1L, 2L, 3L, 3L);
+	}
+
+	@Test
+	void chunk_조회결과는_단일_IN과_같다() {
+		//given ( InitDb 에서 넣은 주문 )
+		List<Long> orderIds = em.createQuery("select o.id from Order o", Long.class)
+			.getResultList();
+
+		//when
+		Map<Long, List<OrderItemQueryDto>> single = orderQueryRepository.findOrderItemMap(orderIds);
+		Map<Long, List<OrderItemQueryDto>> sequential = orderItemChunkLoader.loadSequential(orderIds);
+		Map<Long, List<OrderItemQueryDto>> parallel = orderItemChunkLoader.loadParallel(orderIds);
+
+		//then
+		assertThat(sequential).isEqualTo(single);
+		assertThat(parallel).isEqualTo(single);
+	}
+
+	@Test
+	void 스레드_풀은_병렬_조회를_처음_할때_만든다() {
+		//given ( 병렬 옵션을 끈 기본 설정 )
+		OrderItemChunkLoader loader = new OrderItemChunkLoader(emf, 500, false, 4);
+		List<Long> orderIds = em.createQuery("select o.id from Order o", Long.class)
+			.getResultList();
+		try {
+			//when / then
+			loader.chunks(orderIds);
+			assertThat(loader.isExecutorStarted()).isFalse();
+
+			loader.loadParallel(orderIds);
+			assertThat(loader.isExecutorStarted()).isTrue();
+		} finally {
+			loader.shutdown();
+		}
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행 ( 주문 10만 건을 넣으므로 오래 걸림 )
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_단일IN_vs_chunk() {
+		int max = 100_000;
+		long baseId = 10_000_000L;
+		List<Long> orderIds = seedOrders(baseId, max);
+
+		try {
+			for (int size : new int[]{1_000, 10_000, 100_000}) {
+				List<Long> ids = orderIds.subList(0, size);
+				long single = measure(ids, orderQueryRepository::findOrderItemMap);
+				long sequential = measure(ids, orderItemChunkLoader::loadSequential);
+				long parallel = measure(ids, orderItemChunkLoader::loadParallel);
+				log.info("orders={} singleIn={}ms chunked={}ms chunkedParallel={}ms", size, single, sequential, parallel);
+			}
+		} finally {
+			jdbcTemplate.update("delete from order_item where order_id >= ?", baseId);
+			jdbcTemplate.update("delete from orders where order_id >= ?", baseId);
+		}
+	}
+
+	// 5번 실행한 중앙값(ms), 첫 실행은 워밍업으로 버림
+	private long measure(List<Long> ids, Function<List<Long>, Map<Long, List<OrderItemQueryDto>>> loader) {
+		loader.apply(ids);
+		long[] elapsed = new long[5];
+		for (int i = 0; i < elapsed.length; i++) {
+			long start = System.nanoTime();
+			Map<Long, List<OrderItemQueryDto>> result = loader.apply(ids);
+			elapsed[i] = (System.nanoTime() - start) / 1_000_000;
+			assertThat(result).hasSize(ids.size());
+		}
+		Arrays.sort(elapsed);
+		return elapsed[elapsed.length / 2];
+	}
+
+	// 주문 1건당 orderItem 2개 ( item은 InitDb 상품 재사용 )
+	private List<Long> seedOrders(long baseId, int count) {
+		Long itemId = jdbcTemplate.queryForObject("select min(item_id) from item", Long.class);
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+		List<Object[]> orders = new ArrayList<>();
+		List<Object[]> orderItems = new ArrayList<>();
+		for (long id = baseId; id < baseId + count; id++) {
+			orders.add(new Object[]{id, now, "ORDER", 10000L + 20000L * 2});
+			orderItems.add(new Object[]{id * 2, id, itemId, 10000, 1});
+			orderItems.add(new Object[]{id * 2 + 1, id, itemId, 20000, 2});
+		}
+		jdbcTemplate.batchUpdate("insert into orders (order_id, order_date, status, total_price) values (?, ?, ?, ?)", orders);
+		jdbcTemplate.batchUpdate("insert into order_item (order_item_id, order_id, item_id, order_price, count) values (?, ?, ?, ?, ?)", orderItems);
+
+		return LongStream.range(baseId, baseId + count).boxed().collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,72 @@
+package com.jpabook.jpashop.repository.order.query;
+
+import com.jpabook.jpashop.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 23-2. v6 ( flat 조회 + 주문 id 페이징 ) 는 v4 ( 주문마다 주문상품 조회 ) 와 같은 결과
+// 별도 메모리 DB 에 InitDb 주문 2건 ( 상품 2개씩 ) + InitDb 회원 / 상품으로 만든 상품 1개 주문 3건 ( 끝나면 롤백 )
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:flat-query")
+@Transactional
+class OrderQueryRepositoryTest {
+
+	@Autowired OrderQueryRepository orderQueryRepository;
+	@Autowired OrderService orderService;
+	@Autowired EntityManager em;
+
+	@BeforeEach
+	void setUp() {
+		Long memberId = em.createQuery("select min(m.id) from Member m", Long.class).getSingleResult();
+		Long itemId = em.createQuery("select min(i.id) from Item i", Long.class).getSingleResult();
+		for (int i = 0; i < 3; i++) {
+			orderService.order(memberId, itemId, 1);
+		}
+		em.flush();
+		em.clear();
+	}
+
+	@Test
+	void flat_페이지를_이어_붙이면_v4와_같다() {
+		//given ( v4 는 정렬이 없으므로 주문 id 순으로 )
+		List<OrderQueryDto> expected = new ArrayList<>(orderQueryRepository.findOrderQueryDtos());
+		expected.sort(Comparator.comparing(OrderQueryDto::getOrderId));
+
+		//when ( 5건을 2개씩 : 2, 2, 1 )
+		List<OrderQueryDto> paged = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		for (int offset = 0; offset < expected.size(); offset += 2) {
+			List<OrderQueryDto> page = orderQueryRepository.findAllByDto_flatGrouped(offset, 2);
+			pageSizes.add(page.size());
+			paged.addAll(page);
+		}
+
+		//then ( 상품 2개 주문도 페이지 경계에서 잘리지 않는다 )
+		assertThat(pageSizes).containsExactly(2, 2, 1);
+		assertThat(paged).extracting(OrderQueryDto::getOrderId)
+			.containsExactly(expected.stream().map(OrderQueryDto::getOrderId).toArray(Long[]::new));
+		for (int i = 0; i < expected.size(); i++) {
+			OrderQueryDto order = paged.get(i);
+			assertThat(order).usingRecursiveComparison().ignoringFields("orderItems").isEqualTo(expected.get(i));
+			assertThat(order.getOrderItems()).as("order %d", order.getOrderId())
+				.containsExactlyInAnyOrderElementsOf(expected.get(i).getOrderItems());
+		}
+		assertThat(paged).anySatisfy(order -> assertThat(order.getOrderItems()).hasSize(2));
+	}
+
+	@Test
+	void 마지막_주문을_지나면_빈_목록() {
+		int orders = orderQueryRepository.findOrderQueryDtos().size();
+
+		assertThat(orderQueryRepository.findAllByDto_flatGrouped(orders, 100)).isEmpty();
+	}
+}
@@ -0,0 +1,136 @@
+package com.jpabook.jpashop.repository.order.revenue;
+
+import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.service.ItemService;
+import com.jpabook.jpashop.service.MemberService;
+import com.jpabook.jpashop.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 38. 매출 집계
+@Slf4j
+@SpringBootTest
+class OrderRevenueRepositoryTest {
+
+	@Autowired OrderRevenueRepository orderRevenueRepository;
+	@Autowired OrderService orderService;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired EntityManager em;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@Test
+	@Transactional
+	void 상태별_회원별_일별_매출() {
+		//given
+		LocalDate today = LocalDate.now();
+		long orderedBefore = revenueOf(OrderStatus.ORDER, today);
+		long canceledBefore = revenueOf(OrderStatus.CANCEL, today);
+		long dayBefore = dayRevenue(today);
+
+		Long memberId = memberService.join(member("revenue-a"));
+		Long itemId = saveBook(itemService, "revenue-book", 15000, 100);
+
+		//when
+		orderService.order(memberId, itemId, 3);
+		Long canceledId = orderService.order(memberId, itemId, 1);
+		orderService.cancelOrder(canceledId);
+		em.flush();
+
+		//then
+		assertThat(revenueOf(OrderStatus.ORDER, today) - orderedBefore).isEqualTo(45000);
+		assertThat(revenueOf(OrderStatus.CANCEL, today) - canceledBefore).isEqualTo(15000);
+		assertThat(dayRevenue(today) - dayBefore).isEqualTo(45000);
+
+		List<RevenueByMemberDto> members = orderRevenueRepository.findTopMembers(today, today, 100);
+		assertThat(members).filteredOn(m -> m.getMemberId().equals(memberId))
+			.singleElement()
+			.satisfies(m -> {
+				assertThat(m.getName()).isEqualTo("revenue-a");
+				assertThat(m.getOrderCount()).isEqualTo(1);
+				assertThat(m.getTotalPrice()).isEqualTo(45000);
+			});
+	}
+
+	@Test
+	@Transactional
+	void 주문금액은_int_범위를_넘어도_저장된다() {
+		//given
+		Long memberId = memberService.join(member("revenue-b"));
+		Long itemId = saveBook(itemService, "revenue-expensive", 1_000_000_000, 10);
+
+		//when
+		Long orderId = orderService.order(memberId, itemId, 3);
+		em.flush();
+		em.clear();
+
+		//then
+		Long saved = jdbcTemplate.queryForObject("select total_price from orders where order_id = ?", Long.class, orderId);
+		assertThat(saved).isEqualTo(3_000_000_000L);
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 주문 100만 건을 JDBC 로 넣고 ( 최근 30일에 나눠서 ) 집계 쿼리 시간
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_주문_100만건_집계() {
+		int rows = 1_000_000;
+		long baseId = 100_000_000L;
+		LocalDateTime now = LocalDateTime.now();
+		List<Object[]> batch = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			batch.add(new Object[]{baseId + i, Timestamp.valueOf(now.minusMinutes(i % (30 * 24 * 60))),
+				i % 10 == 0 ? "CANCEL" : "ORDER", 10000L + i % 100 * 100});
+			if (batch.size() == 10_000) {
+				jdbcTemplate.batchUpdate("insert into orders (order_id, order_date, status, total_price) values (?, ?, ?, ?)", batch);
+				batch.clear();
+			}
+		}
+
+		LocalDate to = now.toLocalDate();
+		LocalDate from = to.minusDays(30);
+		for (int round = 0; round < 3; round++) {
+			long begin = System.nanoTime();
+			List<RevenueByStatusDto> byStatus = orderRevenueRepository.findRevenueByStatus(from, to);
+			long statusMs = (System.nanoTime() - begin) / 1_000_000;
+
+			begin = System.nanoTime();
+			List<RevenueByDayDto> byDay = orderRevenueRepository.findRevenueByDay(from, to);
+			long dayMs = (System.nanoTime() - begin) / 1_000_000;
+
+			log.info("round={} orders={} byStatus={}ms ({} rows) byDay={}ms ({} rows)",
+				round, rows, statusMs, byStatus.size(), dayMs, byDay.size());
+		}
+		assertThat(orderRevenueRepository.findRevenueByStatus(from, to).stream()
+			.mapToLong(RevenueByStatusDto::getOrderCount).sum()).isGreaterThanOrEqualTo(rows);
+	}
+
+	private long revenueOf(OrderStatus status, LocalDate day) {
+		return orderRevenueRepository.findRevenueByStatus(day, day).stream()
+			.filter(r -> r.getStatus() == status)
+			.mapToLong(RevenueByStatusDto::getTotalPrice)
+			.sum();
+	}
+
+	private long dayRevenue(LocalDate day) {
+		return orderRevenueRepository.findRevenueByDay(day, day).stream()
+			.mapToLong(RevenueByDayDto::getTotalPrice)
+			.sum();
+	}
+}
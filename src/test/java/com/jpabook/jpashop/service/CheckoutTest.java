@@ -0,0 +1,110 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.Order;
+import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
+import com.jpabook.jpashop.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// >> 34. 장바구니 주문
+@Slf4j
+@SpringBootTest
+class CheckoutTest {
+
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired OrderService orderService;
+	@Autowired OrderRepository orderRepository;
+	@Autowired EntityManagerFactory emf;
+
+	@Test
+	@Transactional
+	void 여러_상품을_주문_하나로() {
+		//given
+		Long memberId = memberService.join(member("checkout-a"));
+		Long book1 = saveBook(itemService, "checkout-book-1", 10000, 10);
+		Long book2 = saveBook(itemService, "checkout-book-2", 20000, 10);
+
+		//when ( 같은 상품 두 줄은 합쳐진다 )
+		Long orderId = orderService.checkout(memberId, Arrays.asList(
+			new OrderLine(book2, 1), new OrderLine(book1, 2), new OrderLine(book1, 3)));
+
+		//then
+		Order order = orderRepository.findOne(orderId);
+		assertThat(order.getStatus()).isEqualTo(OrderStatus.ORDER);
+		assertThat(order.getOrderItems()).hasSize(2);
+		assertThat(order.getTotalPrice()).isEqualTo(10000 * 5 + 20000);
+		assertThat(itemService.findOne(book1).getStockQuantity()).isEqualTo(5);
+		assertThat(itemService.findOne(book2).getStockQuantity()).isEqualTo(9);
+	}
+
+	@Test
+	void 재고가_하나라도_모자라면_전체_롤백() {
+		//given
+		Long memberId = memberService.join(member("checkout-b"));
+		Long book1 = saveBook(itemService, "checkout-book-3", 10000, 10);
+		Long book2 = saveBook(itemService, "checkout-book-4", 20000, 1);
+
+		//when
+		assertThatThrownBy(() -> orderService.checkout(memberId, Arrays.asList(
+			new OrderLine(book1, 2), new OrderLine(book2, 2))))
+			.isInstanceOf(NotEnoughStockException.class);
+
+		//then
+		assertThat(itemService.findOne(book1).getStockQuantity()).isEqualTo(10);
+		assertThat(itemService.findOne(book2).getStockQuantity()).isEqualTo(1);
+	}
+
+	// 장바구니가 커져도 insert / update 는 테이블 별로 batch 라서 늘어나는 statement 가 없다.
+	// ( >> 35. id 도 메모리에서 할당, 시퀀스 범위를 다 써서 다시 받아오는 경우만 테이블 당 1번씩 늘 수 있음 )
+	@Test
+	void 장바구니_크기와_상관없이_statement_수_일정() {
+		//given
+		Long memberId = memberService.join(member("checkout-c"));
+		List<Long> itemIds = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			itemIds.add(saveBook(itemService, "checkout-batch-" + i, 10000, 100));
+		}
+
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		boolean enabled = statistics.isStatisticsEnabled();
+		statistics.setStatisticsEnabled(true);
+		try {
+			//when
+			long one = countStatements(statistics, () ->
+				orderService.checkout(memberId, Arrays.asList(new OrderLine(itemIds.get(0), 1))));
+
+			List<OrderLine> lines = new ArrayList<>();
+			itemIds.forEach(itemId -> lines.add(new OrderLine(itemId, 1)));
+			long ten = countStatements(statistics, () -> orderService.checkout(memberId, lines));
+
+			//then
+			log.info("statements oneLine={} tenLines={}", one, ten);
+			assertThat(ten - one).isLessThanOrEqualTo(3);
+		} finally {
+			statistics.setStatisticsEnabled(enabled);
+		}
+	}
+
+	private long countStatements(Statistics statistics, Runnable checkout) {
+		statistics.clear();
+		checkout.run();
+		return statistics.getPrepareStatementCount();
+	}
+}
@@ -0,0 +1,186 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.item.Book;
+import com.jpabook.jpashop.repository.BookImportLine;
+import com.jpabook.jpashop.repository.ItemSearchHit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.jpabook.jpashop.TestFixtures.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// >> 36. 책 대량 등록 ( chunk 마다 커밋되므로 @Transactional 을 걸지 않는다 )
+@Slf4j
+@SpringBootTest
+class ItemImportServiceTest {
+
+	@Autowired ItemImportService itemImportService;
+	@Autowired ItemService itemService;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@Test
+	void isbn_기준으로_등록_또는_수정() {
+		//given
+		Book existing = book("import-old-name", 1000, 1);
+		existing.setIsbn("import-isbn-1");
+		itemService.saveItem(existing);
+
+		List<BookImportLine> lines = Arrays.asList(
+			new BookImportLine("import-new-name", 2000, 5, "import-author", "import-isbn-1"),
+			new BookImportLine("import-book-2", 3000, 7, "import-author", "import-isbn-2"),
+			new BookImportLine("import-no-isbn", 3000, 7, "import-author", " "));
+
+		//when
+		List<ImportProgress> reported = new ArrayList<>();
+		ImportProgress progress = itemImportService.importBooks(lines.iterator(), reported::add);
+
+		//then
+		assertThat(progress.getInserted()).isEqualTo(1);
+		assertThat(progress.getUpdated()).isEqualTo(1);
+		assertThat(progress.getSkipped()).isEqualTo(1);
+		assertThat(progress.isDone()).isTrue();
+		assertThat(reported).isNotEmpty();
+
+		Book updated = (Book) itemService.findOne(existing.getId());
+		assertThat(updated.getName()).isEqualTo("import-new-name");
+		assertThat(updated.getStockQuantity()).isEqualTo(5);
+		assertThat(updated.getVersion()).isGreaterThan(existing.getVersion());
+
+		// 검색 색인에도 반영
+		assertThat(itemService.searchItems("import-book-2", 0, 10).getHits())
+			.extracting(ItemSearchHit::getName).contains("import-book-2");
+	}
+
+	// chunk 마다 등록 / 수정한 상품만 다시 색인한다. ( 전체 rebuild 없음 )
+	@Test
+	void 수정한_책은_바뀐_이름으로만_검색된다() {
+		//given
+		itemImportService.importBooks(Arrays.asList(
+			new BookImportLine("reindex-before", 1000, 1, null, "import-reindex-isbn")).iterator(), p -> { });
+
+		//when
+		itemImportService.importBooks(Arrays.asList(
+			new BookImportLine("reindex-after", 1000, 1, null, "import-reindex-isbn")).iterator(), p -> { });
+
+		//then
+		assertThat(itemService.searchItems("reindex", 0, 10).getHits())
+			.extracting(ItemSearchHit::getName).containsExactly("reindex-after");
+	}
+
+	@Test
+	void 대량등록한_id와_JPA로_저장한_id는_겹치지_않는다() {
+		//given
+		itemImportService.importBooks(Arrays.asList(
+			new BookImportLine("import-seq-1", 1000, 1, null, "import-seq-isbn-1")).iterator(), p -> { });
+
+		//when
+		Book book = book("import-seq-after", 1000, 1);
+		itemService.saveItem(book);
+
+		//then
+		Long importedId = jdbcTemplate.queryForObject(
+			"select item_id from item where isbn = ?", Long.class, "import-seq-isbn-1");
+		assertThat(book.getId()).isNotEqualTo(importedId);
+	}
+
+	@Test
+	void 같은_chunk_안의_중복_isbn은_마지막_줄만_쓰고_건너뛴다() {
+		//given
+		List<BookImportLine> lines = Arrays.asList(
+			new BookImportLine("import-dup-first", 1000, 1, null, "import-dup-isbn"),
+			new BookImportLine("import-dup-last", 2000, 2, null, "import-dup-isbn"));
+
+		//when
+		ImportProgress progress = itemImportService.importBooks(lines.iterator(), p -> { });
+
+		//then
+		assertThat(progress.getInserted()).isEqualTo(1);
+		assertThat(progress.getSkipped()).isEqualTo(1);
+		assertThat(jdbcTemplate.queryForList("select name from item where isbn = ?", String.class, "import-dup-isbn"))
+			.containsExactly("import-dup-last");
+	}
+
+	@Test
+	void isbn이_같은_책은_두권_저장할수_없다() {
+		//given
+		Book first = book("unique-isbn-1", 1000, 1);
+		first.setIsbn("unique-isbn");
+		itemService.saveItem(first);
+
+		//when
+		Book second = book("unique-isbn-2", 1000, 1);
+		second.setIsbn(" unique-isbn ");
+
+		//then
+		assertThatThrownBy(() -> itemService.saveItem(second)).isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	@Test
+	void isbn을_비워두면_여러권_저장할수_있다() {
+		//given
+		Book first = book("blank-isbn-1", 1000, 1);
+		first.setIsbn("");
+		Book second = book("blank-isbn-2", 1000, 1);
+		second.setIsbn(" ");
+
+		//when
+		itemService.saveItem(first);
+		itemService.saveItem(second);
+
+		//then
+		assertThat(first.getIsbn()).isNull();
+		assertThat(second.getId()).isNotEqualTo(first.getId());
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 책 50만 줄을 만들어서 ( 메모리에 올리지 않고 하나씩 생성 ) 등록, 두 번째는 전부 수정
+	// 로컬 H2 에서 초당 5만 줄 이상
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_대량등록() {
+		int rows = 500_000;
+		for (String round : new String[]{"insert", "update"}) {
+			Runtime runtime = Runtime.getRuntime();
+			runtime.gc();
+			long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+			ImportProgress progress = itemImportService.importBooks(generate(rows, round), p -> { });
+
+			long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+			log.info("round={} rows={} inserted={} updated={} elapsed={}ms rowsPerSecond={} heapDelta={}MB",
+				round, rows, progress.getInserted(), progress.getUpdated(), progress.getElapsedMillis(),
+				progress.getRowsPerSecond(), (usedAfter - usedBefore) / 1024 / 1024);
+			assertThat(progress.getProcessed()).isEqualTo(rows);
+			assertThat(progress.getRowsPerSecond()).as(round).isGreaterThanOrEqualTo(50_000);
+		}
+	}
+
+	private Iterator<BookImportLine> generate(int rows, String round) {
+		return new Iterator<BookImportLine>() {
+			private int i;
+
+			@Override
+			public boolean hasNext() {
+				return i < rows;
+			}
+
+			@Override
+			public BookImportLine next() {
+				i++;
+				return new BookImportLine("bench book " + i + " " + round, 10000 + i % 100, i % 50,
+					"author " + (i % 1000), "bench-isbn-" + i);
+			}
+		};
+	}
+}
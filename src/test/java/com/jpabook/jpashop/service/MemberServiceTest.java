@@ -2,17 +2,18 @@ package com.jpabook.jpashop.service;
 
 import com.jpabook.jpashop.domain.Member;
 import com.jpabook.jpashop.repository.MemberRepository;
-import org.junit.Assert;
-import org.junit.Test;
-import org.junit.runner.RunWith;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
-import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@RunWith(SpringRunner.class)
 @SpringBootTest
 @Transactional
 public class MemberServiceTest {
@@ -37,8 +38,7 @@ public class MemberServiceTest {
         assertEquals(member, memberRepository.findOne(savedId));
     }
 
-    // 해당 예외가 발생하는 테스트여야 성공.
-    @Test(expected = IllegalStateException.class)
+    @Test
     public void 중복_회원_예외() throws Exception {
         //given
         Member member1 = new Member();
@@ -49,10 +49,57 @@ public class MemberServiceTest {
 
         //when
         memberService.join(member1);
-        memberService.join(member2);
 
         //then
-        fail("예외가 발생해야 한다.");
+        assertThrows(IllegalStateException.class, () -> memberService.join(member2));
+    }
+
+    @Test
+    public void 대소문자_공백만_다른_중복_회원_예외() throws Exception {
+        //given
+        Member member1 = new Member();
+        Member member2 = new Member();
+
+        member1.setName("Park");
+        member2.setName(" park ");
+
+        //when
+        memberService.join(member1);
+
+        //then
+        assertThrows(IllegalStateException.class, () -> memberService.join(member2));
+    }
+
+    @Test
+    public void 일괄_가입() throws Exception {
+        //given
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Member member = new Member();
+            member.setName("bulk" + i);
+            members.add(member);
+        }
+
+        //when
+        List<Long> ids = memberService.joinAll(members);
+
+        //then
+        assertEquals(3, ids.size());
+        assertEquals("bulk2", memberRepository.findOne(ids.get(2)).getName());
+    }
+
+    @Test
+    public void 일괄_가입_기존회원_중복_예외() throws Exception {
+        //given
+        Member member = new Member();
+        member.setName("park");
+        memberService.join(member);
+
+        Member duplicate = new Member();
+        duplicate.setName("PARK");
+
+        //when, then
+        assertThrows(IllegalStateException.class, () -> memberService.joinAll(Arrays.asList(duplicate)));
     }
 
 
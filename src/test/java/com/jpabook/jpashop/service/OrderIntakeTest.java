@@ -0,0 +1,152 @@
+package com.jpabook.jpashop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.jpabook.jpashop.TestFixtures.PRICE;
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
+
+// >> 37. 비동기 주문 접수 ( 워커가 커밋하므로 @Transactional 을 걸지 않는다 )
+@Slf4j
+@SpringBootTest
+class OrderIntakeTest {
+
+	@Autowired OrderIntake orderIntake;
+	@Autowired OrderService orderService;
+	@Autowired OrderFacade orderFacade;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired PlatformTransactionManager transactionManager;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@Test
+	void 접수한_주문이_처리된다() throws Exception {
+		//given
+		Long memberId = memberService.join(member("intake-a"));
+		Long itemId = saveBook(itemService, "intake-book-a", PRICE, 100);
+
+		//when
+		List<OrderTicket> tickets = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			tickets.add(orderIntake.submit(memberId, itemId, 1));
+		}
+		awaitCompleted(tickets);
+
+		//then
+		assertThat(tickets).allMatch(t -> t.getStatus() == OrderTicketStatus.DONE && t.getOrderId() != null);
+		assertThat(orderIntake.findTicket(tickets.get(0).getId())).isSameAs(tickets.get(0));
+		assertThat(itemService.findOne(itemId).getStockQuantity()).isEqualTo(80);
+	}
+
+	@Test
+	void 묶음_중_실패한_주문만_FAILED() {
+		//given ( 재고 3개인데 2개씩 세 번 )
+		Long memberId = memberService.join(member("intake-b"));
+		Long itemId = saveBook(itemService, "intake-book-b", PRICE, 3);
+		OrderIntake intake = new OrderIntake(orderService, orderFacade, transactionManager, 10, 10, 0, 1, 10);
+		List<OrderTicket> tickets = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			tickets.add(intake.submit(memberId, itemId, 2));
+		}
+
+		//when ( 워커 없이 직접 한 묶음 처리 )
+		intake.process(tickets);
+
+		//then ( 묶음은 롤백되고 한 건씩 다시 처리 )
+		assertThat(tickets.get(0).getStatus()).isEqualTo(OrderTicketStatus.DONE);
+		assertThat(tickets.get(1).getStatus()).isEqualTo(OrderTicketStatus.FAILED);
+		assertThat(tickets.get(1).getMessage()).isNotBlank();
+		assertThat(tickets.get(2).getStatus()).isEqualTo(OrderTicketStatus.FAILED);
+		assertThat(itemService.findOne(itemId).getStockQuantity()).isEqualTo(1);
+		Integer sold = jdbcTemplate.queryForObject(
+			"select coalesce(sum(count), 0) from order_item where item_id = ?", Integer.class, itemId);
+		assertThat(sold).isEqualTo(2);
+	}
+
+	@Test
+	void 대기열이_가득_차면_거절() {
+		//given ( 워커를 띄우지 않아서 대기열이 비워지지 않음 )
+		OrderIntake intake = new OrderIntake(orderService, orderFacade, transactionManager, 1, 10, 0, 3, 10);
+		intake.submit(1L, 1L, 1);
+
+		//when, then
+		assertThatThrownBy(() -> intake.submit(1L, 1L, 1))
+			.isInstanceOf(OrderIntakeFullException.class)
+			.extracting("retryAfterSeconds").isEqualTo(3L);
+		assertThat(intake.getQueueSize()).isEqualTo(1);
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 같은 주문 수를 동기(요청마다 커밋)와 비동기 접수(묶어서 커밋)로 처리했을 때 처리량
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_동기_vs_비동기접수() throws Exception {
+		int threads = 32;
+		int ordersPerThread = 200;
+		Long memberId = memberService.join(member("intake-bench"));
+
+		Long syncItemId = saveBook(itemService, "intake-bench-sync", PRICE, threads * ordersPerThread);
+		long syncMs = runConcurrently(threads, ordersPerThread, () -> orderFacade.order(memberId, syncItemId, 1));
+
+		Long asyncItemId = saveBook(itemService, "intake-bench-async", PRICE, threads * ordersPerThread);
+		List<OrderTicket> tickets = Collections.synchronizedList(new ArrayList<>());
+		long begin = System.nanoTime();
+		runConcurrently(threads, ordersPerThread, () -> tickets.add(orderIntake.submit(memberId, asyncItemId, 1)));
+		awaitCompleted(tickets);
+		long asyncMs = Math.max((System.nanoTime() - begin) / 1_000_000, 1);
+
+		int total = threads * ordersPerThread;
+		log.info("orders={} sync={}ms ({}/s) async={}ms ({}/s)",
+			total, syncMs, total * 1000L / syncMs, asyncMs, total * 1000L / asyncMs);
+		assertThat(tickets).allMatch(t -> t.getStatus() == OrderTicketStatus.DONE);
+	}
+
+	private long runConcurrently(int threads, int ordersPerThread, Runnable call) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		long begin = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < ordersPerThread; i++) {
+					call.run();
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		return Math.max((System.nanoTime() - begin) / 1_000_000, 1);
+	}
+
+	private void awaitCompleted(List<OrderTicket> tickets) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (System.nanoTime() < deadline) {
+			synchronized (tickets) {
+				if (tickets.stream().noneMatch(t -> t.getStatus() == OrderTicketStatus.ACCEPTED)) {
+					return;
+				}
+			}
+			Thread.sleep(10);
+		}
+		fail("30초 안에 처리되지 않은 접수표가 있다. " + tickets.stream()
+			.filter(t -> t.getStatus() == OrderTicketStatus.ACCEPTED).count() + "건");
+	}
+}
@@ -1,6 +1,5 @@
 package com.jpabook.jpashop.service;
 
-import com.jpabook.jpashop.domain.Address;
 import com.jpabook.jpashop.domain.Member;
 import com.jpabook.jpashop.domain.Order;
 import com.jpabook.jpashop.domain.OrderStatus;
@@ -8,19 +7,18 @@ import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
 import com.jpabook.jpashop.domain.item.Book;
 import com.jpabook.jpashop.domain.item.Item;
 import com.jpabook.jpashop.repository.OrderRepository;
-import org.junit.Assert;
-import org.junit.Test;
-import org.junit.runner.RunWith;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 
-import static org.junit.Assert.*;
+import static com.jpabook.jpashop.TestFixtures.book;
+import static com.jpabook.jpashop.TestFixtures.member;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@RunWith(SpringRunner.class)
 @SpringBootTest
 @Transactional
 public class OrderServiceTest {
@@ -34,15 +32,10 @@ public class OrderServiceTest {
     @Test
     public void 상품주문() throws Exception {
         //given
-        Member member = new Member();
-        member.setName("회원1");
-        member.setAddress(new Address("서울", "강가", "123-1234"));
+        Member member = member("회원1");
         em.persist(member);
 
-        Book book = new Book();
-        book.setName("시골 JPA");
-        book.setPrice(10000);
-        book.setStockQuantity(10);
+        Book book = book("시골 JPA", 10000, 10);
         em.persist(book);
 
         int orderCount = 2;
@@ -52,24 +45,19 @@ public class OrderServiceTest {
         //then
         Order getOrder = orderRepository.findOne(orderId);
 
-        Assert.assertEquals("상품 주문 시 상태는 ORDER", OrderStatus.ORDER, getOrder.getStatus());
-        Assert.assertEquals("주문한 상품 종류 수가 정확해야 한다.", 1, getOrder.getOrderItems().size());
-        Assert.assertEquals("주문 가격은 가격 * 수량이다.", 10000 * orderCount, getOrder.getTotalPrice());
-        Assert.assertEquals("주문 수량만큼 재고가 줄어야 한다.", 8, book.getStockQuantity());
+        assertEquals(OrderStatus.ORDER, getOrder.getStatus(), "상품 주문 시 상태는 ORDER");
+        assertEquals(1, getOrder.getOrderItems().size(), "주문한 상품 종류 수가 정확해야 한다.");
+        assertEquals(10000 * orderCount, getOrder.getTotalPrice(), "주문 가격은 가격 * 수량이다.");
+        assertEquals(8, book.getStockQuantity(), "주문 수량만큼 재고가 줄어야 한다.");
     }
 
     @Test
     public void 주문취소() throws Exception {
         //given
-        Member member = new Member();
-        member.setName("회원1");
-        member.setAddress(new Address("서울", "강가", "123-1234"));
+        Member member = member("회원1");
         em.persist(member);
 
-        Book book = new Book();
-        book.setName("시골 JPA");
-        book.setPrice(10000);
-        book.setStockQuantity(10);
+        Book book = book("시골 JPA", 10000, 10);
         em.persist(book);
 
         int orderCount = 2;
@@ -81,32 +69,26 @@ public class OrderServiceTest {
         //then
         Order getOrder = orderRepository.findOne(orderId);
 
-        Assert.assertEquals("주문 취소 시 상태는 CANCEL", OrderStatus.CANCEL, getOrder.getStatus());
-        Assert.assertEquals("주문 취소된 상품은 그만큼 재고 증가", 2, book.getStockQuantity());
+        assertEquals(OrderStatus.CANCEL, getOrder.getStatus(), "주문 취소 시 상태는 CANCEL");
+        assertEquals(10, book.getStockQuantity(), "주문 취소된 상품은 그만큼 재고 증가");
 
     }
     
-    @Test(expected = NotEnoughStockException.class)
+    @Test
     public void 상품주문_재고수량초과() throws Exception {
         //given
-        Member member = new Member();
-        member.setName("회원1");
-        member.setAddress(new Address("서울", "강가", "123-1234"));
+        Member member = member("회원1");
         em.persist(member);
 
-        Book book = new Book();
-        book.setName("시골 JPA");
-        book.setPrice(10000);
-        book.setStockQuantity(10);
+        Book book = book("시골 JPA", 10000, 10);
         em.persist(book);
 
         int orderCount = 11;
 
-        //when
-        orderService.order(member.getId(), book.getId(), orderCount);
-
-        //then
-        fail("재고 수량 부족 예외가 발생해야 한다.");
+        //when, then
+        assertThrows(NotEnoughStockException.class,
+                () -> orderService.order(member.getId(), book.getId(), orderCount),
+                "재고 수량 부족 예외가 발생해야 한다.");
     }
 
 }
\ No newline at end of file
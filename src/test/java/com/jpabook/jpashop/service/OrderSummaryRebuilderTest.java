@@ -0,0 +1,72 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.summary.OrderSummary;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 40. 주문 목록 read model 재구성
+// 모든 주문의 row 를 다시 쓰므로 다른 테스트와 DB 가 섞이지 않도록 별도 메모리 DB
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:summary-rebuild")
+class OrderSummaryRebuilderTest {
+
+	@Autowired OrderSummaryRepository orderSummaryRepository;
+	@Autowired OrderSummaryRebuilder orderSummaryRebuilder;
+	@Autowired OrderService orderService;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@Test
+	void 주문_테이블에서_다시_만들어도_같다() throws Exception {
+		//given
+		Long memberId = memberService.join(member("summary-rebuild"));
+		Long book1 = saveBook(itemService, "summary-book-5", 10000, 100);
+		Long book2 = saveBook(itemService, "summary-book-6", 30000, 100);
+		Long orderId = orderService.checkout(memberId, Arrays.asList(new OrderLine(book2, 1), new OrderLine(book1, 3)));
+		Long canceledId = orderService.order(memberId, book1, 1);
+		orderService.cancelOrder(canceledId);
+		OrderSummary before = orderSummaryRepository.findOne(orderId);
+		OrderSummary canceledBefore = orderSummaryRepository.findOne(canceledId);
+
+		//when
+		long rows = orderSummaryRebuilder.rebuild();
+
+		//then
+		assertThat(rows).isGreaterThanOrEqualTo(2);
+		assertSameSummary(orderSummaryRepository.findOne(orderId), before);
+		assertSameSummary(orderSummaryRepository.findOne(canceledId), canceledBefore);
+	}
+
+	// 범위마다 지우고 다시 넣으므로 주문이 없어진 row 는 빠지고, 나머지 row 수는 주문 수와 같다.
+	@Test
+	void 없어진_주문의_row는_지운다() throws Exception {
+		//given
+		Long memberId = memberService.join(member("summary-orphan"));
+		Long itemId = saveBook(itemService, "summary-book-7", 10000, 100);
+		Long orderId = orderService.order(memberId, itemId, 1);
+		orderService.order(memberId, itemId, 1);
+		jdbcTemplate.update("delete from order_item where order_id = ?", orderId);
+		jdbcTemplate.update("delete from orders where order_id = ?", orderId);
+
+		//when
+		orderSummaryRebuilder.rebuild();
+
+		//then
+		assertThat(orderSummaryRepository.findOne(orderId)).isNull();
+		assertThat(jdbcTemplate.queryForObject("select count(*) from order_summary", Long.class))
+			.isEqualTo(jdbcTemplate.queryForObject("select count(*) from orders", Long.class));
+	}
+
+	private void assertSameSummary(OrderSummary actual, OrderSummary expected) {
+		assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+	}
+}
@@ -0,0 +1,87 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.OrderStatus;
+import com.jpabook.jpashop.domain.summary.OrderSummary;
+import com.jpabook.jpashop.repository.OrderSearch;
+import com.jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 40. 주문 목록 read model ( 커밋 직전 이벤트로 갱신되므로 @Transactional 을 걸지 않는다 )
+@SpringBootTest
+class OrderSummaryTest {
+
+	@Autowired OrderSummaryRepository orderSummaryRepository;
+	@Autowired OrderService orderService;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+
+	@Test
+	void 주문하면_목록_row_생성() {
+		//given
+		Long memberId = memberService.join(member("summary-a"));
+		Long book1 = saveBook(itemService, "summary-book-1", 10000, 100);
+		Long book2 = saveBook(itemService, "summary-book-2", 20000, 100);
+
+		//when
+		Long orderId = orderService.checkout(memberId, Arrays.asList(new OrderLine(book1, 2), new OrderLine(book2, 1)));
+
+		//then
+		OrderSummary summary = orderSummaryRepository.findOne(orderId);
+		assertThat(summary.getMemberId()).isEqualTo(memberId);
+		assertThat(summary.getMemberName()).isEqualTo("summary-a");
+		assertThat(summary.getAddress().getCity()).isEqualTo("서울");
+		assertThat(summary.getStatus()).isEqualTo(OrderStatus.ORDER);
+		assertThat(summary.getTotalPrice()).isEqualTo(40000);
+		assertThat(summary.getFirstItemName()).isEqualTo("summary-book-1");
+		assertThat(summary.getFirstCount()).isEqualTo(2);
+		assertThat(summary.getOrderItems()).contains("summary-book-1", "summary-book-2");
+	}
+
+	@Test
+	void 취소와_회원이름_변경이_반영된다() {
+		//given
+		Long memberId = memberService.join(member("summary-b"));
+		Long orderId = orderService.order(memberId, saveBook(itemService, "summary-book-3", 10000, 100), 1);
+
+		//when
+		orderService.cancelOrder(orderId);
+		memberService.update(memberId, "summary-b-renamed");
+
+		//then
+		OrderSummary summary = orderSummaryRepository.findOne(orderId);
+		assertThat(summary.getStatus()).isEqualTo(OrderStatus.CANCEL);
+		assertThat(summary.getMemberName()).isEqualTo("summary-b-renamed");
+	}
+
+	@Test
+	void 회원이름과_상태로_검색() {
+		//given
+		Long memberId = memberService.join(member("summary-search"));
+		Long itemId = saveBook(itemService, "summary-book-4", 10000, 100);
+		Long ordered = orderService.order(memberId, itemId, 1);
+		Long canceled = orderService.order(memberId, itemId, 1);
+		orderService.cancelOrder(canceled);
+
+		//when
+		OrderSearch orderSearch = new OrderSearch();
+		orderSearch.setMemberName(" Summary-Search ");
+		List<OrderSummary> all = orderSummaryRepository.findAfter(null, orderSearch, 100);
+		orderSearch.setOrderStatus(OrderStatus.CANCEL);
+		List<OrderSummary> canceledOnly = orderSummaryRepository.findAfter(null, orderSearch, 100);
+		List<OrderSummary> afterFirst = orderSummaryRepository.findAfter(ordered, new OrderSearch(), 100);
+
+		//then
+		assertThat(all).extracting(OrderSummary::getOrderId).containsExactly(ordered, canceled);
+		assertThat(canceledOnly).extracting(OrderSummary::getOrderId).containsExactly(canceled);
+		assertThat(afterFirst).extracting(OrderSummary::getOrderId).doesNotContain(ordered).contains(canceled);
+	}
+}
@@ -0,0 +1,168 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
+import com.jpabook.jpashop.repository.OutboxMessage;
+import com.jpabook.jpashop.repository.OutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.jpabook.jpashop.TestFixtures.PRICE;
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// >> 41. outbox ( 테스트에서는 relay 스레드를 끄고 relayOnce 를 직접 호출 )
+@Slf4j
+@SpringBootTest
+class OutboxTest {
+
+	@Autowired OutboxRelay outboxRelay;
+	@Autowired OutboxRepository outboxRepository;
+	@Autowired InMemoryOutboxSink inMemoryOutboxSink;
+	@Autowired OrderService orderService;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired PlatformTransactionManager transactionManager;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void drain() throws IOException {
+		while (outboxRelay.relayOnce() > 0) {
+		}
+	}
+
+	@Test
+	void 주문과_취소가_outbox_로_전달된다() throws IOException {
+		//given
+		Long memberId = memberService.join(member("outbox-a"));
+		Long itemId = saveBook(itemService, "outbox-book", PRICE, 10);
+
+		//when
+		Long orderId = orderService.order(memberId, itemId, 2);
+		orderService.cancelOrder(orderId);
+		assertThat(countPending()).isEqualTo(2);
+		int sent = outboxRelay.relayOnce();
+
+		//then
+		assertThat(sent).isEqualTo(2);
+		assertThat(countPending()).isZero();
+		List<OutboxMessage> messages = inMemoryOutboxSink.getRecent().stream()
+			.filter(m -> m.getAggregateId().equals(orderId))
+			.collect(Collectors.toList());
+		assertThat(messages).extracting(OutboxMessage::getEventType)
+			.containsExactly(OutboxEventWriter.ORDER_PLACED, OutboxEventWriter.ORDER_CANCELED);
+		assertThat(messages.get(0).getPayload()).contains("\"memberId\":" + memberId, "\"itemId\":" + itemId);
+	}
+
+	// 상품이 많은 주문은 payload 가 4000자를 넘는다. ( @Lob )
+	@Test
+	void 상품이_많은_주문도_payload_가_잘리지_않는다() throws IOException {
+		//given
+		Long memberId = memberService.join(member("outbox-large"));
+		List<OrderLine> lines = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			lines.add(new OrderLine(saveBook(itemService, "outbox-book-large-" + i, PRICE, 10), 1));
+		}
+
+		//when
+		Long orderId = orderService.checkout(memberId, lines);
+		outboxRelay.relayOnce();
+
+		//then
+		OutboxMessage placed = inMemoryOutboxSink.getRecent().stream()
+			.filter(m -> m.getAggregateId().equals(orderId))
+			.findFirst()
+			.orElseThrow(AssertionError::new);
+		assertThat(placed.getPayload().length()).isGreaterThan(4000);
+		assertThat(placed.getPayload()).endsWith("]}");
+	}
+
+	@Test
+	void 주문이_롤백되면_outbox_도_남지_않는다() {
+		//given
+		Long memberId = memberService.join(member("outbox-b"));
+		Long itemId = saveBook(itemService, "outbox-book-rollback", PRICE, 1);
+
+		//when
+		assertThatThrownBy(() -> orderService.order(memberId, itemId, 2))
+			.isInstanceOf(NotEnoughStockException.class);
+
+		//then
+		assertThat(countPending()).isZero();
+	}
+
+	@Test
+	void 싱크가_실패하면_표시하지_않고_다시_보낸다() throws IOException {
+		//given
+		Long memberId = memberService.join(member("outbox-c"));
+		orderService.order(memberId, saveBook(itemService, "outbox-book-retry", PRICE, 10), 1);
+
+		AtomicInteger calls = new AtomicInteger();
+		List<OutboxMessage> received = new ArrayList<>();
+		OutboxRelay relay = new OutboxRelay(outboxRepository, messages -> {
+			if (calls.incrementAndGet() == 1) {
+				throw new IOException("sink down");
+			}
+			received.addAll(messages);
+		}, transactionManager, false, 100, 100);
+
+		//when, then
+		assertThatThrownBy(relay::relayOnce).isInstanceOf(IOException.class);
+		assertThat(countPending()).isEqualTo(1);
+
+		assertThat(relay.relayOnce()).isEqualTo(1);
+		assertThat(received).hasSize(1);
+		assertThat(countPending()).isZero();
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 미전송 이벤트 20만 건을 JDBC 로 넣고 relay 처리량 ( 메모리 싱크 )
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_relay_처리량() throws IOException {
+		int rows = 200_000;
+		long baseId = 100_000_000L;
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		List<Object[]> batch = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			batch.add(new Object[]{baseId + i, "Order", (long) i, OutboxEventWriter.ORDER_PLACED,
+				"{\"orderId\":" + i + ",\"totalPrice\":10000}", now});
+			if (batch.size() == 10_000) {
+				jdbcTemplate.batchUpdate("insert into outbox_event (outbox_event_id, aggregate_type, aggregate_id, event_type, payload, created_at)" +
+					" values (?, ?, ?, ?, ?, ?)", batch);
+				batch.clear();
+			}
+		}
+
+		long begin = System.nanoTime();
+		long sent = 0;
+		int relayed;
+		while ((relayed = outboxRelay.relayOnce()) > 0) {
+			sent += relayed;
+		}
+		long elapsedMs = Math.max((System.nanoTime() - begin) / 1_000_000, 1);
+
+		log.info("outbox relay events={} elapsed={}ms eventsPerSecond={}", sent, elapsedMs, sent * 1000 / elapsedMs);
+		assertThat(sent).isEqualTo(rows);
+	}
+
+	private long countPending() {
+		return new TransactionTemplate(transactionManager).execute(status -> outboxRepository.countPending());
+	}
+}
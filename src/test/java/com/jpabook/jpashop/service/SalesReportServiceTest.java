@@ -0,0 +1,136 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.repository.SalesReportRow;
+import com.jpabook.jpashop.repository.SalesRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 39. 판매 집계
+@SpringBootTest
+@Transactional
+class SalesReportServiceTest {
+
+	@Autowired SalesReportService salesReportService;
+	@Autowired OrderService orderService;
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired EntityManager em;
+
+	@Test
+	void 주문과_취소가_집계에_반영된다() {
+		//given
+		LocalDate today = LocalDate.now();
+		Long memberId = memberService.join(member("sales-a"));
+		Long book1 = createBook("sales-book-1", 10000, 100, 0);
+		Long book2 = createBook("sales-book-2", 20000, 100, 0);
+
+		//when
+		orderService.order(memberId, book1, 2);
+		orderService.checkout(memberId, Arrays.asList(new OrderLine(book1, 1), new OrderLine(book2, 3)));
+		Long canceledId = orderService.order(memberId, book2, 1);
+		orderService.cancelOrder(canceledId);
+
+		//then
+		assertRow(salesReportService.itemDaily(book1, today, today), 2, 3, 30000);
+		assertRow(salesReportService.itemDaily(book2, today, today), 1, 3, 60000);
+		assertThat(salesReportService.itemHourly(book2, today, today))
+			.isNotEmpty()
+			.allMatch(row -> row.getPeriod().getMinute() == 0 && row.getPeriod().getSecond() == 0);
+		assertRow(salesReportService.memberDaily(memberId, today, today), 2, 6, 90000);
+		assertThat(salesReportService.topItems(today, today, 100))
+			.extracting(SalesReportRow::getId).contains(book1, book2);
+	}
+
+	@Test
+	void 분할재고_상품은_샤드별_row_합계() {
+		//given
+		LocalDate today = LocalDate.now();
+		Long memberId = memberService.join(member("sales-b"));
+		Long itemId = createBook("sales-sharded", 10000, 100, 4);
+
+		//when
+		for (int i = 0; i < 8; i++) {
+			orderService.order(memberId, itemId, 1);
+		}
+
+		//then
+		assertRow(salesReportService.itemDaily(itemId, today, today), 8, 8, 80000);
+	}
+
+	// 분할하지 않은 상품도 주문 id 로 slot 을 나눈다. ( 연속된 주문 id 8개 -> slot 8개 )
+	@Test
+	void 분할하지_않은_상품은_주문별로_slot이_나뉜다() {
+		//given
+		LocalDate today = LocalDate.now();
+		Long memberId = memberService.join(member("sales-slots"));
+		Long itemId = createBook("sales-slots", 10000, 100, 0);
+
+		//when
+		for (int i = 0; i < SalesRollupRepository.SLOTS; i++) {
+			orderService.order(memberId, itemId, 1);
+		}
+
+		//then
+		assertThat(slotRows(itemId)).hasSize(SalesRollupRepository.SLOTS)
+			.allMatch(row -> ((Number) row[1]).longValue() == 1);
+		assertRow(salesReportService.itemDaily(itemId, today, today), 8, 8, 80000);
+	}
+
+	@Test
+	void 주문_테이블에서_다시_만들어도_같다() {
+		//given
+		LocalDate today = LocalDate.now();
+		Long memberId = memberService.join(member("sales-c"));
+		Long itemId = createBook("sales-rebuild", 10000, 100, 0);
+		orderService.order(memberId, itemId, 2);
+		Long canceledId = orderService.order(memberId, itemId, 5);
+		orderService.cancelOrder(canceledId);
+		em.flush();
+		List<SalesReportRow> before = salesReportService.itemDaily(itemId, today, today);
+		List<Object[]> slotsBefore = slotRows(itemId);
+
+		//when
+		salesReportService.rebuild();
+
+		//then
+		assertThat(salesReportService.itemDaily(itemId, today, today)).isEqualTo(before);
+		assertThat(slotRows(itemId)).containsExactlyElementsOf(slotsBefore);
+		assertRow(salesReportService.memberDaily(memberId, today, today), 1, 2, 20000);
+	}
+
+	// slot 별 { slot, 주문 수 } ( 0 건이 된 slot 은 빼고 )
+	@SuppressWarnings("unchecked")
+	private List<Object[]> slotRows(Long itemId) {
+		return em.createNativeQuery(
+				"select slot, sum(order_count) from item_hourly_sales where item_id = ?" +
+					" group by slot having sum(order_count) > 0 order by slot")
+			.setParameter(1, itemId)
+			.getResultList();
+	}
+
+	private void assertRow(List<SalesReportRow> rows, long orderCount, long units, long revenue) {
+		assertThat(rows).hasSize(1);
+		assertThat(rows.get(0).getOrderCount()).isEqualTo(orderCount);
+		assertThat(rows.get(0).getUnits()).isEqualTo(units);
+		assertThat(rows.get(0).getRevenue()).isEqualTo(revenue);
+	}
+
+	private Long createBook(String name, int price, int stockQuantity, int shardCount) {
+		Long itemId = saveBook(itemService, name, price, stockQuantity);
+		if (shardCount > 0) {
+			itemService.shardStock(itemId, shardCount);
+		}
+		return itemId;
+	}
+}
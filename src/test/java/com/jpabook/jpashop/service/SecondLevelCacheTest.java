@@ -0,0 +1,134 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.item.Book;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.NestedTestConfiguration;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.jpabook.jpashop.TestFixtures.PRICE;
+import static com.jpabook.jpashop.TestFixtures.book;
+import static com.jpabook.jpashop.TestFixtures.member;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 26. 2차 캐시 ( cache 프로파일 ), 캐시를 끈 context 와 주문 경로 statement 수를 비교
+// 테스트 메소드에 @Transactional 을 걸지 않는다. ( 서비스 호출마다 트랜잭션 / 영속성 컨텍스트가 새로 열려야 2차 캐시를 탄다 )
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("cache")
+class SecondLevelCacheTest {
+
+	private static final int ORDERS = 100;
+
+	// context 별 ORDERS 건 주문의 prepareStatementCount
+	private static final Map<String, Long> STATEMENTS = new ConcurrentHashMap<>();
+
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired OrderService orderService;
+	@Autowired EntityManagerFactory emf;
+
+	@Test
+	void 회원_수정시_캐시도_갱신() {
+		//given
+		Long memberId = memberService.join(member("cache-member-a"));
+		memberService.findOne(memberId);    // 캐시 적재
+
+		//when
+		memberService.update(memberId, "cache-member-b");
+
+		//then
+		assertThat(memberService.findOne(memberId).getName()).isEqualTo("cache-member-b");
+	}
+
+	@Test
+	void 상품_수정시_캐시도_갱신() {
+		//given
+		Book book = book("cache-book-a", PRICE, 100);
+		itemService.saveItem(book);
+		itemService.findOne(book.getId());  // 캐시 적재
+
+		//when
+		itemService.updateItem(book.getId(), "cache-book-b", 20000, 50);
+
+		//then
+		assertThat(itemService.findOne(book.getId()).getName()).isEqualTo("cache-book-b");
+		assertThat(itemService.findOne(book.getId()).getStockQuantity()).isEqualTo(50);
+	}
+
+	// 주문 경로에서 회원 / 상품 조회가 DB 대신 캐시에서 처리되는지 확인
+	@Test
+	void 주문_경로_DB_왕복_감소() {
+		//when
+		Statistics statistics = countOrders(memberService, itemService, orderService, emf, "cache");
+
+		//then
+		assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThanOrEqualTo(2L * ORDERS);
+		record("cache", statistics.getPrepareStatementCount());
+	}
+
+	// 비교용 : 2차 캐시를 끈 같은 주문 경로 ( 회원 / 상품을 주문마다 DB 에서 조회 )
+	@Nested
+	@NestedTestConfiguration(NestedTestConfiguration.EnclosingConfiguration.OVERRIDE)
+	@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cache-off",
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true"})
+	class 캐시를_끄면 {
+
+		@Autowired MemberService memberService;
+		@Autowired ItemService itemService;
+		@Autowired OrderService orderService;
+		@Autowired EntityManagerFactory emf;
+
+		@Test
+		void 주문_경로_DB_왕복_감소() {
+			//when
+			Statistics statistics = countOrders(memberService, itemService, orderService, emf, "no-cache");
+
+			//then
+			assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+			record("no-cache", statistics.getPrepareStatementCount());
+		}
+	}
+
+	// 워밍업 주문 1건 뒤 ORDERS 건을 주문하면서 Hibernate 통계를 모은다.
+	private static Statistics countOrders(MemberService memberService, ItemService itemService,
+										  OrderService orderService, EntityManagerFactory emf, String label) {
+		Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+		Long memberId = memberService.join(member(label + "-order-member"));
+		Book book = book(label + "-order-book", PRICE, 10_000);
+		itemService.saveItem(book);
+		orderService.order(memberId, book.getId(), 1);  // 워밍업
+
+		statistics.clear();
+		for (int i = 0; i < ORDERS; i++) {
+			orderService.order(memberId, book.getId(), 1);
+		}
+		log.info("{} orders={} statements={} statementsPerOrder={} l2Hit={} l2Miss={}",
+			label, ORDERS, statistics.getPrepareStatementCount(),
+			(double) statistics.getPrepareStatementCount() / ORDERS,
+			statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount());
+		return statistics;
+	}
+
+	// 캐시를 켠 context 와 끈 context 가 둘 다 돌면 ( 전체 실행 ) statement 수를 비교한다.
+	// 캐시가 없으면 주문마다 회원 / 상품 select 2번이 더 나간다.
+	private static void record(String label, long statements) {
+		STATEMENTS.put(label, statements);
+		if (STATEMENTS.size() == 2) {
+			assertThat(STATEMENTS.get("cache"))
+				.as("statements ( %s )", STATEMENTS)
+				.isLessThan(STATEMENTS.get("no-cache"));
+		}
+	}
+}
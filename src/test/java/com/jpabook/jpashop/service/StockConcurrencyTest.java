@@ -0,0 +1,228 @@
+package com.jpabook.jpashop.service;
+
+import com.jpabook.jpashop.domain.exception.NotEnoughStockException;
+import com.jpabook.jpashop.domain.item.Item;
+import com.jpabook.jpashop.repository.ItemRepository;
+import com.jpabook.jpashop.repository.MemberRepository;
+import com.jpabook.jpashop.repository.OrderRepository;
+import com.jpabook.jpashop.repository.SalesRollupRepository;
+import com.jpabook.jpashop.repository.StockShardRepository;
+import com.jpabook.jpashop.repository.order.OrderQueryResultCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jpabook.jpashop.TestFixtures.PRICE;
+import static com.jpabook.jpashop.TestFixtures.member;
+import static com.jpabook.jpashop.TestFixtures.saveBook;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// >> 32. 한 상품에 64 스레드가 동시에 주문 ( 재고보다 주문 시도가 많음 )
+// 어떤 방식이든 팔린 수량 = 줄어든 재고 여야 하고, 재고가 음수가 되면 안 된다. ( oversell 없음 )
+// >> 33. 분할 재고도 같은 조건으로 확인
+// 커밋 단위로 동작해야 하므로 @Transactional 을 걸지 않는다.
+@Slf4j
+@SpringBootTest
+class StockConcurrencyTest {
+
+	private static final int THREADS = 64;
+	private static final int ORDERS_PER_THREAD = 10;
+	private static final int STOCK = 200;
+
+	@Autowired MemberService memberService;
+	@Autowired ItemService itemService;
+	@Autowired OrderFacade orderFacade;
+	@Autowired OrderRepository orderRepository;
+	@Autowired MemberRepository memberRepository;
+	@Autowired ItemRepository itemRepository;
+	@Autowired StockShardRepository stockShardRepository;
+	@Autowired OrderQueryResultCache orderQueryResultCache;
+	@Autowired SalesRollupRepository salesRollupRepository;
+	@Autowired ApplicationEventPublisher eventPublisher;
+	@Autowired PlatformTransactionManager transactionManager;
+	@Autowired JdbcTemplate jdbcTemplate;
+
+	@Test
+	void atomic_동시주문_재고초과없음() throws Exception {
+		// 설정과 상관없이 atomic 방식으로 주문하는 OrderService ( 트랜잭션은 TransactionTemplate 으로 )
+		OrderService atomicOrderService = new OrderService(orderRepository, memberRepository, itemRepository,
+			stockShardRepository, orderQueryResultCache, salesRollupRepository,
+			eventPublisher, StockMode.ATOMIC);
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+		Stats stats = run("atomic", 0, STOCK, (memberId, itemId) -> tx.execute(s -> atomicOrderService.order(memberId, itemId, 1)));
+
+		// 조건부 update 는 충돌 없이 재고만큼 정확히 팔린다.
+		assertThat(stats.success).isEqualTo(STOCK);
+		assertThat(stats.conflict).isZero();
+		assertThat(stats.remainingStock).isZero();
+	}
+
+	// 같은 트랜잭션에서 다시 읽어도 조건부 update 후의 재고가 보이고, 취소도 조건부 update 로 반환
+	@Test
+	void atomic_주문후_재고를_다시_읽고_취소하면_반환() {
+		//given
+		OrderService atomicOrderService = new OrderService(orderRepository, memberRepository, itemRepository,
+			stockShardRepository, orderQueryResultCache, salesRollupRepository,
+			eventPublisher, StockMode.ATOMIC);
+		TransactionTemplate tx = new TransactionTemplate(transactionManager);
+		Long memberId = memberService.join(member("atomic-cancel"));
+		Long itemId = saveBook(itemService, "atomic-cancel-book", PRICE, 10);
+
+		//when
+		Long orderId = tx.execute(s -> {
+			Item item = itemRepository.findOne(itemId);
+			Long id = atomicOrderService.order(memberId, itemId, 3);
+			assertThat(item.getStockQuantity()).isEqualTo(10);   // 벌크 update 전에 읽은 엔티티 ( 분리됨 )
+			assertThat(itemRepository.findOne(itemId).getStockQuantity()).isEqualTo(7);
+			return id;
+		});
+		tx.execute(s -> {
+			atomicOrderService.cancelOrder(orderId);
+			return null;
+		});
+
+		//then
+		assertThat(itemService.getStockQuantity(itemId)).isEqualTo(10);
+	}
+
+	@Test
+	void optimistic_동시주문_재고초과없음() throws Exception {
+		Stats stats = run("optimistic", 0, STOCK, (memberId, itemId) -> orderFacade.order(memberId, itemId, 1));
+
+		// 재시도를 다 써도 충돌하면 실패하므로 재고가 남을 수는 있지만 초과 판매는 없다.
+		assertThat(stats.success).isLessThanOrEqualTo(STOCK);
+	}
+
+	// >> 33. 분할 재고는 item row 를 건드리지 않으므로 충돌 없이 재고만큼 정확히 팔린다.
+	@Test
+	void 분할재고_동시주문_재고초과없음() throws Exception {
+		Stats stats = run("sharded", 8, STOCK, (memberId, itemId) -> orderFacade.order(memberId, itemId, 1));
+
+		assertThat(stats.success).isEqualTo(STOCK);
+		assertThat(stats.conflict).isZero();
+		assertThat(stats.remainingStock).isZero();
+	}
+
+	@Test
+	void 분할재고_취소하면_샤드로_반환() {
+		//given ( 샤드 하나보다 많이 주문해서 여러 샤드에서 빠지게 )
+		Long memberId = memberService.join(member("shard-cancel"));
+		Long itemId = saveBook(itemService, "shard-cancel-book", PRICE, 10);
+		itemService.shardStock(itemId, 4);
+		List<Integer> distributed = shardQuantities(itemId);
+		Long orderId = orderFacade.order(memberId, itemId, 7);
+		assertThat(itemService.getStockQuantity(itemId)).isEqualTo(3);
+
+		//when
+		orderFacade.cancelOrder(orderId);
+
+		//then ( 샤드마다 뺀 만큼 돌아와서 한 샤드로 몰리지 않는다 )
+		assertThat(itemService.getStockQuantity(itemId)).isEqualTo(10);
+		assertThat(shardQuantities(itemId)).isEqualTo(distributed).containsExactly(3, 3, 2, 2);
+
+		// 분할을 해제하면 샤드 합계가 item 재고로 돌아온다.
+		itemService.shardStock(itemId, 0);
+		assertThat(itemService.findOne(itemId).isStockSharded()).isFalse();
+		assertThat(itemService.getStockQuantity(itemId)).isEqualTo(10);
+	}
+
+	// ./gradlew test -Dbenchmark=true 일 때만 실행
+	// 샤드 수를 늘릴 때 한 상품 주문 처리량 ( 재고는 충분히 )
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+	void benchmark_샤드수별_처리량() throws Exception {
+		for (int shards : new int[]{0, 1, 4, 16, 64}) {
+			run("bench-shards-" + shards, shards, THREADS * ORDERS_PER_THREAD,
+				(memberId, itemId) -> orderFacade.order(memberId, itemId, 1));
+		}
+	}
+
+	private List<Integer> shardQuantities(Long itemId) {
+		return jdbcTemplate.queryForList(
+			"select quantity from stock_shard where item_id = ? order by shard_no", Integer.class, itemId);
+	}
+
+	private Stats run(String mode, int shardCount, int stock, OrderCall call) throws Exception {
+		//given
+		Long memberId = memberService.join(member("stock-" + mode));
+		Long itemId = saveBook(itemService, "stock-book-" + mode, PRICE, stock);
+		if (shardCount > 0) {
+			itemService.shardStock(itemId, shardCount);
+		}
+
+		//when
+		Stats stats = new Stats();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+					try {
+						call.order(memberId, itemId);
+						stats.successCount.incrementAndGet();
+					} catch (NotEnoughStockException e) {
+						stats.soldOutCount.incrementAndGet();
+					} catch (ConcurrencyFailureException e) {
+						stats.conflictCount.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+		long begin = System.nanoTime();
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long elapsedMs = Math.max((System.nanoTime() - begin) / 1_000_000, 1);
+		executor.shutdown();
+
+		//then
+		stats.success = stats.successCount.get();
+		stats.conflict = stats.conflictCount.get();
+		stats.remainingStock = itemService.getStockQuantity(itemId);
+		Integer sold = jdbcTemplate.queryForObject(
+			"select coalesce(sum(count), 0) from order_item where item_id = ?", Integer.class, itemId);
+
+		log.info("mode={} shards={} threads={} attempts={} success={} soldOut={} conflict={} remainingStock={} elapsed={}ms ordersPerSec={}",
+			mode, shardCount, THREADS, THREADS * ORDERS_PER_THREAD, stats.success, stats.soldOutCount.get(), stats.conflict,
+			stats.remainingStock, elapsedMs, stats.success * 1000L / elapsedMs);
+
+		assertThat(stats.remainingStock).isGreaterThanOrEqualTo(0);
+		assertThat(sold).isEqualTo(stats.success);
+		assertThat(stats.remainingStock).isEqualTo(stock - stats.success);
+		return stats;
+	}
+
+	@FunctionalInterface
+	private interface OrderCall {
+		void order(Long memberId, Long itemId);
+	}
+
+	private static class Stats {
+		final AtomicInteger successCount = new AtomicInteger();
+		final AtomicInteger soldOutCount = new AtomicInteger();
+		final AtomicInteger conflictCount = new AtomicInteger();
+		int success;
+		int conflict;
+		int remainingStock;
+	}
+}